@@ -0,0 +1,170 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.protobuf.ByteString;
+import io.grpc.Compressor;
+import io.grpc.CompressorRegistry;
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU cost of compressing a {@code BatchWriteSpans} request of 1,000 spans, and
+ * prints the request size before and after compression when each trial starts.
+ *
+ * <p>The spans mimic a web service: server spans with HTTP attributes, client spans with SQL
+ * statements and random IDs. One operation is one request, so the reported time is the time per
+ * 1,000 spans.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+  private static final String PROJECT_ID = "my-gcp-project";
+  private static final int SPANS = 1000;
+  private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+  private static final String[] ROUTES = {
+    "/api/v1/users/%d", "/api/v1/orders/%d/items", "/api/v1/carts/%d", "/healthz"
+  };
+  private static final String[] STATEMENTS = {
+    "SELECT id, name, email, created_at FROM users WHERE id = ?",
+    "SELECT o.id, o.total, i.sku, i.quantity FROM orders o JOIN items i ON i.order_id = o.id "
+        + "WHERE o.user_id = ? ORDER BY o.created_at DESC LIMIT 50",
+    "UPDATE carts SET updated_at = ?, item_count = item_count + 1 WHERE id = ?"
+  };
+
+  @Param({"identity", "gzip"})
+  public String encoding;
+
+  private Compressor compressor;
+  private SpanEncoder encoder;
+  private List<SpanData> spans;
+  private byte[] request;
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  @Setup
+  public void setup() throws IOException {
+    compressor = CompressorRegistry.getDefaultInstance().lookupCompressor(encoding);
+    encoder = new SpanEncoder(PROJECT_ID, Collections.<String, AttributeValue>emptyMap());
+    spans = createSpans(new Random(42));
+    request = encode().toByteArray();
+    int compressedBytes = compress().size();
+    System.out.printf(
+        "%n%s: %d spans, %d request bytes, %d compressed bytes (%.1fx)%n",
+        encoding,
+        SPANS,
+        request.length,
+        compressedBytes,
+        (double) request.length / compressedBytes);
+  }
+
+  /** The cost compression adds to each export. */
+  @Benchmark
+  public ByteArrayOutputStream compress() throws IOException {
+    output.reset();
+    try (OutputStream stream = compressor.compress(output)) {
+      stream.write(request);
+    }
+    return output;
+  }
+
+  /** The whole export path up to the transport, for comparison. */
+  @Benchmark
+  public ByteArrayOutputStream encodeAndCompress() throws IOException {
+    output.reset();
+    try (OutputStream stream = compressor.compress(output)) {
+      encode().writeTo(stream);
+    }
+    return output;
+  }
+
+  private ByteString encode() {
+    List<ByteString> encoded = new ArrayList<>(spans.size());
+    for (SpanData span : spans) {
+      encoded.add(encoder.encodeToByteString(span));
+    }
+    return new EncodedBatchWriteSpansRequest(ProjectName.of(PROJECT_ID), encoded).toByteString();
+  }
+
+  private static List<SpanData> createSpans(Random random) {
+    List<SpanData> spans = new ArrayList<>(SPANS);
+    for (int i = 0; i < SPANS; i++) {
+      long start = TimeUnit.SECONDS.toNanos(1_600_000_000L) + random.nextInt(1_000_000_000);
+      TestSpanData.Builder span =
+          TestSpanData.newBuilder()
+              .setTraceId(new TraceId(random.nextLong(), random.nextLong()))
+              .setSpanId(new SpanId(random.nextLong()))
+              .setParentSpanId(new SpanId(random.nextLong()))
+              .setStartEpochNanos(start)
+              .setEndEpochNanos(start + random.nextInt(50_000_000))
+              .setEvents(Collections.<SpanData.Event>emptyList())
+              .setLinks(Collections.<SpanData.Link>emptyList())
+              .setTotalRecordedLinks(0)
+              .setStatus(random.nextInt(20) == 0 ? Status.INTERNAL : Status.OK)
+              .setHasRemoteParent(false)
+              .setHasEnded(true);
+      if (i % 2 == 0) {
+        String method = METHODS[random.nextInt(METHODS.length)];
+        String route = ROUTES[random.nextInt(ROUTES.length)];
+        span.setName(method + " " + route.replace("%d", "{id}"))
+            .setKind(Kind.SERVER)
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("http.method", method)
+                    .setAttribute(
+                        "http.url",
+                        "https://shop.example.com" + String.format(route, random.nextInt(100_000)))
+                    .setAttribute("http.status_code", 200L)
+                    .setAttribute("http.flavor", "1.1")
+                    .setAttribute(
+                        "http.user_agent",
+                        "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                            + "Chrome/85.0.4183.102 Safari/537.36")
+                    .setAttribute("net.peer.ip", "10.0." + random.nextInt(256) + ".12")
+                    .build());
+      } else {
+        span.setName("SELECT shop")
+            .setKind(Kind.CLIENT)
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("db.system", "postgresql")
+                    .setAttribute("db.name", "shop")
+                    .setAttribute("db.statement", STATEMENTS[random.nextInt(STATEMENTS.length)])
+                    .setAttribute("net.peer.name", "shop-db.internal")
+                    .setAttribute("net.peer.port", 5432L)
+                    .build());
+      }
+      spans.add(span.build());
+    }
+    return spans;
+  }
+}
@@ -0,0 +1,78 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.grpc.CallOptions;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TraceExporter#export} end to end, from {@link SpanData} to an acknowledged RPC,
+ * against an in-process {@link FakeTraceService} that accepts every request.
+ *
+ * <p>Each operation exports a batch and waits for it with {@link TraceExporter#flush()}, so the
+ * result includes translation, encoding, framing and the gRPC round trip, but no network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+  private static final String PROJECT_ID = "my-gcp-project";
+
+  @Param({"1", "100", "1000"})
+  public int batchSize;
+
+  @Param({"8"})
+  public int attributeCount;
+
+  @Param({"64"})
+  public int stringLength;
+
+  private FakeTraceServer server;
+  private TraceExporter exporter;
+  private List<SpanData> spans;
+
+  @Setup
+  public void setup() throws IOException {
+    server =
+        FakeTraceServer.startInProcess(
+            FakeTraceService.newBuilder().setCaptureRequests(false).build());
+    exporter =
+        new TraceExporter(
+            new GrpcCloudTraceClient(
+                server.newChannel(), CallOptions.DEFAULT, Duration.ofSeconds(10)),
+            TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    spans = SpanFixtures.createSpans(batchSize, attributeCount, 2, 0, stringLength);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    exporter.shutdown();
+    server.close();
+  }
+
+  @Benchmark
+  public ResultCode export() {
+    exporter.export(spans);
+    return exporter.flush();
+  }
+}
@@ -0,0 +1,72 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.protobuf.ByteString;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serial and parallel translation of one export over a range of batch sizes.
+ *
+ * <p>The smallest batch size at which {@link #parallel()} beats {@link #serial()} is the
+ * crossover, a good starting point for {@code
+ * TraceConfiguration.Builder#setParallelTranslationThreshold}. It depends on the span shape and
+ * on how many cores the common pool gets, so run it on the target hardware, e.g. with {@code
+ * ./gradlew :benchmarks:jmh -PjmhInclude=ParallelTranslationBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelTranslationBenchmark {
+
+  private static final String PROJECT_ID = "my-gcp-project";
+
+  @Param({"64", "128", "256", "512", "1024", "2048", "4096"})
+  public int batchSize;
+
+  @Param({"8", "32"})
+  public int attributeCount;
+
+  @Param({"64"})
+  public int stringLength;
+
+  private List<SpanData> spans;
+  private ThreadLocal<SpanEncoder> encoders;
+  private ParallelTranslator serialTranslator;
+  private ParallelTranslator parallelTranslator;
+
+  @Setup
+  public void setup() {
+    spans = SpanFixtures.createSpans(batchSize, attributeCount, 2, 0, stringLength);
+    encoders = ThreadLocal.withInitial(() -> new SpanEncoder(PROJECT_ID, Collections.emptyMap()));
+    // With no parallelism every export is a single range on the calling thread.
+    serialTranslator = new ParallelTranslator(Runnable::run, 0, 1);
+    parallelTranslator = ParallelTranslator.create(null, 1);
+  }
+
+  @Benchmark
+  public List<ByteString> serial() {
+    return serialTranslator.encode(spans, encoders);
+  }
+
+  @Benchmark
+  public List<ByteString> parallel() {
+    return parallelTranslator.encode(spans, encoders);
+  }
+}
@@ -0,0 +1,146 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.TraceState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Builds spans of a given shape for the benchmarks. */
+final class SpanFixtures {
+
+  private static final long START_NANOS = TimeUnit.SECONDS.toNanos(1_600_000_000L);
+
+  private SpanFixtures() {}
+
+  /**
+   * Returns {@code count} spans with random IDs, each with {@code attributeCount} attributes,
+   * {@code eventCount} events with two attributes each and {@code linkCount} links with one
+   * attribute each. String attribute values are {@code stringLength} characters long; a quarter of
+   * the attributes are longs or booleans.
+   */
+  static List<SpanData> createSpans(
+      int count, int attributeCount, int eventCount, int linkCount, int stringLength) {
+    Random random = new Random(42);
+    String value = repeat('v', stringLength);
+    List<SpanData> spans = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      long start = START_NANOS + random.nextInt(1_000_000_000);
+      spans.add(
+          TestSpanData.newBuilder()
+              .setTraceId(new TraceId(random.nextLong(), random.nextLong()))
+              .setSpanId(new SpanId(random.nextLong()))
+              .setParentSpanId(new SpanId(random.nextLong()))
+              .setName("GET /api/v1/users/{id}")
+              .setKind(Kind.SERVER)
+              .setStartEpochNanos(start)
+              .setEndEpochNanos(start + random.nextInt(50_000_000))
+              .setAttributes(createAttributes(attributeCount, value))
+              .setEvents(createEvents(random, start, eventCount, value))
+              .setLinks(createLinks(random, linkCount, value))
+              .setTotalRecordedLinks(linkCount)
+              .setStatus(Status.OK)
+              .setHasRemoteParent(false)
+              .setHasEnded(true)
+              .build());
+    }
+    return spans;
+  }
+
+  static Attributes createAttributes(int count, String value) {
+    Attributes.Builder attributes = Attributes.newBuilder();
+    for (int i = 0; i < count; i++) {
+      switch (i % 4) {
+        case 1:
+          attributes.setAttribute("attribute.long." + i, (long) i);
+          break;
+        case 3:
+          attributes.setAttribute("attribute.boolean." + i, i % 8 == 3);
+          break;
+        default:
+          attributes.setAttribute("attribute.string." + i, value);
+      }
+    }
+    return attributes.build();
+  }
+
+  static List<SpanData.Event> createEvents(Random random, long start, int count, String value) {
+    List<SpanData.Event> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      events.add(
+          new FixtureEvent(
+              start + random.nextInt(1_000_000),
+              "event-" + i,
+              Attributes.newBuilder()
+                  .setAttribute("event.attempt", (long) i)
+                  .setAttribute("event.message", value)
+                  .build()));
+    }
+    return events;
+  }
+
+  static List<SpanData.Link> createLinks(Random random, int count, String value) {
+    List<SpanData.Link> links = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      SpanContext context =
+          SpanContext.create(
+              new TraceId(random.nextLong(), random.nextLong()),
+              new SpanId(random.nextLong()),
+              TraceFlags.builder().build(),
+              TraceState.builder().build());
+      links.add(
+          SpanData.Link.create(
+              context, Attributes.newBuilder().setAttribute("link.reason", value).build()));
+    }
+    return links;
+  }
+
+  private static String repeat(char c, int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private static final class FixtureEvent implements SpanData.Event {
+    private final long epochNanos;
+    private final String name;
+    private final Attributes attributes;
+
+    private FixtureEvent(long epochNanos, String name, Attributes attributes) {
+      this.epochNanos = epochNanos;
+      this.name = name;
+      this.attributes = attributes;
+    }
+
+    @Override
+    public long getEpochNanos() {
+      return epochNanos;
+    }
+
+    @Override
+    public int getTotalAttributeCount() {
+      return attributes.size();
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      return attributes;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.SpanName;
+import com.google.protobuf.CodedOutputStream;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building span resource names through {@link SpanName} with {@link SpanNameFormatter}.
+ *
+ * <p>Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpanNameBenchmark {
+
+  private static final String PROJECT_ID = "my-gcp-project";
+
+  private final TraceId traceId = new TraceId(0x0123456789abcdefL, 0x0fedcba987654321L);
+  private final SpanId spanId = new SpanId(0x1122334455667788L);
+  private SpanNameFormatter formatter;
+  private byte[] buffer;
+
+  @Setup
+  public void setup() {
+    formatter = new SpanNameFormatter(PROJECT_ID);
+    buffer = new byte[formatter.encodedSpanNameLength()];
+  }
+
+  /** The path {@code TraceTranslator.generateSpan} used before {@link SpanNameFormatter}. */
+  @Benchmark
+  public String spanNameTemplate() {
+    return SpanName.newBuilder()
+        .setProject(PROJECT_ID)
+        .setTrace(traceId.toLowerBase16())
+        .setSpan(spanId.toLowerBase16())
+        .build()
+        .toString();
+  }
+
+  @Benchmark
+  public String formatterString() {
+    return formatter.formatSpanName(traceId, spanId);
+  }
+
+  /** The path {@link SpanEncoder} takes: the name goes straight into the output buffer. */
+  @Benchmark
+  public byte[] formatterBytes() throws IOException {
+    CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+    formatter.writeSpanName(output, traceId, spanId);
+    return buffer;
+  }
+}
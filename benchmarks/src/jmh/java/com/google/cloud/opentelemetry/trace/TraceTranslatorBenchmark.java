@@ -0,0 +1,94 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.Span;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation of one span and of each of its parts, over a range of span shapes.
+ *
+ * <p>Run with {@code -prof gc}, which the Gradle build enables, to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceTranslatorBenchmark {
+
+  private static final String PROJECT_ID = "my-gcp-project";
+
+  @Param({"4", "32"})
+  public int attributeCount;
+
+  @Param({"0", "16"})
+  public int eventCount;
+
+  @Param({"0", "4"})
+  public int linkCount;
+
+  @Param({"16", "256"})
+  public int stringLength;
+
+  private SpanData span;
+  private Map<String, AttributeValue> fixedAttributes;
+  private SpanNameFormatter formatter;
+  private SpanEncoder encoder;
+
+  @Setup
+  public void setup() {
+    span =
+        SpanFixtures.createSpans(1, attributeCount, eventCount, linkCount, stringLength).get(0);
+    fixedAttributes = new LinkedHashMap<>();
+    fixedAttributes.put(
+        "g.co/r/k8s_container/cluster_name",
+        TraceTranslator.toStringAttributeValueProto("production"));
+    fixedAttributes.put(
+        "g.co/r/k8s_container/namespace_name",
+        TraceTranslator.toStringAttributeValueProto("default"));
+    formatter = new SpanNameFormatter(PROJECT_ID);
+    encoder = new SpanEncoder(PROJECT_ID, fixedAttributes);
+  }
+
+  @Benchmark
+  public Span generateSpan() {
+    return TraceTranslator.generateSpan(span, formatter, fixedAttributes, SpanLimits.DEFAULT, null);
+  }
+
+  /** The path {@link TraceExporter} takes, for comparison with {@link #generateSpan()}. */
+  @Benchmark
+  public int encode() {
+    return encoder.encode(span);
+  }
+
+  @Benchmark
+  public Span.Attributes toAttributesProto() {
+    return TraceTranslator.toAttributesProto(span.getAttributes(), fixedAttributes);
+  }
+
+  @Benchmark
+  public Span.TimeEvents toTimeEventsProto() {
+    return TraceTranslator.toTimeEventsProto(span.getEvents());
+  }
+
+  @Benchmark
+  public Span.Links toLinksProto() {
+    return TraceTranslator.toLinksProto(span.getLinks(), span.getTotalRecordedLinks());
+  }
+}
@@ -0,0 +1,103 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.grpc.Status;
+
+/**
+ * Limits the number of outstanding {@code BatchWriteSpans} calls, adapting the limit with
+ * additive increase and multiplicative decrease.
+ *
+ * <p>Every call that succeeds with a latency no worse than twice the smoothed latency, while the
+ * limit is actually being used, raises the limit by {@code 1 / limit}, so it grows by about one
+ * request per round trip. A call that times out or is rejected with {@code RESOURCE_EXHAUSTED}
+ * halves it. Calls that were already outstanding when the limit was cut carry an older epoch, so
+ * a burst of failures from the same overload cuts the limit only once.
+ */
+final class AimdLimiter {
+
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double LATENCY_TOLERANCE = 2.0;
+  private static final double LATENCY_SMOOTHING = 0.05;
+
+  private final int maxLimit;
+  private double limit;
+  private int inFlight;
+  private long epoch;
+  private double smoothedLatencyNanos;
+  private long lastLatencyNanos;
+
+  AimdLimiter(int initialLimit, int maxLimit) {
+    this.maxLimit = maxLimit;
+    this.limit = Math.min(initialLimit, maxLimit);
+  }
+
+  /** Takes a slot if fewer calls than the current limit are outstanding. */
+  synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /** Frees a slot taken by {@link #tryAcquire()}. */
+  synchronized void release() {
+    inFlight--;
+  }
+
+  /** Returns the current epoch, to be recorded when a call is sent. */
+  synchronized long epoch() {
+    return epoch;
+  }
+
+  /** Records the latency of a successful call that still holds its slot. */
+  synchronized void onSuccess(long latencyNanos) {
+    lastLatencyNanos = latencyNanos;
+    boolean stable =
+        smoothedLatencyNanos == 0 || latencyNanos <= LATENCY_TOLERANCE * smoothedLatencyNanos;
+    smoothedLatencyNanos =
+        smoothedLatencyNanos == 0
+            ? latencyNanos
+            : smoothedLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+    // An idle exporter learns nothing about how much concurrency the backend can take.
+    if (stable && inFlight * 2 >= (int) limit) {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  /**
+   * Cuts the limit if {@code t} signals that the backend is overloaded and the call was sent in
+   * the current {@code callEpoch}.
+   */
+  synchronized void onFailure(Throwable t, long callEpoch) {
+    if (!isOverload(t) || callEpoch != epoch) {
+      return;
+    }
+    limit = Math.max(1, limit * DECREASE_FACTOR);
+    epoch++;
+  }
+
+  /** Returns the number of calls that may currently be outstanding. */
+  synchronized int limit() {
+    return (int) limit;
+  }
+
+  /** Returns the number of calls that are currently outstanding. */
+  synchronized int inFlight() {
+    return inFlight;
+  }
+
+  /** Returns the exponentially weighted moving average of the latency, or 0 before any call. */
+  synchronized long smoothedLatencyNanos() {
+    return (long) smoothedLatencyNanos;
+  }
+
+  /** Returns the latency of the most recent successful call, or 0 before any call. */
+  synchronized long lastLatencyNanos() {
+    return lastLatencyNanos;
+  }
+
+  static boolean isOverload(Throwable t) {
+    Status.Code code = RetryPolicy.codeOf(t);
+    return code == Status.Code.DEADLINE_EXCEEDED || code == Status.Code.RESOURCE_EXHAUSTED;
+  }
+}
@@ -0,0 +1,71 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits encoded spans into chunks that each fit in a single {@code BatchWriteSpans} request.
+ */
+final class BatchSplitter {
+
+  private final int maxSpans;
+  private final int maxBytes;
+
+  BatchSplitter(int maxSpans, int maxBytes) {
+    this.maxSpans = maxSpans;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Splits {@code spans}, preserving their order, so that no chunk holds more than the configured
+   * number of spans or, once encoded into a request for {@code projectName}, more than the
+   * configured number of bytes. A span that is larger than the byte limit on its own is placed in
+   * a chunk by itself.
+   */
+  List<List<ByteString>> split(ProjectName projectName, List<ByteString> spans) {
+    int requestOverhead =
+        CodedOutputStream.computeStringSize(
+            BatchWriteSpansRequest.NAME_FIELD_NUMBER, projectName.toString());
+    if (spans.size() <= maxSpans && requestOverhead + encodedSize(spans) <= maxBytes) {
+      return Collections.singletonList(spans);
+    }
+
+    List<List<ByteString>> chunks = new ArrayList<>();
+    int chunkStart = 0;
+    long chunkBytes = requestOverhead;
+    for (int i = 0; i < spans.size(); i++) {
+      int spanBytes = encodedSize(spans.get(i));
+      boolean chunkIsEmpty = i == chunkStart;
+      if (!chunkIsEmpty && (i - chunkStart == maxSpans || chunkBytes + spanBytes > maxBytes)) {
+        chunks.add(spans.subList(chunkStart, i));
+        chunkStart = i;
+        chunkBytes = requestOverhead;
+      }
+      chunkBytes += spanBytes;
+    }
+    chunks.add(spans.subList(chunkStart, spans.size()));
+    return chunks;
+  }
+
+  private static long encodedSize(List<ByteString> spans) {
+    long size = 0;
+    for (ByteString span : spans) {
+      size += encodedSize(span);
+    }
+    return size;
+  }
+
+  // The size of the span as a repeated field of the request, including its tag and length prefix.
+  private static int encodedSize(ByteString span) {
+    int size = span.size();
+    return CodedOutputStream.computeTagSize(BatchWriteSpansRequest.SPANS_FIELD_NUMBER)
+        + CodedOutputStream.computeUInt32SizeNoTag(size)
+        + size;
+  }
+}
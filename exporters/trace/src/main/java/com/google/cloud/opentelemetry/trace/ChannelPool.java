@@ -0,0 +1,215 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Spreads calls over several channels, each with its own HTTP/2 connection, so that exports are
+ * not capped by the concurrent stream limit and flow control window of a single connection.
+ *
+ * <p>Each call goes to the healthy channel with the fewest outstanding calls, ties broken round
+ * robin. A channel that failed {@value #UNHEALTHY_AFTER_FAILURES} calls in a row with {@code
+ * UNAVAILABLE} is skipped, except for a single probe call once per probe interval; a success
+ * makes it healthy again. If no channel is healthy, all are used.
+ */
+final class ChannelPool extends ManagedChannel {
+
+  static final int UNHEALTHY_AFTER_FAILURES = 3;
+  static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofSeconds(1);
+
+  private final List<Entry> entries;
+  private final long probeIntervalNanos;
+  private final AtomicInteger next = new AtomicInteger();
+
+  ChannelPool(List<ManagedChannel> channels, Duration probeInterval) {
+    this.entries = new ArrayList<>(channels.size());
+    for (ManagedChannel channel : channels) {
+      entries.add(new Entry(channel));
+    }
+    this.probeIntervalNanos = probeInterval.toNanos();
+  }
+
+  /** Creates a pool of {@code size} channels, each created by {@code newChannel}. */
+  static ChannelPool create(Supplier<ManagedChannel> newChannel, int size) {
+    List<ManagedChannel> channels = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      channels.add(newChannel.get());
+    }
+    return new ChannelPool(channels, DEFAULT_PROBE_INTERVAL);
+  }
+
+  /** Returns the number of calls outstanding on the channel at {@code index}. */
+  int outstandingCalls(int index) {
+    return entries.get(index).outstanding.get();
+  }
+
+  /** Returns whether the channel at {@code index} is currently given new calls. */
+  boolean isHealthy(int index) {
+    return entries.get(index).isHealthy(System.nanoTime());
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    Entry entry = pick();
+    return new TrackedCall<>(entry.channel.newCall(method, callOptions), entry);
+  }
+
+  private Entry pick() {
+    long now = System.nanoTime();
+    int size = entries.size();
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    Entry best = null;
+    Entry bestUnhealthy = null;
+    for (int i = 0; i < size; i++) {
+      Entry entry = entries.get((start + i) % size);
+      boolean failing = entry.isFailing();
+      if (failing && entry.tryClaimProbe(now)) {
+        return entry;
+      }
+      if (!failing) {
+        if (best == null || entry.outstanding.get() < best.outstanding.get()) {
+          best = entry;
+        }
+      } else if (bestUnhealthy == null
+          || entry.outstanding.get() < bestUnhealthy.outstanding.get()) {
+        bestUnhealthy = entry;
+      }
+    }
+    return best != null ? best : bestUnhealthy;
+  }
+
+  @Override
+  public String authority() {
+    return entries.get(0).channel.authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    for (Entry entry : entries) {
+      entry.channel.shutdown();
+    }
+    return this;
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    for (Entry entry : entries) {
+      entry.channel.shutdownNow();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    for (Entry entry : entries) {
+      if (!entry.channel.isShutdown()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    for (Entry entry : entries) {
+      if (!entry.channel.isTerminated()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Entry entry : entries) {
+      long remaining = deadline - System.nanoTime();
+      if (!entry.channel.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private final class Entry {
+    private final ManagedChannel channel;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // When a failing channel may next be probed. Every failure and every probe pushes it back by
+    // the probe interval, and callers claim a probe by moving it, so only one gets through.
+    private final AtomicLong nextProbeNanos = new AtomicLong();
+
+    private Entry(ManagedChannel channel) {
+      this.channel = channel;
+    }
+
+    private boolean isFailing() {
+      return consecutiveFailures.get() >= UNHEALTHY_AFTER_FAILURES;
+    }
+
+    private boolean isHealthy(long now) {
+      return !isFailing() || now - nextProbeNanos.get() >= 0;
+    }
+
+    private boolean tryClaimProbe(long now) {
+      long due = nextProbeNanos.get();
+      return now - due >= 0 && nextProbeNanos.compareAndSet(due, now + probeIntervalNanos);
+    }
+
+    private void onClose(Status status) {
+      outstanding.decrementAndGet();
+      if (status.getCode() == Status.Code.UNAVAILABLE) {
+        nextProbeNanos.set(System.nanoTime() + probeIntervalNanos);
+        consecutiveFailures.incrementAndGet();
+      } else {
+        consecutiveFailures.set(0);
+      }
+    }
+  }
+
+  // Counts the call against its channel from a successful start until close.
+  private static final class TrackedCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+    private final Entry entry;
+
+    private TrackedCall(ClientCall<ReqT, RespT> delegate, Entry entry) {
+      super(delegate);
+      this.entry = entry;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      entry.outstanding.incrementAndGet();
+      try {
+        super.start(
+            new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                responseListener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                entry.onClose(status);
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      } catch (RuntimeException | Error e) {
+        entry.outstanding.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+}
@@ -1,10 +1,31 @@
 package com.google.cloud.opentelemetry.trace;
 
+import com.google.api.core.ApiFuture;
 import com.google.devtools.cloudtrace.v2.ProjectName;
 import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
 
 import java.util.List;
 
 public interface CloudTraceClient {
     void batchWriteSpans(ProjectName name, List<Span> spans);
+
+    /**
+     * Sends the spans without blocking the calling thread.
+     *
+     * @return a future that completes when the RPC finishes.
+     */
+    ApiFuture<Empty> batchWriteSpansAsync(ProjectName name, List<Span> spans);
+
+    /**
+     * Sends spans that are already serialized in the {@link Span} wire format, without blocking
+     * the calling thread.
+     *
+     * @return a future that completes when the RPC finishes.
+     */
+    ApiFuture<Empty> batchWriteEncodedSpansAsync(ProjectName name, List<ByteString> spans);
+
+    /** Releases the underlying client and channel. No calls may be made after this. */
+    void shutdown();
 }
@@ -1,19 +1,69 @@
 package com.google.cloud.opentelemetry.trace;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.grpc.GrpcCallContext;
+import com.google.api.gax.rpc.ApiCallContext;
 import com.google.cloud.trace.v2.TraceServiceClient;
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
 import com.google.devtools.cloudtrace.v2.ProjectName;
 import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.CallOptions;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 public class CloudTraceClientImpl implements CloudTraceClient {
     private final TraceServiceClient traceServiceClient;
+    @Nullable private final ApiCallContext callContext;
 
     public CloudTraceClientImpl(TraceServiceClient traceServiceClient) {
+        this(traceServiceClient, null);
+    }
+
+    /**
+     * Creates a client whose asynchronous calls compress their requests with the named message
+     * encoding, which the client's channel must support, or send them uncompressed if it is
+     * {@code null}.
+     */
+    public CloudTraceClientImpl(TraceServiceClient traceServiceClient, @Nullable String compression) {
         this.traceServiceClient = traceServiceClient;
+        this.callContext =
+                compression == null
+                        ? null
+                        : GrpcCallContext.createDefault()
+                                .withCallOptions(CallOptions.DEFAULT.withCompression(compression));
     }
 
     public final void batchWriteSpans(ProjectName name, List<Span> spans) {
         traceServiceClient.batchWriteSpans(name, spans);
     }
+
+    public final ApiFuture<Empty> batchWriteSpansAsync(ProjectName name, List<Span> spans) {
+        BatchWriteSpansRequest request =
+                BatchWriteSpansRequest.newBuilder()
+                        .setName(name.toString())
+                        .addAllSpans(spans)
+                        .build();
+        return traceServiceClient.batchWriteSpansCallable().futureCall(request, callContext);
+    }
+
+    // TraceServiceClient only accepts protobuf requests, so the spans are decoded here. Use
+    // GrpcCloudTraceClient to send them without re-encoding.
+    public final ApiFuture<Empty> batchWriteEncodedSpansAsync(ProjectName name, List<ByteString> spans) {
+        BatchWriteSpansRequest request;
+        try {
+            request = new EncodedBatchWriteSpansRequest(name, spans).toProto();
+        } catch (InvalidProtocolBufferException e) {
+            return ApiFutures.immediateFailedFuture(e);
+        }
+        return traceServiceClient.batchWriteSpansCallable().futureCall(request, callContext);
+    }
+
+    public final void shutdown() {
+        traceServiceClient.shutdown();
+    }
 }
@@ -0,0 +1,57 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.Span.Attributes;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Attribute map entries serialized once, so that they can be appended to every span's attribute
+ * map with a single copy.
+ *
+ * <p>Instances are immutable and can be shared across threads.
+ */
+final class EncodedAttributes {
+
+  static final EncodedAttributes AGENT_LABEL =
+      new EncodedAttributes(
+          Collections.singletonMap(
+              TraceTranslator.AGENT_LABEL_KEY, TraceTranslator.AGENT_LABEL_VALUE));
+
+  private final Map<String, AttributeValue> attributes;
+  private final byte[] entries;
+
+  private EncodedAttributes(Map<String, AttributeValue> attributes) {
+    this.attributes = attributes;
+    // An Attributes message holding only the map serializes to exactly its map entries.
+    this.entries = Attributes.newBuilder().putAllAttributeMap(attributes).build().toByteArray();
+  }
+
+  /**
+   * Returns the entries {@code TraceTranslator} adds to every span: the agent label followed by
+   * the fixed attributes, with a fixed attribute replacing the agent label if they share a key.
+   */
+  static EncodedAttributes forSpans(Map<String, AttributeValue> fixedAttributes) {
+    Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+    attributes.put(TraceTranslator.AGENT_LABEL_KEY, TraceTranslator.AGENT_LABEL_VALUE);
+    attributes.putAll(fixedAttributes);
+    return new EncodedAttributes(Collections.unmodifiableMap(attributes));
+  }
+
+  boolean containsKey(String key) {
+    return attributes.containsKey(key);
+  }
+
+  /** Returns the number of bytes {@link #writeTo} writes. */
+  int getSerializedSize() {
+    return entries.length;
+  }
+
+  void writeTo(CodedOutputStream output) throws IOException {
+    output.writeRawBytes(entries);
+  }
+}
@@ -0,0 +1,173 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.io.ByteStreams;
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Empty;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@code BatchWriteSpansRequest} whose spans are already serialized.
+ *
+ * <p>{@link #BATCH_WRITE_SPANS_METHOD} calls the regular {@code BatchWriteSpans} RPC, but its
+ * marshaller only frames the pre-encoded spans as the repeated {@code spans} field instead of
+ * re-encoding them. The request is streamed to gRPC as a rope over the original buffers.
+ */
+final class EncodedBatchWriteSpansRequest {
+
+  static final MethodDescriptor<EncodedBatchWriteSpansRequest, Empty> BATCH_WRITE_SPANS_METHOD =
+      MethodDescriptor.<EncodedBatchWriteSpansRequest, Empty>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName(TraceServiceGrpc.getBatchWriteSpansMethod().getFullMethodName())
+          .setRequestMarshaller(new RequestMarshaller())
+          .setResponseMarshaller(ProtoUtils.marshaller(Empty.getDefaultInstance()))
+          .build();
+
+  private final String name;
+  private final List<ByteString> spans;
+
+  EncodedBatchWriteSpansRequest(ProjectName name, List<ByteString> spans) {
+    this(name.toString(), spans);
+  }
+
+  private EncodedBatchWriteSpansRequest(String name, List<ByteString> spans) {
+    this.name = name;
+    this.spans = spans;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  List<ByteString> getSpans() {
+    return spans;
+  }
+
+  /**
+   * Returns the wire format of the request. Large span segments are referenced, not copied.
+   */
+  ByteString toByteString() {
+    ByteString request = fieldHeader(BatchWriteSpansRequest.NAME_FIELD_NUMBER, name);
+    for (ByteString span : spans) {
+      request =
+          request
+              .concat(fieldHeader(BatchWriteSpansRequest.SPANS_FIELD_NUMBER, span.size()))
+              .concat(span);
+    }
+    return request;
+  }
+
+  /** Decodes the request into its protobuf form, for transports that cannot send raw bytes. */
+  BatchWriteSpansRequest toProto() throws InvalidProtocolBufferException {
+    return BatchWriteSpansRequest.parseFrom(toByteString());
+  }
+
+  private static ByteString fieldHeader(int fieldNumber, String value) {
+    byte[] header = new byte[CodedOutputStream.computeStringSize(fieldNumber, value)];
+    CodedOutputStream output = CodedOutputStream.newInstance(header);
+    try {
+      output.writeString(fieldNumber, value);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return ByteString.copyFrom(header);
+  }
+
+  private static ByteString fieldHeader(int fieldNumber, int length) {
+    byte[] header =
+        new byte
+            [CodedOutputStream.computeTagSize(fieldNumber)
+                + CodedOutputStream.computeUInt32SizeNoTag(length)];
+    CodedOutputStream output = CodedOutputStream.newInstance(header);
+    try {
+      output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(length);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return ByteString.copyFrom(header);
+  }
+
+  private static final class RequestMarshaller
+      implements MethodDescriptor.Marshaller<EncodedBatchWriteSpansRequest> {
+
+    @Override
+    public InputStream stream(EncodedBatchWriteSpansRequest value) {
+      return new RequestStream(value.toByteString());
+    }
+
+    @Override
+    public EncodedBatchWriteSpansRequest parse(InputStream stream) {
+      try {
+        BatchWriteSpansRequest request = BatchWriteSpansRequest.parseFrom(stream);
+        List<ByteString> spans = new ArrayList<>(request.getSpansCount());
+        for (Span span : request.getSpansList()) {
+          spans.add(span.toByteString());
+        }
+        return new EncodedBatchWriteSpansRequest(
+            request.getName(), Collections.unmodifiableList(spans));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Invalid BatchWriteSpansRequest", e);
+      }
+    }
+  }
+
+  // Lets gRPC size the message up front and drain the rope segment by segment straight into its
+  // own buffers.
+  private static final class RequestStream extends InputStream implements Drainable, KnownLength {
+    private final ByteString request;
+    private InputStream delegate;
+
+    private RequestStream(ByteString request) {
+      this.request = request;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+      if (delegate != null) {
+        return (int) ByteStreams.copy(delegate, target);
+      }
+      delegate = ByteString.EMPTY.newInput();
+      request.writeTo(target);
+      return request.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+      return delegate().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return delegate().read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+      return delegate == null ? request.size() : delegate.available();
+    }
+
+    private InputStream delegate() {
+      if (delegate == null) {
+        delegate = request.newInput();
+      }
+      return delegate;
+    }
+  }
+}
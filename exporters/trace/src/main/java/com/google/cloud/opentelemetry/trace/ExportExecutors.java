@@ -0,0 +1,46 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executors that run export work which may block, such as retried sends, gRPC
+ * callbacks and credential refreshes.
+ *
+ * <p>This is the Java 8 version, which runs the work on a bounded pool of daemon platform
+ * threads. The multi-release jar replaces it on JDK 21 and later with the one under {@code
+ * src/main/java21}, which gives every task its own virtual thread.
+ */
+final class ExportExecutors {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Returns an executor whose threads are named after {@code threadName}, with at most {@code
+   * maxPlatformThreads} threads. Tasks beyond that wait in an unbounded queue, and idle threads
+   * exit after a minute.
+   */
+  static ExecutorService newExportExecutor(String threadName, int maxPlatformThreads) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            maxPlatformThreads,
+            maxPlatformThreads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat(threadName + "-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /** Returns whether {@link #newExportExecutor} runs tasks on virtual threads. */
+  static boolean usesVirtualThreads() {
+    return false;
+  }
+
+  private ExportExecutors() {}
+}
@@ -0,0 +1,130 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.grpc.Status;
+import io.opentelemetry.common.Labels;
+import io.opentelemetry.metrics.LongCounter;
+import io.opentelemetry.metrics.LongValueObserver;
+import io.opentelemetry.metrics.LongValueRecorder;
+import io.opentelemetry.metrics.Meter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The metrics {@link TraceExporter} reports about itself through the OpenTelemetry metrics API.
+ *
+ * <p>Only metric instruments are used, never a tracer, so observing the exporter cannot create
+ * spans that would have to be exported in turn.
+ */
+final class ExporterMetrics {
+
+  static final String INSTRUMENTATION_NAME = "com.google.cloud.opentelemetry.trace";
+  static final String EXPORTED_SPANS = "cloudtrace.exporter.exported_spans";
+  static final String FAILED_SPANS = "cloudtrace.exporter.failed_spans";
+  static final String DROPPED_SPANS = "cloudtrace.exporter.dropped_spans";
+  static final String SENT_BYTES = "cloudtrace.exporter.sent_bytes";
+  static final String BATCH_SIZE = "cloudtrace.exporter.batch_size";
+  static final String RPC_LATENCY = "cloudtrace.exporter.rpc_latency";
+  static final String TRANSLATION_TIME = "cloudtrace.exporter.translation_time";
+  static final String IN_FLIGHT_REQUESTS = "cloudtrace.exporter.in_flight_requests";
+  static final String IN_FLIGHT_LIMIT = "cloudtrace.exporter.in_flight_limit";
+  static final String PENDING_EXPORTS = "cloudtrace.exporter.pending_exports";
+  static final String BUFFERED_BYTES = "cloudtrace.exporter.buffered_bytes";
+
+  private static final String STATUS_LABEL = "status";
+
+  private final Meter meter;
+  private final LongCounter exportedSpans;
+  private final LongCounter failedSpans;
+  private final LongCounter droppedSpans;
+  private final LongCounter sentBytes;
+  private final LongValueRecorder batchSize;
+  private final LongValueRecorder rpcLatency;
+  private final LongValueRecorder translationTime;
+  // Labels are immutable, so one per status code is enough.
+  private final Map<Status.Code, Labels> statusLabels = new EnumMap<>(Status.Code.class);
+
+  ExporterMetrics(Meter meter) {
+    this.meter = meter;
+    this.exportedSpans =
+        meter
+            .longCounterBuilder(EXPORTED_SPANS)
+            .setDescription("Spans that Cloud Trace accepted.")
+            .setUnit("1")
+            .build();
+    this.failedSpans =
+        meter
+            .longCounterBuilder(FAILED_SPANS)
+            .setDescription("Spans whose export failed after all retries.")
+            .setUnit("1")
+            .build();
+    this.droppedSpans =
+        meter
+            .longCounterBuilder(DROPPED_SPANS)
+            .setDescription("Spans dropped because the exporter was over its limits.")
+            .setUnit("1")
+            .build();
+    this.sentBytes =
+        meter
+            .longCounterBuilder(SENT_BYTES)
+            .setDescription("Encoded span bytes sent, including retries.")
+            .setUnit("By")
+            .build();
+    this.batchSize =
+        meter
+            .longValueRecorderBuilder(BATCH_SIZE)
+            .setDescription("Spans per BatchWriteSpans request.")
+            .setUnit("1")
+            .build();
+    this.rpcLatency =
+        meter
+            .longValueRecorderBuilder(RPC_LATENCY)
+            .setDescription("Latency of BatchWriteSpans calls, by status code.")
+            .setUnit("ms")
+            .build();
+    this.translationTime =
+        meter
+            .longValueRecorderBuilder(TRANSLATION_TIME)
+            .setDescription("Time spent translating the spans of one export call.")
+            .setUnit("us")
+            .build();
+    for (Status.Code code : Status.Code.values()) {
+      statusLabels.put(code, Labels.of(STATUS_LABEL, code.name()));
+    }
+  }
+
+  /** Reports {@code value} as a gauge named {@code name} each time metrics are collected. */
+  void observe(String name, String description, String unit, LongSupplier value) {
+    LongValueObserver observer =
+        meter.longValueObserverBuilder(name).setDescription(description).setUnit(unit).build();
+    observer.setCallback(result -> result.observe(value.getAsLong(), Labels.empty()));
+  }
+
+  void recordTranslation(long nanos) {
+    translationTime.record(TimeUnit.NANOSECONDS.toMicros(nanos), Labels.empty());
+  }
+
+  /** Records one attempt of a request, including retries. */
+  void recordRequest(int spans, long bytes) {
+    batchSize.record(spans, Labels.empty());
+    sentBytes.add(bytes, Labels.empty());
+  }
+
+  void recordResponse(Status.Code code, long latencyNanos) {
+    rpcLatency.record(TimeUnit.NANOSECONDS.toMillis(latencyNanos), statusLabels.get(code));
+  }
+
+  void recordExported(int spans) {
+    exportedSpans.add(spans, Labels.empty());
+  }
+
+  void recordFailed(int spans) {
+    failedSpans.add(spans, Labels.empty());
+  }
+
+  void recordDropped(int spans) {
+    droppedSpans.add(spans, Labels.empty());
+  }
+}
@@ -0,0 +1,153 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ListenableFutureToApiFuture;
+import com.google.api.gax.core.GaxProperties;
+import com.google.api.gax.grpc.GaxGrpcProperties;
+import com.google.auth.Credentials;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.trace.v2.TraceServiceSettings;
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Compressor;
+import io.grpc.CompressorRegistry;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.auth.MoreCallCredentials;
+import io.grpc.stub.ClientCalls;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A {@link CloudTraceClient} that talks to Cloud Trace over a plain gRPC channel, so that
+ * pre-encoded spans can be sent as they are through {@link EncodedBatchWriteSpansRequest}.
+ */
+class GrpcCloudTraceClient implements CloudTraceClient {
+
+    static final String USER_AGENT = "opentelemetry-operations-java";
+    static final Metadata.Key<String> API_CLIENT_HEADER_KEY =
+            Metadata.Key.of("x-goog-api-client", Metadata.ASCII_STRING_MARSHALLER);
+    // The same tokens the generated gax clients send, so the backend can tell the versions apart.
+    static final String API_CLIENT_HEADER =
+            "gl-java/" + GaxProperties.getJavaVersion()
+                    + " gax/" + GaxProperties.getGaxVersion()
+                    + " grpc/" + GaxGrpcProperties.getGrpcVersion();
+
+    private final ManagedChannel channel;
+    private final CallOptions callOptions;
+    private final long deadlineMillis;
+
+    GrpcCloudTraceClient(ManagedChannel channel, CallOptions callOptions, Duration deadline) {
+        this.channel = channel;
+        this.callOptions = callOptions;
+        this.deadlineMillis = deadline.toMillis();
+    }
+
+    /**
+     * Creates a client for the Cloud Trace endpoint authenticated with {@code credentials}, which
+     * spreads its calls over {@code channelPoolSize} channels and compresses its requests with
+     * {@code compressor}, if not {@code null}. Call callbacks and credential refreshes, which may
+     * block, run on {@code executor}; the channels do not shut it down.
+     */
+    static GrpcCloudTraceClient create(
+            Credentials credentials,
+            Duration deadline,
+            int channelPoolSize,
+            @Nullable Compressor compressor,
+            Executor executor) {
+        if (credentials instanceof GoogleCredentials
+                && ((GoogleCredentials) credentials).createScopedRequired()) {
+            credentials =
+                    ((GoogleCredentials) credentials)
+                            .createScoped(TraceServiceSettings.getDefaultServiceScopes());
+        }
+        CallOptions callOptions =
+                CallOptions.DEFAULT.withCallCredentials(MoreCallCredentials.from(credentials));
+        CompressorRegistry compressorRegistry = CompressorRegistry.getDefaultInstance();
+        if (compressor != null) {
+            // A registry of its own, so a custom compressor does not leak into other channels.
+            compressorRegistry = CompressorRegistry.newEmptyInstance();
+            compressorRegistry.register(compressor);
+            callOptions = callOptions.withCompression(compressor.getMessageEncoding());
+        }
+        ManagedChannelBuilder<?> channelBuilder =
+                ManagedChannelBuilder.forTarget(TraceServiceSettings.getDefaultEndpoint())
+                        .compressorRegistry(compressorRegistry)
+                        .executor(executor)
+                        .userAgent(USER_AGENT)
+                        .intercept(new ApiClientHeaderInterceptor());
+        Supplier<ManagedChannel> newChannel = channelBuilder::build;
+        ManagedChannel channel =
+                channelPoolSize == 1
+                        ? newChannel.get()
+                        : ChannelPool.create(newChannel, channelPoolSize);
+        return new GrpcCloudTraceClient(channel, callOptions, deadline);
+    }
+
+    public final void batchWriteSpans(ProjectName name, List<Span> spans) {
+        ClientCalls.blockingUnaryCall(
+                channel, TraceServiceGrpc.getBatchWriteSpansMethod(), newCallOptions(), buildRequest(name, spans));
+    }
+
+    public final ApiFuture<Empty> batchWriteSpansAsync(ProjectName name, List<Span> spans) {
+        return new ListenableFutureToApiFuture<>(
+                ClientCalls.futureUnaryCall(
+                        channel.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), newCallOptions()),
+                        buildRequest(name, spans)));
+    }
+
+    public final ApiFuture<Empty> batchWriteEncodedSpansAsync(ProjectName name, List<ByteString> spans) {
+        return new ListenableFutureToApiFuture<>(
+                ClientCalls.futureUnaryCall(
+                        channel.newCall(EncodedBatchWriteSpansRequest.BATCH_WRITE_SPANS_METHOD, newCallOptions()),
+                        new EncodedBatchWriteSpansRequest(name, spans)));
+    }
+
+    public final void shutdown() {
+        channel.shutdown();
+    }
+
+    // Deadlines are absolute, so each call needs its own.
+    private CallOptions newCallOptions() {
+        return callOptions.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Adds the {@code x-goog-api-client} header to every call. */
+    static final class ApiClientHeaderInterceptor implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+                    next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    headers.put(API_CLIENT_HEADER_KEY, API_CLIENT_HEADER);
+                    super.start(responseListener, headers);
+                }
+            };
+        }
+    }
+
+    private static BatchWriteSpansRequest buildRequest(ProjectName name, List<Span> spans) {
+        return BatchWriteSpansRequest.newBuilder()
+                .setName(name.toString())
+                .addAllSpans(spans)
+                .build();
+    }
+}
@@ -1,34 +1,60 @@
 package com.google.cloud.opentelemetry.trace;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ListenableFutureToApiFuture;
 import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
 import com.google.devtools.cloudtrace.v2.ProjectName;
 import com.google.devtools.cloudtrace.v2.Span;
 import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
-import io.grpc.Channel;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.ClientCalls;
 
 import java.util.List;
 
 // A simplified version of TraceServiceClient, used ONLY for testing purposes.
 class MockCloudTraceClient implements CloudTraceClient{
 
+    private final ManagedChannel channel;
     private final TraceServiceGrpc.TraceServiceBlockingStub blockingStub;
+    private final TraceServiceGrpc.TraceServiceFutureStub futureStub;
 
     MockCloudTraceClient(String host, int port) {
         this(ManagedChannelBuilder.forAddress(host, port).usePlaintext());
     }
 
     private MockCloudTraceClient(ManagedChannelBuilder<?> channelBuilder) {
-        Channel channel = channelBuilder.build();
+        channel = channelBuilder.build();
         blockingStub = TraceServiceGrpc.newBlockingStub(channel);
+        futureStub = TraceServiceGrpc.newFutureStub(channel);
     }
 
     public final void batchWriteSpans(ProjectName name, List<Span> spans) {
-        BatchWriteSpansRequest request =
-                BatchWriteSpansRequest.newBuilder()
-                        .setName(name.toString())
-                        .addAllSpans(spans)
-                        .build();
-        blockingStub.batchWriteSpans(request);
+        blockingStub.batchWriteSpans(buildRequest(name, spans));
+    }
+
+    public final ApiFuture<Empty> batchWriteSpansAsync(ProjectName name, List<Span> spans) {
+        return new ListenableFutureToApiFuture<>(futureStub.batchWriteSpans(buildRequest(name, spans)));
+    }
+
+    public final ApiFuture<Empty> batchWriteEncodedSpansAsync(ProjectName name, List<ByteString> spans) {
+        return new ListenableFutureToApiFuture<>(
+                ClientCalls.futureUnaryCall(
+                        channel.newCall(EncodedBatchWriteSpansRequest.BATCH_WRITE_SPANS_METHOD, CallOptions.DEFAULT),
+                        new EncodedBatchWriteSpansRequest(name, spans)));
+    }
+
+    public final void shutdown() {
+        channel.shutdown();
+    }
+
+    private static BatchWriteSpansRequest buildRequest(ProjectName name, List<Span> spans) {
+        return BatchWriteSpansRequest.newBuilder()
+                .setName(name.toString())
+                .addAllSpans(spans)
+                .build();
     }
 }
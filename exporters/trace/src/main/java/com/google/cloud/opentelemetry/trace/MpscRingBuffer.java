@@ -0,0 +1,102 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer/single-consumer queue over a preallocated ring.
+ *
+ * <p>Every slot carries a sequence number that says whose turn it is: a producer may fill slot
+ * {@code i} for position {@code p} once its sequence equals {@code p}, and the consumer may take
+ * it once the sequence equals {@code p + 1}. Producers only contend on a single compare-and-set
+ * of the tail; the consumer never contends with anyone. {@link #offer} may be called from any
+ * thread; {@link #poll} and {@link #drainTo} only from one consumer thread at a time.
+ */
+final class MpscRingBuffer<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  /** Creates a buffer that holds at least {@code minimumCapacity} elements. */
+  MpscRingBuffer(int minimumCapacity) {
+    Preconditions.checkArgument(minimumCapacity > 0, "Capacity must be positive.");
+    Preconditions.checkArgument(minimumCapacity <= 1 << 30, "Capacity is too large.");
+    this.capacity = minimumCapacity == 1 ? 1 : Integer.highestOneBit(minimumCapacity - 1) << 1;
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /** Returns the number of elements in the buffer; it may be stale by the time it returns. */
+  int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  /** Adds {@code element} to the buffer, or returns {@code false} if the buffer is full. */
+  boolean offer(E element) {
+    Preconditions.checkNotNull(element, "element");
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // The slot still holds the element from one lap ago.
+        return false;
+      } else {
+        // Another producer claimed this position first.
+        position = tail.get();
+      }
+    }
+  }
+
+  /** Removes and returns the oldest element, or returns {@code null} if none is published yet. */
+  E poll() {
+    long position = head.get();
+    int index = (int) position & mask;
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    E element = elements.get(index);
+    elements.lazySet(index, null);
+    sequences.lazySet(index, position + capacity);
+    head.lazySet(position + 1);
+    return element;
+  }
+
+  /** Moves up to {@code maxElements} elements into {@code target} and returns how many it moved. */
+  int drainTo(Collection<? super E> target, int maxElements) {
+    int drained = 0;
+    while (drained < maxElements) {
+      E element = poll();
+      if (element == null) {
+        break;
+      }
+      target.add(element);
+      drained++;
+    }
+    return drained;
+  }
+}
@@ -0,0 +1,158 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.protobuf.ByteString;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Encodes large exports on several threads.
+ *
+ * <p>The spans are cut into contiguous ranges and every range is written into its own slots of a
+ * shared array, so the output keeps the input order without any merging. Pool threads and the
+ * calling thread claim ranges until none is left, so the calling thread works instead of idling
+ * and never waits for a range that no thread has started. Each thread uses its own encoder.
+ */
+final class ParallelTranslator {
+
+  // Below this, handing a range to another thread costs more than encoding it.
+  static final int MIN_SPANS_PER_RANGE = 64;
+
+  private final Executor executor;
+  private final int parallelism;
+  private final int threshold;
+
+  /**
+   * Creates a translator that splits exports of at least {@code threshold} spans across {@code
+   * executor}, which runs up to {@code parallelism} ranges at a time, and the calling thread.
+   */
+  ParallelTranslator(Executor executor, int parallelism, int threshold) {
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Creates a translator for {@code executor}, or for {@link ForkJoinPool#commonPool()} if it is
+   * {@code null}.
+   */
+  static ParallelTranslator create(@Nullable Executor executor, int threshold) {
+    Executor pool = executor == null ? ForkJoinPool.commonPool() : executor;
+    int parallelism =
+        pool instanceof ForkJoinPool
+            ? ((ForkJoinPool) pool).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+    return new ParallelTranslator(pool, parallelism, threshold);
+  }
+
+  /** Returns whether an export of {@code spanCount} spans is large enough to be split. */
+  boolean appliesTo(int spanCount) {
+    return spanCount >= threshold;
+  }
+
+  /**
+   * Encodes {@code spans}, which should support fast random access, with the encoder each thread
+   * gets from {@code encoders}, and returns the results in the same order.
+   */
+  List<ByteString> encode(List<SpanData> spans, ThreadLocal<SpanEncoder> encoders) {
+    int spanCount = spans.size();
+    // The calling thread works alongside the pool.
+    int rangeCount =
+        Math.min(parallelism + 1, (spanCount + MIN_SPANS_PER_RANGE - 1) / MIN_SPANS_PER_RANGE);
+    ByteString[] encoded = new ByteString[spanCount];
+    if (rangeCount <= 1) {
+      encodeRange(spans, 0, spanCount, encoders, encoded);
+      return Arrays.asList(encoded);
+    }
+
+    Ranges ranges = new Ranges(spans, rangeCount, encoders, encoded);
+    for (int i = 1; i < rangeCount; i++) {
+      try {
+        executor.execute(ranges);
+      } catch (RejectedExecutionException e) {
+        // The executor is saturated or shutting down; this thread picks up the ranges instead.
+        break;
+      }
+    }
+    ranges.run();
+    // Unclaimed ranges were encoded by this thread, so the wait is only for ranges in progress,
+    // which cannot deadlock even if this thread belongs to the executor.
+    Uninterruptibles.awaitUninterruptibly(ranges.done);
+    Throwable t = ranges.failure.get();
+    if (t != null) {
+      Throwables.throwIfUnchecked(t);
+      throw new IllegalStateException(t);
+    }
+    // The latch makes every range's writes to the array visible here.
+    return Arrays.asList(encoded);
+  }
+
+  /** Claims ranges, one at a time, until none is left. */
+  private static final class Ranges implements Runnable {
+    private final List<SpanData> spans;
+    private final int rangeCount;
+    private final ThreadLocal<SpanEncoder> encoders;
+    private final ByteString[] encoded;
+    private final AtomicInteger nextRange = new AtomicInteger();
+    private final CountDownLatch done;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private Ranges(
+        List<SpanData> spans,
+        int rangeCount,
+        ThreadLocal<SpanEncoder> encoders,
+        ByteString[] encoded) {
+      this.spans = spans;
+      this.rangeCount = rangeCount;
+      this.encoders = encoders;
+      this.encoded = encoded;
+      this.done = new CountDownLatch(rangeCount);
+    }
+
+    @Override
+    public void run() {
+      int range;
+      while ((range = nextRange.getAndIncrement()) < rangeCount) {
+        try {
+          encodeRange(
+              spans,
+              rangeStart(range, rangeCount, spans.size()),
+              rangeStart(range + 1, rangeCount, spans.size()),
+              encoders,
+              encoded);
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          done.countDown();
+        }
+      }
+    }
+  }
+
+  // Ranges differ in length by at most one span.
+  private static int rangeStart(int range, int rangeCount, int spanCount) {
+    return (int) ((long) spanCount * range / rangeCount);
+  }
+
+  private static void encodeRange(
+      List<SpanData> spans,
+      int start,
+      int end,
+      ThreadLocal<SpanEncoder> encoders,
+      ByteString[] encoded) {
+    SpanEncoder encoder = encoders.get();
+    for (int i = start; i < end; i++) {
+      encoded[i] = encoder.encodeToByteString(spans.get(i));
+    }
+  }
+}
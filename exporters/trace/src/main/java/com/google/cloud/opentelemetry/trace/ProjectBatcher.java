@@ -0,0 +1,69 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.protobuf.ByteString;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Encodes the spans exported to one project and splits them into {@code BatchWriteSpans}
+ * requests. The project ID is part of every span's resource name, so each project has its own
+ * encoders, one per thread.
+ */
+final class ProjectBatcher {
+
+  private final ProjectName projectName;
+  private final ThreadLocal<SpanEncoder> spanEncoder;
+  private final BatchSplitter batchSplitter;
+  @Nullable private final ParallelTranslator parallelTranslator;
+
+  /**
+   * Creates a batcher whose encoders come from {@code encoderFactory}. Exports that {@code
+   * parallelTranslator} applies to are encoded on several threads.
+   */
+  ProjectBatcher(
+      String projectId,
+      Function<String, SpanEncoder> encoderFactory,
+      BatchSplitter batchSplitter,
+      @Nullable ParallelTranslator parallelTranslator) {
+    this.projectName = ProjectName.of(projectId);
+    this.spanEncoder = ThreadLocal.withInitial(() -> encoderFactory.apply(projectId));
+    this.batchSplitter = batchSplitter;
+    this.parallelTranslator = parallelTranslator;
+  }
+
+  ProjectName getProjectName() {
+    return projectName;
+  }
+
+  /** Encodes {@code spans}, preserving their order. */
+  List<ByteString> encode(Collection<SpanData> spans) {
+    if (parallelTranslator != null && parallelTranslator.appliesTo(spans.size())) {
+      return parallelTranslator.encode(asRandomAccessList(spans), spanEncoder);
+    }
+    SpanEncoder encoder = spanEncoder.get();
+    List<ByteString> encoded = new ArrayList<>(spans.size());
+    for (SpanData spanData : spans) {
+      encoded.add(encoder.encodeToByteString(spanData));
+    }
+    return encoded;
+  }
+
+  private static List<SpanData> asRandomAccessList(Collection<SpanData> spans) {
+    if (spans instanceof List && spans instanceof RandomAccess) {
+      return (List<SpanData>) spans;
+    }
+    return new ArrayList<>(spans);
+  }
+
+  /** Splits encoded spans into chunks that each fit in a request for this project. */
+  List<List<ByteString>> split(List<ByteString> spans) {
+    return batchSplitter.split(projectName, spans);
+  }
+}
@@ -0,0 +1,141 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.opentelemetry.common.AttributeValue;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the {@link ProjectBatcher} for each span from a span or resource attribute.
+ *
+ * <p>Batchers for routed projects are created on first use and released once they have gone
+ * unused for the idle timeout, or once more projects than the maximum hold one, in which case the
+ * least recently used is released first. Expired batchers are removed lazily, during later
+ * lookups. The default project's batcher is never released.
+ *
+ * <p>Spans whose attribute does not hold a well-formed project ID go to the default project, so a
+ * malformed value cannot make the exporter send batches to a project name the API rejects.
+ */
+final class ProjectRouter {
+
+  private static final Logger logger = Logger.getLogger(ProjectRouter.class.getName());
+
+  // A project ID is 6 to 30 lowercase letters, digits or hyphens, starting with a letter and not
+  // ending with a hyphen, optionally preceded by a domain and a colon for domain-scoped projects.
+  private static final Pattern PROJECT_ID =
+      Pattern.compile("(?:[a-z][a-z0-9.-]*[a-z0-9]:)?[a-z][a-z0-9-]{4,28}[a-z0-9]");
+
+  @Nullable private final String projectIdAttributeKey;
+  private final ProjectBatcher defaultBatcher;
+  private final String defaultProjectId;
+  private final LoadingCache<String, ProjectBatcher> batchers;
+
+  /**
+   * Creates a router that sends spans without a project ID attribute to {@code defaultProjectId},
+   * or every span there if {@code projectIdAttributeKey} is {@code null}. At most {@code
+   * maxRoutedProjects} other projects hold a batcher at once.
+   */
+  ProjectRouter(
+      String defaultProjectId,
+      @Nullable String projectIdAttributeKey,
+      Duration idleTimeout,
+      int maxRoutedProjects,
+      Function<String, ProjectBatcher> batcherFactory) {
+    this.projectIdAttributeKey = projectIdAttributeKey;
+    this.defaultProjectId = defaultProjectId;
+    this.defaultBatcher = batcherFactory.apply(defaultProjectId);
+    this.batchers =
+        CacheBuilder.newBuilder()
+            .expireAfterAccess(idleTimeout.toNanos(), TimeUnit.NANOSECONDS)
+            .maximumSize(maxRoutedProjects)
+            .removalListener(
+                (RemovalNotification<String, ProjectBatcher> notification) -> {
+                  if (notification.getCause() == RemovalCause.SIZE) {
+                    logger.log(
+                        Level.WARNING,
+                        "Released the batcher of project {0} to stay within {1} routed projects.",
+                        new Object[] {notification.getKey(), maxRoutedProjects});
+                  }
+                })
+            .build(CacheLoader.from(batcherFactory::apply));
+  }
+
+  ProjectBatcher getDefaultBatcher() {
+    return defaultBatcher;
+  }
+
+  /**
+   * Groups {@code spans} by the batcher of their project. Batchers appear in the order their first
+   * span does, and each group keeps the order of its spans.
+   */
+  Map<ProjectBatcher, Collection<SpanData>> route(Collection<SpanData> spans) {
+    if (projectIdAttributeKey == null) {
+      return Collections.singletonMap(defaultBatcher, spans);
+    }
+    Map<ProjectBatcher, Collection<SpanData>> routes = new LinkedHashMap<>();
+    for (SpanData spanData : spans) {
+      ProjectBatcher batcher = batcherFor(projectIdOf(spanData, projectIdAttributeKey));
+      Collection<SpanData> route = routes.get(batcher);
+      if (route == null) {
+        route = new ArrayList<>();
+        routes.put(batcher, route);
+      }
+      route.add(spanData);
+    }
+    return routes;
+  }
+
+  /** Returns the number of projects with a batcher, including the default project. */
+  long activeProjectCount() {
+    batchers.cleanUp();
+    return batchers.size() + 1;
+  }
+
+  private ProjectBatcher batcherFor(@Nullable String projectId) {
+    if (projectId == null || projectId.equals(defaultProjectId)) {
+      return defaultBatcher;
+    }
+    if (!PROJECT_ID.matcher(projectId).matches()) {
+      logger.log(
+          Level.FINE,
+          "Routing spans for malformed project ID {0} to the default project.",
+          projectId);
+      return defaultBatcher;
+    }
+    return batchers.getUnchecked(projectId);
+  }
+
+  @Nullable
+  private static String projectIdOf(SpanData spanData, String key) {
+    String projectId = stringValue(spanData.getAttributes().get(key));
+    if (projectId != null) {
+      return projectId;
+    }
+    return stringValue(spanData.getResource().getAttributes().get(key));
+  }
+
+  @Nullable
+  private static String stringValue(@Nullable AttributeValue value) {
+    if (value == null || value.getType() != AttributeValue.Type.STRING) {
+      return null;
+    }
+    String string = value.getStringValue();
+    return string == null || string.isEmpty() ? null : string;
+  }
+}
@@ -0,0 +1,64 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import io.opentelemetry.sdk.resources.Resource;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Memoizes, per {@link Resource}, the attributes added to each of its spans: the resource's
+ * {@code g.co/r/} labels and the exporter's fixed attributes, as a map and pre-encoded.
+ *
+ * <p>Resources are keyed by identity and held weakly, so a resource that is no longer used is
+ * dropped along with its labels. SDKs share one resource instance across all of their spans, so
+ * each one is translated once. Instances are thread-safe.
+ */
+final class ResourceLabelsCache {
+
+  private final Map<String, AttributeValue> fixedAttributes;
+  private final Labels withoutResource;
+  private final Cache<Resource, Labels> labels = CacheBuilder.newBuilder().weakKeys().build();
+
+  ResourceLabelsCache(Map<String, AttributeValue> fixedAttributes) {
+    this.fixedAttributes = fixedAttributes;
+    this.withoutResource = new Labels(fixedAttributes);
+  }
+
+  /** Returns the attributes for the spans of {@code resource}. */
+  Labels get(@Nullable Resource resource) {
+    if (resource == null || resource.getAttributes().size() == 0) {
+      return withoutResource;
+    }
+    Labels cached = labels.getIfPresent(resource);
+    if (cached == null) {
+      // Threads that miss at the same time translate the same resource twice, which is harmless.
+      cached = new Labels(TraceTranslator.getConstAttributes(resource, fixedAttributes));
+      labels.put(resource, cached);
+    }
+    return cached;
+  }
+
+  /** The attributes added to the spans of one resource. */
+  static final class Labels {
+    private final Map<String, AttributeValue> constAttributes;
+    private final EncodedAttributes spanTrailingAttributes;
+
+    private Labels(Map<String, AttributeValue> constAttributes) {
+      this.constAttributes = constAttributes;
+      this.spanTrailingAttributes = EncodedAttributes.forSpans(constAttributes);
+    }
+
+    /** Returns the labels followed by the fixed attributes, for {@code TraceTranslator}. */
+    Map<String, AttributeValue> getConstAttributes() {
+      return constAttributes;
+    }
+
+    /** Returns the agent label and {@link #getConstAttributes()}, pre-encoded. */
+    EncodedAttributes getSpanTrailingAttributes() {
+      return spanTrailingAttributes;
+    }
+  }
+}
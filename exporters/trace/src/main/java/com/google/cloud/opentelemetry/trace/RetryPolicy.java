@@ -0,0 +1,94 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import io.grpc.Status;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether and when a failed {@code BatchWriteSpans} call is retried.
+ *
+ * <p>Only {@code UNAVAILABLE} and {@code DEADLINE_EXCEEDED} are retried, after a capped
+ * exponential backoff with full jitter. Retries are also limited by a token bucket shared by the
+ * whole exporter: every request adds {@code budgetRatio} of a token, every retry takes a whole
+ * one, so retries can never exceed that fraction of the traffic, plus a small initial burst.
+ * During an outage the bucket runs dry and the exporter stops adding load.
+ */
+final class RetryPolicy {
+
+  static final int MAX_TOKENS = 10;
+
+  // Tokens are kept in thousandths so fractional ratios need no floating point updates.
+  private static final long TOKEN = 1000;
+
+  private final int maxRetries;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final long tokensPerRequest;
+  private final AtomicLong tokens = new AtomicLong(MAX_TOKENS * TOKEN);
+
+  RetryPolicy(int maxRetries, Duration initialBackoff, Duration maxBackoff, double budgetRatio) {
+    this.maxRetries = maxRetries;
+    this.initialBackoffNanos = initialBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+    this.tokensPerRequest = Math.round(budgetRatio * TOKEN);
+  }
+
+  /** Credits the retry budget for a new request. */
+  void recordRequest() {
+    while (true) {
+      long current = tokens.get();
+      long updated = Math.min(MAX_TOKENS * TOKEN, current + tokensPerRequest);
+      if (updated == current || tokens.compareAndSet(current, updated)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns whether a call that failed with {@code t} after {@code attempts} attempts should be
+   * retried, taking a token from the retry budget if so.
+   */
+  boolean shouldRetry(Throwable t, int attempts) {
+    return attempts <= maxRetries && isRetryable(t) && tryTakeToken();
+  }
+
+  /** Returns how long to wait before the attempt that follows {@code attempts} failed ones. */
+  long backoffNanos(int attempts) {
+    long ceiling = initialBackoffNanos;
+    for (int i = 1; i < attempts && ceiling < maxBackoffNanos; i++) {
+      ceiling *= 2;
+    }
+    return ThreadLocalRandom.current().nextLong(Math.min(ceiling, maxBackoffNanos) + 1);
+  }
+
+  static boolean isRetryable(Throwable t) {
+    Status.Code code = codeOf(t);
+    return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED;
+  }
+
+  // CloudTraceClientImpl fails with gax exceptions, the gRPC clients with gRPC status exceptions.
+  // The gax codes are named after the gRPC ones.
+  static Status.Code codeOf(Throwable t) {
+    if (t instanceof ApiException) {
+      StatusCode.Code code = ((ApiException) t).getStatusCode().getCode();
+      return Status.Code.valueOf(code.name());
+    }
+    return Status.fromThrowable(t).getCode();
+  }
+
+  private boolean tryTakeToken() {
+    while (true) {
+      long current = tokens.get();
+      if (current < TOKEN) {
+        return false;
+      }
+      if (tokens.compareAndSet(current, current - TOKEN)) {
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Preconditions;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SpanProcessor} that hands ended spans to a {@link SpanExporter}, typically a {@link
+ * TraceExporter}, from a single background thread.
+ *
+ * <p>Application threads only append the span to a preallocated lock-free ring buffer, so they
+ * neither block on the export RPC nor contend on a lock with each other. The worker thread
+ * exports as soon as a full batch is buffered, and otherwise whatever has accumulated once the
+ * schedule delay elapses. Spans that arrive while the buffer is full are dropped and counted.
+ */
+public final class RingBufferSpanProcessor implements SpanProcessor {
+
+  private static final Logger logger = Logger.getLogger(RingBufferSpanProcessor.class.getName());
+  private static final String WORKER_THREAD_NAME = "CloudTraceSpanProcessor_Worker";
+
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+  static final int DEFAULT_MAX_EXPORT_BATCH_SIZE = 512;
+  static final long DEFAULT_SCHEDULE_DELAY_MILLIS = 5000;
+  static final long DEFAULT_FORCE_FLUSH_TIMEOUT_MILLIS = 30000;
+
+  private final SpanExporter spanExporter;
+  private final boolean exportOnlySampled;
+  private final int maxExportBatchSize;
+  private final long scheduleDelayNanos;
+  private final long forceFlushTimeoutMillis;
+  private final MpscRingBuffer<ReadableSpan> buffer;
+  private final Queue<CountDownLatch> flushRequests = new ConcurrentLinkedQueue<>();
+  private final AtomicLong droppedSpans = new AtomicLong();
+  private final AtomicBoolean isShutdown = new AtomicBoolean();
+  private final Thread worker;
+  private volatile boolean workerWaiting;
+
+  private RingBufferSpanProcessor(
+      SpanExporter spanExporter,
+      boolean exportOnlySampled,
+      int bufferSize,
+      int maxExportBatchSize,
+      long scheduleDelayMillis,
+      long forceFlushTimeoutMillis) {
+    this.spanExporter = spanExporter;
+    this.exportOnlySampled = exportOnlySampled;
+    this.maxExportBatchSize = maxExportBatchSize;
+    this.scheduleDelayNanos = TimeUnit.MILLISECONDS.toNanos(scheduleDelayMillis);
+    this.forceFlushTimeoutMillis = forceFlushTimeoutMillis;
+    this.buffer = new MpscRingBuffer<>(bufferSize);
+    this.worker = new Thread(this::run, WORKER_THREAD_NAME);
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Returns a new {@link Builder} for a processor that exports to {@code spanExporter}.
+   *
+   * @param spanExporter the exporter that receives the batches.
+   * @return a {@code Builder}.
+   */
+  public static Builder newBuilder(SpanExporter spanExporter) {
+    return new Builder(Preconditions.checkNotNull(spanExporter, "spanExporter"));
+  }
+
+  @Override
+  public void onStart(ReadableSpan span) {}
+
+  @Override
+  public boolean isStartRequired() {
+    return false;
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    if (exportOnlySampled && !span.getSpanContext().getTraceFlags().isSampled()) {
+      return;
+    }
+    if (isShutdown.get() || !buffer.offer(span)) {
+      droppedSpans.incrementAndGet();
+      return;
+    }
+    if (workerWaiting && buffer.size() >= maxExportBatchSize) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return true;
+  }
+
+  /** Exports the remaining spans, shuts the exporter down and stops the worker thread. */
+  @Override
+  public void shutdown() {
+    if (!isShutdown.compareAndSet(false, true)) {
+      return;
+    }
+    LockSupport.unpark(worker);
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Exports every span buffered so far, flushes the exporter and waits up to the force flush
+   * timeout for both to finish.
+   */
+  @Override
+  public void forceFlush() {
+    if (isShutdown.get()) {
+      return;
+    }
+    CountDownLatch flushed = new CountDownLatch(1);
+    flushRequests.add(flushed);
+    // The worker may have drained its last flush requests and exited after the check above, in
+    // which case nobody else would release this one.
+    if (isShutdown.get() || !worker.isAlive()) {
+      flushed.countDown();
+      return;
+    }
+    LockSupport.unpark(worker);
+    try {
+      if (!flushed.await(forceFlushTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        logger.log(Level.WARNING, "Timed out waiting for the flush to finish.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the number of spans dropped because the buffer was full or the processor had been
+   * shut down.
+   *
+   * @return the number of dropped spans.
+   */
+  public long getDroppedSpanCount() {
+    return droppedSpans.get();
+  }
+
+  private void run() {
+    List<ReadableSpan> drained = new ArrayList<>(maxExportBatchSize);
+    long nextExportNanos = System.nanoTime() + scheduleDelayNanos;
+    while (true) {
+      // Read before draining, so that every span offered before shutdown() is exported.
+      boolean stopping = isShutdown.get();
+      CountDownLatch flushRequest = flushRequests.poll();
+      if (stopping || flushRequest != null || System.nanoTime() - nextExportNanos >= 0) {
+        while (exportBatch(drained) > 0) {}
+        nextExportNanos = System.nanoTime() + scheduleDelayNanos;
+      } else {
+        while (buffer.size() >= maxExportBatchSize && exportBatch(drained) > 0) {}
+      }
+      if (flushRequest != null) {
+        flushExporter();
+        flushRequest.countDown();
+        continue;
+      }
+      if (stopping) {
+        break;
+      }
+      awaitWork(nextExportNanos);
+    }
+    shutdownExporter();
+    for (CountDownLatch flushRequest; (flushRequest = flushRequests.poll()) != null; ) {
+      flushRequest.countDown();
+    }
+  }
+
+  // Producers check workerWaiting after publishing a span, and the worker re-checks the buffer
+  // after setting it, so a full batch never goes unnoticed until the next scheduled export.
+  private void awaitWork(long nextExportNanos) {
+    workerWaiting = true;
+    if (buffer.size() < maxExportBatchSize && flushRequests.isEmpty() && !isShutdown.get()) {
+      LockSupport.parkNanos(this, nextExportNanos - System.nanoTime());
+    }
+    workerWaiting = false;
+  }
+
+  private int exportBatch(List<ReadableSpan> drained) {
+    drained.clear();
+    int count = buffer.drainTo(drained, maxExportBatchSize);
+    if (count == 0) {
+      return 0;
+    }
+    // Exporters may hold on to the batch, so it is not reused.
+    List<SpanData> batch = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      batch.add(drained.get(i).toSpanData());
+    }
+    drained.clear();
+    try {
+      spanExporter.export(batch);
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Exception thrown by the export.", e);
+    }
+    return count;
+  }
+
+  private void flushExporter() {
+    try {
+      spanExporter.flush();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Exception thrown by the flush.", e);
+    }
+  }
+
+  private void shutdownExporter() {
+    try {
+      spanExporter.shutdown();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Exception thrown by the shutdown.", e);
+    }
+  }
+
+  /** Builder for {@link RingBufferSpanProcessor}. */
+  public static final class Builder {
+
+    private final SpanExporter spanExporter;
+    private boolean exportOnlySampled = true;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int maxExportBatchSize = DEFAULT_MAX_EXPORT_BATCH_SIZE;
+    private long scheduleDelayMillis = DEFAULT_SCHEDULE_DELAY_MILLIS;
+    private long forceFlushTimeoutMillis = DEFAULT_FORCE_FLUSH_TIMEOUT_MILLIS;
+
+    private Builder(SpanExporter spanExporter) {
+      this.spanExporter = spanExporter;
+    }
+
+    /**
+     * Sets whether only sampled spans are exported.
+     *
+     * <p>Default value is {@code true}.
+     *
+     * @param exportOnlySampled whether to export only sampled spans.
+     * @return this.
+     */
+    public Builder setExportOnlySampled(boolean exportOnlySampled) {
+      this.exportOnlySampled = exportOnlySampled;
+      return this;
+    }
+
+    /**
+     * Sets the number of spans the ring buffer holds, rounded up to a power of two. Spans that
+     * arrive while it is full are dropped.
+     *
+     * <p>Default value is 8192.
+     *
+     * @param bufferSize the minimum buffer capacity.
+     * @return this.
+     */
+    public Builder setBufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of spans passed to a single {@link SpanExporter#export} call. A
+     * batch is exported as soon as this many spans are buffered.
+     *
+     * <p>Default value is 512.
+     *
+     * @param maxExportBatchSize the maximum number of spans per export.
+     * @return this.
+     */
+    public Builder setMaxExportBatchSize(int maxExportBatchSize) {
+      this.maxExportBatchSize = maxExportBatchSize;
+      return this;
+    }
+
+    /**
+     * Sets the longest time a span waits in the buffer when fewer than a full batch arrive.
+     *
+     * <p>Default value is 5000 milliseconds.
+     *
+     * @param scheduleDelayMillis the schedule delay in milliseconds.
+     * @return this.
+     */
+    public Builder setScheduleDelayMillis(long scheduleDelayMillis) {
+      this.scheduleDelayMillis = scheduleDelayMillis;
+      return this;
+    }
+
+    /**
+     * Sets the longest time {@link RingBufferSpanProcessor#forceFlush()} waits for the buffered
+     * spans to be exported and the exporter to be flushed.
+     *
+     * <p>Default value is 30000 milliseconds.
+     *
+     * @param forceFlushTimeoutMillis the force flush timeout in milliseconds.
+     * @return this.
+     */
+    public Builder setForceFlushTimeoutMillis(long forceFlushTimeoutMillis) {
+      this.forceFlushTimeoutMillis = forceFlushTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Builds a {@link RingBufferSpanProcessor} and starts its worker thread.
+     *
+     * @return a {@code RingBufferSpanProcessor}.
+     */
+    public RingBufferSpanProcessor build() {
+      Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive.");
+      Preconditions.checkArgument(
+          maxExportBatchSize > 0, "Max export batch size must be positive.");
+      Preconditions.checkArgument(scheduleDelayMillis > 0, "Schedule delay must be positive.");
+      Preconditions.checkArgument(
+          forceFlushTimeoutMillis > 0, "Force flush timeout must be positive.");
+      return new RingBufferSpanProcessor(
+          spanExporter,
+          exportOnlySampled,
+          bufferSize,
+          maxExportBatchSize,
+          scheduleDelayMillis,
+          forceFlushTimeoutMillis);
+    }
+  }
+}
@@ -0,0 +1,734 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.devtools.cloudtrace.v2.Span.Attributes;
+import com.google.devtools.cloudtrace.v2.Span.Link;
+import com.google.devtools.cloudtrace.v2.Span.Links;
+import com.google.devtools.cloudtrace.v2.Span.TimeEvent;
+import com.google.devtools.cloudtrace.v2.Span.TimeEvent.Annotation;
+import com.google.devtools.cloudtrace.v2.Span.TimeEvents;
+import com.google.devtools.cloudtrace.v2.TruncatableString;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.WireFormat;
+import com.google.rpc.Status;
+import io.opentelemetry.common.ReadableAttributes;
+import io.opentelemetry.common.ReadableKeyValuePairs.KeyValueConsumer;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.SpanData.Event;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link SpanData} straight into the wire format of a Cloud Trace {@link Span}.
+ *
+ * <p>The output is byte-for-byte what {@code TraceTranslator.generateSpan(...).toByteArray()}
+ * produces, but no intermediate builders, {@code TruncatableString}s, {@code Timestamp}s or ID
+ * strings are allocated; names and IDs are written by a {@link SpanNameFormatter}. Encoding
+ * happens in two passes over the span: the first computes the size of every nested message in
+ * pre-order, the second writes the fields into a reusable buffer using those sizes.
+ *
+ * <p>Instances own their buffers and are not thread-safe.
+ */
+final class SpanEncoder {
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+  private static final int INITIAL_SIZES_CAPACITY = 64;
+  private static final int TRACE_ID_HEX_LENGTH = SpanNameFormatter.TRACE_ID_HEX_LENGTH;
+  private static final int SPAN_ID_HEX_LENGTH = SpanNameFormatter.SPAN_ID_HEX_LENGTH;
+  private static final int MAP_KEY_FIELD_NUMBER = 1;
+  private static final int MAP_VALUE_FIELD_NUMBER = 2;
+  private static final Set<String> MAPPED_ATTRIBUTE_KEYS =
+      ImmutableSet.copyOf(TraceTranslator.HTTP_ATTRIBUTE_MAPPING.values());
+
+  private final SpanNameFormatter spanNameFormatter;
+  private final ResourceLabelsCache resourceLabels;
+  private final SpanLimits limits;
+  @Nullable private final TranslationCache cache;
+  private final int nameLength;
+  // The labels of the last span's resource. Spans of one SDK share their resource instance, so
+  // this usually saves even the cache lookup.
+  @Nullable private Resource resource;
+  // The entries TraceTranslator appends after a span's own attributes, pre-encoded in the order
+  // they end up in the builder's map. Events only get the agent label.
+  private ResourceLabelsCache.Labels labels;
+
+  private final AttributesSizer attributesSizer = new AttributesSizer();
+  private final AttributesWriter attributesWriter = new AttributesWriter();
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int[] sizes = new int[INITIAL_SIZES_CAPACITY];
+  private int sizeCount;
+  private int sizeCursor;
+  // Attribute values taken from the cache by the size pass, in the order the write pass writes
+  // them, so that every value is looked up, and counted in the cache stats, once.
+  private AttributeValue[] cachedValues = new AttributeValue[INITIAL_SIZES_CAPACITY];
+  private int cachedValueCount;
+  private int cachedValueCursor;
+  private boolean needsFallback;
+  private String displayName;
+  private TruncatableString cachedDisplayName;
+  private CodedOutputStream output;
+
+  SpanEncoder(String projectId, Map<String, AttributeValue> fixedAttributes) {
+    this(projectId, new ResourceLabelsCache(fixedAttributes), SpanLimits.DEFAULT, null);
+  }
+
+  /**
+   * Creates an encoder that appends the labels of each span's resource and the fixed attributes,
+   * both taken from {@code resourceLabels}, to every span. Sharing one instance lets all of an
+   * exporter's encoders reuse the same pre-encoded entries. Attributes, annotations and links
+   * beyond {@code limits} are skipped. When {@code cache} is given, attribute values and display
+   * names are written from its protos.
+   */
+  SpanEncoder(
+      String projectId,
+      ResourceLabelsCache resourceLabels,
+      SpanLimits limits,
+      @Nullable TranslationCache cache) {
+    this.spanNameFormatter = new SpanNameFormatter(projectId);
+    this.resourceLabels = resourceLabels;
+    this.labels = resourceLabels.get(null);
+    this.limits = limits;
+    this.cache = cache;
+    this.nameLength = spanNameFormatter.encodedSpanNameLength();
+  }
+
+  /**
+   * Encodes {@code spanData} into this encoder's buffer.
+   *
+   * @return the number of bytes written; they stay valid in {@link #buffer()} until the next call.
+   */
+  int encode(SpanData spanData) {
+    sizeCount = 0;
+    sizeCursor = 0;
+    cachedValueCount = 0;
+    cachedValueCursor = 0;
+    needsFallback = false;
+    Resource spanResource = spanData.getResource();
+    if (spanResource != resource) {
+      labels = resourceLabels.get(spanResource);
+      resource = spanResource;
+    }
+    try {
+      int size = computeSpanSize(spanData);
+      if (needsFallback) {
+        return encodeWithBuilder(spanData);
+      }
+      ensureCapacity(size);
+      output = CodedOutputStream.newInstance(buffer, 0, size);
+      writeSpan(spanData);
+      output.checkNoSpaceLeft();
+      return size;
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Encoded span size was miscomputed.", e);
+    } finally {
+      // The scratch fields would otherwise keep the span's strings reachable from the thread.
+      output = null;
+      displayName = null;
+      cachedDisplayName = null;
+      Arrays.fill(cachedValues, 0, cachedValueCount, null);
+    }
+  }
+
+  /** Encodes {@code spanData} and returns a copy of the encoded bytes. */
+  ByteString encodeToByteString(SpanData spanData) {
+    int size = encode(spanData);
+    return ByteString.copyFrom(buffer, 0, size);
+  }
+
+  byte[] buffer() {
+    return buffer;
+  }
+
+  // Attribute keys that collide after mapping or truncation are merged by the builder's map,
+  // keeping the first position and the last value. That is rare, so rather than replicating it
+  // we let the builder encode those spans, along with any span that has an oversized key. The size
+  // pass has already looked everything up in the cache, so the builder translates without it,
+  // which produces the same protos and keeps every lookup counted once.
+  private int encodeWithBuilder(SpanData spanData) {
+    Span span =
+        TraceTranslator.generateSpan(
+            spanData, spanNameFormatter, labels.getConstAttributes(), limits, null);
+    int size = span.getSerializedSize();
+    ensureCapacity(size);
+    CodedOutputStream out = CodedOutputStream.newInstance(buffer, 0, size);
+    try {
+      span.writeTo(out);
+      out.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new IllegalStateException("Encoded span size was miscomputed.", e);
+    }
+    return size;
+  }
+
+  private void ensureCapacity(int size) {
+    if (buffer.length < size) {
+      buffer = new byte[Math.max(size, buffer.length * 2)];
+    }
+  }
+
+  private int computeSpanSize(SpanData spanData) {
+    int size = lengthDelimitedSize(Span.NAME_FIELD_NUMBER, nameLength);
+    size += lengthDelimitedSize(Span.SPAN_ID_FIELD_NUMBER, SPAN_ID_HEX_LENGTH);
+    if (hasValidParent(spanData)) {
+      size += lengthDelimitedSize(Span.PARENT_SPAN_ID_FIELD_NUMBER, SPAN_ID_HEX_LENGTH);
+    }
+    if (cache != null) {
+      cachedDisplayName = cache.getDisplayName(spanData.getName(), spanData.getKind());
+      size +=
+          CodedOutputStream.computeMessageSize(Span.DISPLAY_NAME_FIELD_NUMBER, cachedDisplayName);
+    } else {
+      displayName = TraceTranslator.toDisplayName(spanData.getName(), spanData.getKind());
+      size +=
+          computeTruncatableStringField(
+              Span.DISPLAY_NAME_FIELD_NUMBER, displayName, TraceTranslator.MAX_DISPLAY_NAME_BYTES);
+    }
+    size += computeTimestampField(Span.START_TIME_FIELD_NUMBER, spanData.getStartEpochNanos());
+    long end = spanData.getEndEpochNanos();
+    if (end != 0) {
+      size += computeTimestampField(Span.END_TIME_FIELD_NUMBER, end);
+    }
+    size +=
+        computeAttributesField(
+            Span.ATTRIBUTES_FIELD_NUMBER,
+            spanData.getAttributes(),
+            limits.getMaxAttributes(),
+            droppedAttributes(spanData),
+            labels.getSpanTrailingAttributes());
+    size +=
+        computeTimeEventsField(
+            Span.TIME_EVENTS_FIELD_NUMBER,
+            spanData.getEvents(),
+            spanData.getTotalRecordedEvents());
+    size +=
+        computeLinksField(
+            Span.LINKS_FIELD_NUMBER, spanData.getLinks(), spanData.getTotalRecordedLinks());
+    io.opentelemetry.trace.Status status = spanData.getStatus();
+    if (status != null) {
+      size += computeStatusField(Span.STATUS_FIELD_NUMBER, status);
+    }
+    /* @Nullable */ Boolean hasRemoteParent = spanData.getHasRemoteParent();
+    if (hasRemoteParent != null) {
+      size +=
+          computeBoolValueField(Span.SAME_PROCESS_AS_PARENT_SPAN_FIELD_NUMBER, !hasRemoteParent);
+    }
+    return size;
+  }
+
+  private void writeSpan(SpanData spanData) throws IOException {
+    output.writeTag(Span.NAME_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(nameLength);
+    spanNameFormatter.writeSpanName(output, spanData.getTraceId(), spanData.getSpanId());
+    writeSpanIdField(Span.SPAN_ID_FIELD_NUMBER, spanData.getSpanId());
+    if (hasValidParent(spanData)) {
+      writeSpanIdField(Span.PARENT_SPAN_ID_FIELD_NUMBER, spanData.getParentSpanId());
+    }
+    if (cachedDisplayName != null) {
+      output.writeMessage(Span.DISPLAY_NAME_FIELD_NUMBER, cachedDisplayName);
+    } else {
+      writeTruncatableStringField(
+          Span.DISPLAY_NAME_FIELD_NUMBER, displayName, TraceTranslator.MAX_DISPLAY_NAME_BYTES);
+    }
+    writeTimestampField(Span.START_TIME_FIELD_NUMBER, spanData.getStartEpochNanos());
+    long end = spanData.getEndEpochNanos();
+    if (end != 0) {
+      writeTimestampField(Span.END_TIME_FIELD_NUMBER, end);
+    }
+    writeAttributesField(
+        Span.ATTRIBUTES_FIELD_NUMBER,
+        spanData.getAttributes(),
+        limits.getMaxAttributes(),
+        droppedAttributes(spanData),
+        labels.getSpanTrailingAttributes());
+    writeTimeEventsField(
+        Span.TIME_EVENTS_FIELD_NUMBER, spanData.getEvents(), spanData.getTotalRecordedEvents());
+    writeLinksField(Span.LINKS_FIELD_NUMBER, spanData.getLinks(), spanData.getTotalRecordedLinks());
+    io.opentelemetry.trace.Status status = spanData.getStatus();
+    if (status != null) {
+      writeStatusField(Span.STATUS_FIELD_NUMBER, status);
+    }
+    /* @Nullable */ Boolean hasRemoteParent = spanData.getHasRemoteParent();
+    if (hasRemoteParent != null) {
+      writeBoolValueField(Span.SAME_PROCESS_AS_PARENT_SPAN_FIELD_NUMBER, !hasRemoteParent);
+    }
+  }
+
+  private int droppedAttributes(SpanData spanData) {
+    return SpanLimits.dropped(
+        spanData.getAttributes().size(),
+        spanData.getTotalAttributeCount(),
+        limits.getMaxAttributes());
+  }
+
+  private static boolean hasValidParent(SpanData spanData) {
+    return spanData.getParentSpanId() != null && spanData.getParentSpanId().isValid();
+  }
+
+  // Every nested message reserves a slot for its size before its children are sized, so the
+  // slots end up in the same pre-order in which the write pass consumes them.
+  private int reserveSize() {
+    if (sizeCount == sizes.length) {
+      sizes = Arrays.copyOf(sizes, sizes.length * 2);
+    }
+    return sizeCount++;
+  }
+
+  private int messageFieldSize(int fieldNumber, int slot, int contentSize) {
+    sizes[slot] = contentSize;
+    return lengthDelimitedSize(fieldNumber, contentSize);
+  }
+
+  private void writeMessageHeader(int fieldNumber) throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(sizes[sizeCursor++]);
+  }
+
+  private static int lengthDelimitedSize(int fieldNumber, int length) {
+    return CodedOutputStream.computeTagSize(fieldNumber)
+        + CodedOutputStream.computeUInt32SizeNoTag(length)
+        + length;
+  }
+
+  private void writeTraceIdField(int fieldNumber, TraceId traceId) throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(TRACE_ID_HEX_LENGTH);
+    spanNameFormatter.writeTraceId(output, traceId);
+  }
+
+  private void writeSpanIdField(int fieldNumber, SpanId spanId) throws IOException {
+    output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(SPAN_ID_HEX_LENGTH);
+    spanNameFormatter.writeSpanId(output, spanId);
+  }
+
+  // A truncated string takes a second slot for its dropped byte count, so the write pass only
+  // has to find the cut again, which never scans more than maxBytes worth of chars.
+  private int computeTruncatableStringField(int fieldNumber, String value, int maxBytes) {
+    int slot = reserveSize();
+    int length = Utf8Truncation.truncatedLength(value, maxBytes);
+    int size;
+    if (length == value.length()) {
+      size =
+          value.isEmpty()
+              ? 0
+              : CodedOutputStream.computeStringSize(TruncatableString.VALUE_FIELD_NUMBER, value);
+    } else {
+      int droppedSlot = reserveSize();
+      int keptBytes = Utf8Truncation.encodedLength(value, 0, length);
+      int droppedBytes = Utf8Truncation.encodedLength(value, length, value.length());
+      sizes[droppedSlot] = droppedBytes;
+      size =
+          CodedOutputStream.computeInt32Size(
+              TruncatableString.TRUNCATED_BYTE_COUNT_FIELD_NUMBER, droppedBytes);
+      if (keptBytes != 0) {
+        size += lengthDelimitedSize(TruncatableString.VALUE_FIELD_NUMBER, keptBytes);
+      }
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeTruncatableStringField(int fieldNumber, String value, int maxBytes)
+      throws IOException {
+    writeMessageHeader(fieldNumber);
+    int length = Utf8Truncation.truncatedLength(value, maxBytes);
+    if (length == value.length()) {
+      if (!value.isEmpty()) {
+        output.writeString(TruncatableString.VALUE_FIELD_NUMBER, value);
+      }
+      return;
+    }
+    int droppedBytes = sizes[sizeCursor++];
+    if (length != 0) {
+      output.writeString(TruncatableString.VALUE_FIELD_NUMBER, value.substring(0, length));
+    }
+    output.writeInt32(TruncatableString.TRUNCATED_BYTE_COUNT_FIELD_NUMBER, droppedBytes);
+  }
+
+  private int computeTimestampField(int fieldNumber, long epochNanos) {
+    int slot = reserveSize();
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(epochNanos);
+    int nanos = (int) (epochNanos - TimeUnit.SECONDS.toNanos(seconds));
+    int size = 0;
+    if (seconds != 0) {
+      size += CodedOutputStream.computeInt64Size(Timestamp.SECONDS_FIELD_NUMBER, seconds);
+    }
+    if (nanos != 0) {
+      size += CodedOutputStream.computeInt32Size(Timestamp.NANOS_FIELD_NUMBER, nanos);
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeTimestampField(int fieldNumber, long epochNanos) throws IOException {
+    writeMessageHeader(fieldNumber);
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(epochNanos);
+    int nanos = (int) (epochNanos - TimeUnit.SECONDS.toNanos(seconds));
+    if (seconds != 0) {
+      output.writeInt64(Timestamp.SECONDS_FIELD_NUMBER, seconds);
+    }
+    if (nanos != 0) {
+      output.writeInt32(Timestamp.NANOS_FIELD_NUMBER, nanos);
+    }
+  }
+
+  // Only the first maxAttributes entries of attributes are written, followed by all of trailing.
+  private int computeAttributesField(
+      int fieldNumber,
+      ReadableAttributes attributes,
+      int maxAttributes,
+      int droppedAttributes,
+      @Nullable EncodedAttributes trailing) {
+    int slot = reserveSize();
+    attributesSizer.reset(trailing, maxAttributes);
+    attributes.forEach(attributesSizer);
+    int size = attributesSizer.size;
+    if (trailing != null) {
+      size += trailing.getSerializedSize();
+    }
+    if (droppedAttributes != 0) {
+      size +=
+          CodedOutputStream.computeInt32Size(
+              Attributes.DROPPED_ATTRIBUTES_COUNT_FIELD_NUMBER, droppedAttributes);
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeAttributesField(
+      int fieldNumber,
+      ReadableAttributes attributes,
+      int maxAttributes,
+      int droppedAttributes,
+      @Nullable EncodedAttributes trailing)
+      throws IOException {
+    writeMessageHeader(fieldNumber);
+    attributesWriter.reset(maxAttributes);
+    attributes.forEach(attributesWriter);
+    if (trailing != null) {
+      trailing.writeTo(output);
+    }
+    if (droppedAttributes != 0) {
+      output.writeInt32(Attributes.DROPPED_ATTRIBUTES_COUNT_FIELD_NUMBER, droppedAttributes);
+    }
+  }
+
+  private int computeEntryField(String key, io.opentelemetry.common.AttributeValue value) {
+    int slot = reserveSize();
+    int size =
+        CodedOutputStream.computeStringSize(MAP_KEY_FIELD_NUMBER, key)
+            + computeAttributeValueField(MAP_VALUE_FIELD_NUMBER, value);
+    return messageFieldSize(Attributes.ATTRIBUTE_MAP_FIELD_NUMBER, slot, size);
+  }
+
+  private void writeEntryField(String key, io.opentelemetry.common.AttributeValue value)
+      throws IOException {
+    writeMessageHeader(Attributes.ATTRIBUTE_MAP_FIELD_NUMBER);
+    output.writeString(MAP_KEY_FIELD_NUMBER, key);
+    writeAttributeValueField(MAP_VALUE_FIELD_NUMBER, value);
+  }
+
+  // Cached values are complete messages that know their own size, so they take no size slot.
+  private int computeAttributeValueField(
+      int fieldNumber, io.opentelemetry.common.AttributeValue value) {
+    if (cache != null) {
+      if (cachedValueCount == cachedValues.length) {
+        cachedValues = Arrays.copyOf(cachedValues, cachedValues.length * 2);
+      }
+      AttributeValue cached = cache.getAttributeValue(value);
+      cachedValues[cachedValueCount++] = cached;
+      return CodedOutputStream.computeMessageSize(fieldNumber, cached);
+    }
+    int slot = reserveSize();
+    int size;
+    switch (value.getType()) {
+      case STRING:
+        size =
+            computeTruncatableStringField(
+                AttributeValue.STRING_VALUE_FIELD_NUMBER,
+                value.getStringValue(),
+                TraceTranslator.MAX_ATTRIBUTE_VALUE_BYTES);
+        break;
+      case BOOLEAN:
+        size =
+            CodedOutputStream.computeBoolSize(
+                AttributeValue.BOOL_VALUE_FIELD_NUMBER, value.getBooleanValue());
+        break;
+      case LONG:
+        size =
+            CodedOutputStream.computeInt64Size(
+                AttributeValue.INT_VALUE_FIELD_NUMBER, value.getLongValue());
+        break;
+      case DOUBLE:
+        size =
+            computeTruncatableStringField(
+                AttributeValue.STRING_VALUE_FIELD_NUMBER,
+                String.valueOf(value.getDoubleValue()),
+                TraceTranslator.MAX_ATTRIBUTE_VALUE_BYTES);
+        break;
+      default:
+        // Like the builder path, unsupported types are sent as an empty value.
+        size = 0;
+        break;
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeAttributeValueField(
+      int fieldNumber, io.opentelemetry.common.AttributeValue value) throws IOException {
+    if (cache != null) {
+      output.writeMessage(fieldNumber, cachedValues[cachedValueCursor++]);
+      return;
+    }
+    writeMessageHeader(fieldNumber);
+    switch (value.getType()) {
+      case STRING:
+        writeTruncatableStringField(
+            AttributeValue.STRING_VALUE_FIELD_NUMBER,
+            value.getStringValue(),
+            TraceTranslator.MAX_ATTRIBUTE_VALUE_BYTES);
+        break;
+      case BOOLEAN:
+        output.writeBool(AttributeValue.BOOL_VALUE_FIELD_NUMBER, value.getBooleanValue());
+        break;
+      case LONG:
+        output.writeInt64(AttributeValue.INT_VALUE_FIELD_NUMBER, value.getLongValue());
+        break;
+      case DOUBLE:
+        writeTruncatableStringField(
+            AttributeValue.STRING_VALUE_FIELD_NUMBER,
+            String.valueOf(value.getDoubleValue()),
+            TraceTranslator.MAX_ATTRIBUTE_VALUE_BYTES);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private int computeTimeEventsField(int fieldNumber, List<Event> events, int totalRecorded) {
+    int slot = reserveSize();
+    int size = 0;
+    int maxAnnotations = limits.getMaxAnnotations();
+    int keptEvents = Math.min(events.size(), maxAnnotations);
+    for (int i = 0; i < keptEvents; i++) {
+      size += computeTimeEventField(TimeEvents.TIME_EVENT_FIELD_NUMBER, events.get(i));
+    }
+    int droppedAnnotationsCount = SpanLimits.dropped(events.size(), totalRecorded, maxAnnotations);
+    if (droppedAnnotationsCount != 0) {
+      size +=
+          CodedOutputStream.computeInt32Size(
+              TimeEvents.DROPPED_ANNOTATIONS_COUNT_FIELD_NUMBER, droppedAnnotationsCount);
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeTimeEventsField(int fieldNumber, List<Event> events, int totalRecorded)
+      throws IOException {
+    writeMessageHeader(fieldNumber);
+    int maxAnnotations = limits.getMaxAnnotations();
+    int keptEvents = Math.min(events.size(), maxAnnotations);
+    for (int i = 0; i < keptEvents; i++) {
+      writeTimeEventField(TimeEvents.TIME_EVENT_FIELD_NUMBER, events.get(i));
+    }
+    int droppedAnnotationsCount = SpanLimits.dropped(events.size(), totalRecorded, maxAnnotations);
+    if (droppedAnnotationsCount != 0) {
+      output.writeInt32(TimeEvents.DROPPED_ANNOTATIONS_COUNT_FIELD_NUMBER, droppedAnnotationsCount);
+    }
+  }
+
+  private int computeTimeEventField(int fieldNumber, Event event) {
+    int slot = reserveSize();
+    int size = computeTimestampField(TimeEvent.TIME_FIELD_NUMBER, event.getEpochNanos());
+    size += computeAnnotationField(TimeEvent.ANNOTATION_FIELD_NUMBER, event);
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeTimeEventField(int fieldNumber, Event event) throws IOException {
+    writeMessageHeader(fieldNumber);
+    writeTimestampField(TimeEvent.TIME_FIELD_NUMBER, event.getEpochNanos());
+    writeAnnotationField(TimeEvent.ANNOTATION_FIELD_NUMBER, event);
+  }
+
+  private int computeAnnotationField(int fieldNumber, Event event) {
+    int slot = reserveSize();
+    int size =
+        computeTruncatableStringField(
+            Annotation.DESCRIPTION_FIELD_NUMBER,
+            event.getName(),
+            TraceTranslator.MAX_ANNOTATION_DESCRIPTION_BYTES);
+    size +=
+        computeAttributesField(
+            Annotation.ATTRIBUTES_FIELD_NUMBER,
+            event.getAttributes(),
+            Integer.MAX_VALUE,
+            0,
+            EncodedAttributes.AGENT_LABEL);
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeAnnotationField(int fieldNumber, Event event) throws IOException {
+    writeMessageHeader(fieldNumber);
+    writeTruncatableStringField(
+        Annotation.DESCRIPTION_FIELD_NUMBER,
+        event.getName(),
+        TraceTranslator.MAX_ANNOTATION_DESCRIPTION_BYTES);
+    writeAttributesField(
+        Annotation.ATTRIBUTES_FIELD_NUMBER,
+        event.getAttributes(),
+        Integer.MAX_VALUE,
+        0,
+        EncodedAttributes.AGENT_LABEL);
+  }
+
+  private int computeLinksField(
+      int fieldNumber, List<SpanData.Link> links, int totalRecordedLinks) {
+    int slot = reserveSize();
+    int size = 0;
+    int maxLinks = limits.getMaxLinks();
+    int keptLinks = Math.min(links.size(), maxLinks);
+    for (int i = 0; i < keptLinks; i++) {
+      size += computeLinkField(Links.LINK_FIELD_NUMBER, links.get(i));
+    }
+    int droppedLinksCount = SpanLimits.dropped(links.size(), totalRecordedLinks, maxLinks);
+    if (droppedLinksCount != 0) {
+      size +=
+          CodedOutputStream.computeInt32Size(
+              Links.DROPPED_LINKS_COUNT_FIELD_NUMBER, droppedLinksCount);
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeLinksField(int fieldNumber, List<SpanData.Link> links, int totalRecordedLinks)
+      throws IOException {
+    writeMessageHeader(fieldNumber);
+    int maxLinks = limits.getMaxLinks();
+    int keptLinks = Math.min(links.size(), maxLinks);
+    for (int i = 0; i < keptLinks; i++) {
+      writeLinkField(Links.LINK_FIELD_NUMBER, links.get(i));
+    }
+    int droppedLinksCount = SpanLimits.dropped(links.size(), totalRecordedLinks, maxLinks);
+    if (droppedLinksCount != 0) {
+      output.writeInt32(Links.DROPPED_LINKS_COUNT_FIELD_NUMBER, droppedLinksCount);
+    }
+  }
+
+  private int computeLinkField(int fieldNumber, SpanData.Link link) {
+    int slot = reserveSize();
+    int size =
+        lengthDelimitedSize(Link.TRACE_ID_FIELD_NUMBER, TRACE_ID_HEX_LENGTH)
+            + lengthDelimitedSize(Link.SPAN_ID_FIELD_NUMBER, SPAN_ID_HEX_LENGTH)
+            + computeAttributesField(
+                Link.ATTRIBUTES_FIELD_NUMBER, link.getAttributes(), Integer.MAX_VALUE, 0, null);
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeLinkField(int fieldNumber, SpanData.Link link) throws IOException {
+    writeMessageHeader(fieldNumber);
+    writeTraceIdField(Link.TRACE_ID_FIELD_NUMBER, link.getContext().getTraceId());
+    writeSpanIdField(Link.SPAN_ID_FIELD_NUMBER, link.getContext().getSpanId());
+    writeAttributesField(
+        Link.ATTRIBUTES_FIELD_NUMBER, link.getAttributes(), Integer.MAX_VALUE, 0, null);
+  }
+
+  private int computeStatusField(int fieldNumber, io.opentelemetry.trace.Status status) {
+    int slot = reserveSize();
+    int size = 0;
+    int code = status.getCanonicalCode().value();
+    if (code != 0) {
+      size += CodedOutputStream.computeInt32Size(Status.CODE_FIELD_NUMBER, code);
+    }
+    String description = status.getDescription();
+    if (description != null && !description.isEmpty()) {
+      size += CodedOutputStream.computeStringSize(Status.MESSAGE_FIELD_NUMBER, description);
+    }
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeStatusField(int fieldNumber, io.opentelemetry.trace.Status status)
+      throws IOException {
+    writeMessageHeader(fieldNumber);
+    int code = status.getCanonicalCode().value();
+    if (code != 0) {
+      output.writeInt32(Status.CODE_FIELD_NUMBER, code);
+    }
+    String description = status.getDescription();
+    if (description != null && !description.isEmpty()) {
+      output.writeString(Status.MESSAGE_FIELD_NUMBER, description);
+    }
+  }
+
+  private int computeBoolValueField(int fieldNumber, boolean value) {
+    int slot = reserveSize();
+    int size = value ? CodedOutputStream.computeBoolSize(BoolValue.VALUE_FIELD_NUMBER, true) : 0;
+    return messageFieldSize(fieldNumber, slot, size);
+  }
+
+  private void writeBoolValueField(int fieldNumber, boolean value) throws IOException {
+    writeMessageHeader(fieldNumber);
+    if (value) {
+      output.writeBool(BoolValue.VALUE_FIELD_NUMBER, true);
+    }
+  }
+
+  private final class AttributesSizer
+      implements KeyValueConsumer<io.opentelemetry.common.AttributeValue> {
+    @Nullable private EncodedAttributes trailing;
+    private int remaining;
+    private int size;
+
+    private void reset(@Nullable EncodedAttributes trailing, int maxAttributes) {
+      this.trailing = trailing;
+      this.remaining = maxAttributes;
+      this.size = 0;
+    }
+
+    @Override
+    public void consume(String key, io.opentelemetry.common.AttributeValue value) {
+      if (remaining == 0) {
+        return;
+      }
+      remaining--;
+      String mappedKey = TraceTranslator.mapKey(key);
+      if ((trailing != null && trailing.containsKey(mappedKey))
+          || MAPPED_ATTRIBUTE_KEYS.contains(key)
+          || Utf8Truncation.truncatedLength(mappedKey, TraceTranslator.MAX_ATTRIBUTE_KEY_BYTES)
+              < mappedKey.length()) {
+        needsFallback = true;
+      }
+      size += computeEntryField(mappedKey, value);
+    }
+  }
+
+  private final class AttributesWriter
+      implements KeyValueConsumer<io.opentelemetry.common.AttributeValue> {
+    private int remaining;
+
+    private void reset(int maxAttributes) {
+      this.remaining = maxAttributes;
+    }
+
+    @Override
+    public void consume(String key, io.opentelemetry.common.AttributeValue value) {
+      if (remaining == 0) {
+        return;
+      }
+      remaining--;
+      try {
+        writeEntryField(TraceTranslator.mapKey(key), value);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
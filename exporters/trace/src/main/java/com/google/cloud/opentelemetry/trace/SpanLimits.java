@@ -0,0 +1,59 @@
+package com.google.cloud.opentelemetry.trace;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The maximum numbers of a span's own attributes, of its annotations and of its links that are
+ * translated. Items beyond them are skipped and reported in the span's dropped counts.
+ */
+@Immutable
+final class SpanLimits {
+
+  // Cloud Trace's own maximums, beyond which it drops items or rejects the span.
+  static final SpanLimits DEFAULT =
+      new SpanLimits(
+          TraceConfiguration.DEFAULT_MAX_ATTRIBUTES_PER_SPAN,
+          TraceConfiguration.DEFAULT_MAX_ANNOTATIONS_PER_SPAN,
+          TraceConfiguration.DEFAULT_MAX_LINKS_PER_SPAN);
+
+  /** Translates every item, as the translation helpers did before limits existed. */
+  static final SpanLimits NONE =
+      new SpanLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+  private final int maxAttributes;
+  private final int maxAnnotations;
+  private final int maxLinks;
+
+  SpanLimits(int maxAttributes, int maxAnnotations, int maxLinks) {
+    this.maxAttributes = maxAttributes;
+    this.maxAnnotations = maxAnnotations;
+    this.maxLinks = maxLinks;
+  }
+
+  static SpanLimits from(TraceConfiguration configuration) {
+    return new SpanLimits(
+        configuration.getMaxAttributesPerSpan(),
+        configuration.getMaxAnnotationsPerSpan(),
+        configuration.getMaxLinksPerSpan());
+  }
+
+  int getMaxAttributes() {
+    return maxAttributes;
+  }
+
+  int getMaxAnnotations() {
+    return maxAnnotations;
+  }
+
+  int getMaxLinks() {
+    return maxLinks;
+  }
+
+  /**
+   * Returns how many items are dropped when at most {@code max} of the {@code recorded} ones are
+   * kept, given that {@code total} were recorded before the SDK applied its own limits.
+   */
+  static int dropped(int recorded, int total, int max) {
+    return Math.max(recorded, total) - Math.min(recorded, max);
+  }
+}
@@ -0,0 +1,103 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.protobuf.CodedOutputStream;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats {@code projects/{project}/traces/{trace}/spans/{span}} resource names and hex IDs
+ * straight from the ID bits, without going through {@code SpanName}'s path template.
+ *
+ * <p>The project prefix is computed once per instance. Instances reuse a scratch buffer and are
+ * not thread-safe.
+ */
+final class SpanNameFormatter {
+
+  static final int TRACE_ID_HEX_LENGTH = 32;
+  static final int SPAN_ID_HEX_LENGTH = 16;
+
+  private static final char[] SPANS_SEGMENT = "/spans/".toCharArray();
+
+  private final char[] prefixChars;
+  private final byte[] prefixBytes;
+  private final int spanNameLength;
+  private final int encodedSpanNameLength;
+  // Holds the prefix and the "/spans/" segment; only the two ID ranges are rewritten per span.
+  private final char[] spanName;
+  private final char[] id = new char[TRACE_ID_HEX_LENGTH];
+
+  SpanNameFormatter(String projectId) {
+    String prefix = "projects/" + projectId + "/traces/";
+    this.prefixChars = prefix.toCharArray();
+    this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+    int idsLength = TRACE_ID_HEX_LENGTH + SPANS_SEGMENT.length + SPAN_ID_HEX_LENGTH;
+    this.spanNameLength = prefixChars.length + idsLength;
+    this.encodedSpanNameLength = prefixBytes.length + idsLength;
+    this.spanName = new char[spanNameLength];
+    System.arraycopy(prefixChars, 0, spanName, 0, prefixChars.length);
+    System.arraycopy(
+        SPANS_SEGMENT,
+        0,
+        spanName,
+        prefixChars.length + TRACE_ID_HEX_LENGTH,
+        SPANS_SEGMENT.length);
+  }
+
+  /** Returns the resource name of the span. */
+  String formatSpanName(TraceId traceId, SpanId spanId) {
+    fillSpanName(traceId, spanId);
+    return new String(spanName);
+  }
+
+  /** Returns the lowercase hex form of the trace ID. */
+  String formatTraceId(TraceId traceId) {
+    traceId.copyLowerBase16To(id, 0);
+    return new String(id, 0, TRACE_ID_HEX_LENGTH);
+  }
+
+  /** Returns the lowercase hex form of the span ID. */
+  String formatSpanId(SpanId spanId) {
+    spanId.copyLowerBase16To(id, 0);
+    return new String(id, 0, SPAN_ID_HEX_LENGTH);
+  }
+
+  /** Returns the length, in UTF-8 bytes, of every span name this formatter produces. */
+  int encodedSpanNameLength() {
+    return encodedSpanNameLength;
+  }
+
+  /** Writes the UTF-8 bytes of the span's resource name, without a tag or length prefix. */
+  void writeSpanName(CodedOutputStream output, TraceId traceId, SpanId spanId)
+      throws IOException {
+    fillSpanName(traceId, spanId);
+    output.writeRawBytes(prefixBytes);
+    writeAscii(output, spanName, prefixChars.length, spanNameLength);
+  }
+
+  /** Writes the hex form of the trace ID as raw bytes. */
+  void writeTraceId(CodedOutputStream output, TraceId traceId) throws IOException {
+    traceId.copyLowerBase16To(id, 0);
+    writeAscii(output, id, 0, TRACE_ID_HEX_LENGTH);
+  }
+
+  /** Writes the hex form of the span ID as raw bytes. */
+  void writeSpanId(CodedOutputStream output, SpanId spanId) throws IOException {
+    spanId.copyLowerBase16To(id, 0);
+    writeAscii(output, id, 0, SPAN_ID_HEX_LENGTH);
+  }
+
+  private void fillSpanName(TraceId traceId, SpanId spanId) {
+    traceId.copyLowerBase16To(spanName, prefixChars.length);
+    spanId.copyLowerBase16To(spanName, spanNameLength - SPAN_ID_HEX_LENGTH);
+  }
+
+  private static void writeAscii(CodedOutputStream output, char[] chars, int from, int to)
+      throws IOException {
+    for (int i = from; i < to; i++) {
+      output.writeRawByte((byte) chars[i]);
+    }
+  }
+}
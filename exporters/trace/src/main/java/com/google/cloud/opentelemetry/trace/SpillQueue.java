@@ -0,0 +1,370 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent FIFO of encoded spans, stored in memory-mapped segment files.
+ *
+ * <p>Each record is a 4-byte length, a 4-byte CRC32 of the payload and the serialized {@code
+ * Span}. The length is written last, so a record torn by a crash fails its checksum and marks the
+ * end of the data on recovery. Segments are fixed-size files named {@code segment-<id>.spill};
+ * a new one is started when the last is full, and the number of segments is capped so the queue
+ * never takes more than its byte limit on disk. The read position is kept in a {@code cursor}
+ * file that is replaced atomically on every {@link #commit}, and segments are deleted once the
+ * cursor has moved past them. Full segments are forced to disk when the next one is started, and
+ * the last one when the queue is closed; in between, records survive a crash of the process but
+ * not necessarily of the machine.
+ *
+ * <p>Records are read with {@link #peek} and only removed by a later {@link #commit}, so spans
+ * whose replay fails are read again. All methods are synchronized.
+ */
+final class SpillQueue implements Closeable {
+
+  static final int DEFAULT_SEGMENT_BYTES = 8 * 1024 * 1024;
+  static final int RECORD_HEADER_BYTES = 8;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".spill";
+  private static final String CURSOR_FILE = "cursor";
+  private static final String CURSOR_TEMP_FILE = "cursor.tmp";
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final int maxSegments;
+  // Oldest first; reading happens in the first segment, writing in the last.
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private final List<Position> peeked = new ArrayList<>();
+  private final CRC32 crc = new CRC32();
+  private long nextSegmentId;
+  private int readOffset;
+  private boolean closed;
+
+  private SpillQueue(Path directory, int segmentBytes, int maxSegments) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.maxSegments = maxSegments;
+  }
+
+  /**
+   * Opens the queue in {@code directory}, recovering the records and read position left by a
+   * previous process. The queue takes at most {@code maxBytes} of disk, in segments of up to
+   * {@code segmentBytes}.
+   */
+  static SpillQueue open(Path directory, long maxBytes, int segmentBytes) throws IOException {
+    Preconditions.checkArgument(maxBytes > 0, "Max bytes must be positive.");
+    Preconditions.checkArgument(segmentBytes > RECORD_HEADER_BYTES, "Segment size is too small.");
+    int actualSegmentBytes = (int) Math.min(segmentBytes, maxBytes);
+    Preconditions.checkArgument(
+        actualSegmentBytes > RECORD_HEADER_BYTES, "Max bytes is too small.");
+    int maxSegments = (int) Math.min(Integer.MAX_VALUE, maxBytes / actualSegmentBytes);
+    SpillQueue queue = new SpillQueue(directory, actualSegmentBytes, maxSegments);
+    queue.recover();
+    return queue;
+  }
+
+  /**
+   * Appends {@code spans} in order. Either all of them are stored or, if they do not fit in the
+   * remaining space, none are.
+   *
+   * @return whether the spans were stored.
+   */
+  synchronized boolean append(List<ByteString> spans) throws IOException {
+    if (closed || !fits(spans)) {
+      return false;
+    }
+    for (ByteString span : spans) {
+      Segment tail = segments.peekLast();
+      int recordBytes = RECORD_HEADER_BYTES + span.size();
+      if (tail == null || tail.capacity() - tail.writeOffset < recordBytes) {
+        tail = newSegment();
+      }
+      writeRecord(tail, span);
+    }
+    return true;
+  }
+
+  /**
+   * Returns up to {@code maxSpans} of the oldest spans, stopping before their payloads exceed
+   * {@code maxBytes} unless that would return nothing. The spans stay in the queue until {@link
+   * #commit} is called.
+   */
+  synchronized List<ByteString> peek(int maxSpans, long maxBytes) {
+    peeked.clear();
+    if (closed) {
+      return Collections.emptyList();
+    }
+    List<ByteString> spans = new ArrayList<>();
+    long bytes = 0;
+    Iterator<Segment> iterator = segments.iterator();
+    Segment segment = iterator.hasNext() ? iterator.next() : null;
+    int offset = readOffset;
+    while (segment != null && spans.size() < maxSpans) {
+      int length = readableLength(segment, offset);
+      if (length < 0) {
+        segment = iterator.hasNext() ? iterator.next() : null;
+        offset = 0;
+        continue;
+      }
+      if (!spans.isEmpty() && bytes + length > maxBytes) {
+        break;
+      }
+      ByteBuffer payload = segment.buffer.duplicate();
+      payload.position(offset + RECORD_HEADER_BYTES);
+      payload.limit(offset + RECORD_HEADER_BYTES + length);
+      spans.add(ByteString.copyFrom(payload));
+      bytes += length;
+      offset += RECORD_HEADER_BYTES + length;
+      peeked.add(new Position(segment, offset));
+    }
+    return spans;
+  }
+
+  /**
+   * Removes the first {@code count} spans returned by the last {@link #peek} and persists the new
+   * read position.
+   */
+  synchronized void commit(int count) throws IOException {
+    Preconditions.checkArgument(
+        count <= peeked.size(), "Cannot commit spans that were not peeked.");
+    if (closed || count <= 0) {
+      return;
+    }
+    Position position = peeked.get(count - 1);
+    peeked.clear();
+    Segment segment = position.segment;
+    int offset = position.offset;
+    if (offset >= segment.writeOffset && segment != segments.peekLast()) {
+      // Only the last segment is ever appended to, so a consumed earlier one can go right away.
+      segment = segmentAfter(segment);
+      offset = 0;
+    }
+    writeCursor(segment.id, offset);
+    while (segments.peekFirst() != segment) {
+      Files.deleteIfExists(segments.pollFirst().path);
+    }
+    readOffset = offset;
+  }
+
+  /** Returns whether there is nothing left to replay. */
+  synchronized boolean isEmpty() {
+    Segment segment = segments.peekFirst();
+    return segment == null || (segments.size() == 1 && readOffset >= segment.writeOffset);
+  }
+
+  /** Flushes the mapped segments to disk. The queue accepts no more spans once closed. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Segment segment : segments) {
+      segment.buffer.force();
+    }
+    segments.clear();
+    peeked.clear();
+  }
+
+  private Segment segmentAfter(Segment segment) {
+    Iterator<Segment> iterator = segments.iterator();
+    while (iterator.next() != segment) {}
+    return iterator.next();
+  }
+
+  private boolean fits(List<ByteString> spans) {
+    Segment tail = segments.peekLast();
+    int remaining = tail == null ? 0 : tail.capacity() - tail.writeOffset;
+    int newSegments = 0;
+    for (ByteString span : spans) {
+      int recordBytes = RECORD_HEADER_BYTES + span.size();
+      if (span.isEmpty() || recordBytes > segmentBytes) {
+        return false;
+      }
+      if (recordBytes > remaining) {
+        newSegments++;
+        remaining = segmentBytes;
+      }
+      remaining -= recordBytes;
+    }
+    return segments.size() + newSegments <= maxSegments;
+  }
+
+  // Returns the payload length of the record at offset, or -1 if the segment holds no further
+  // valid record there.
+  private int readableLength(Segment segment, int offset) {
+    if (offset + RECORD_HEADER_BYTES > segment.writeOffset) {
+      return -1;
+    }
+    int length = segment.buffer.getInt(offset);
+    if (length <= 0 || length > segment.writeOffset - offset - RECORD_HEADER_BYTES) {
+      return -1;
+    }
+    if (checksum(segment.buffer, offset + RECORD_HEADER_BYTES, length)
+        != segment.buffer.getInt(offset + 4)) {
+      return -1;
+    }
+    return length;
+  }
+
+  private void writeRecord(Segment segment, ByteString span) {
+    int offset = segment.writeOffset;
+    ByteBuffer payload = segment.buffer.duplicate();
+    payload.position(offset + RECORD_HEADER_BYTES);
+    span.copyTo(payload);
+    segment.buffer.putInt(
+        offset + 4, checksum(segment.buffer, offset + RECORD_HEADER_BYTES, span.size()));
+    segment.buffer.putInt(offset, span.size());
+    segment.writeOffset = offset + RECORD_HEADER_BYTES + span.size();
+  }
+
+  private int checksum(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(offset);
+    payload.limit(offset + length);
+    crc.reset();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private Segment newSegment() throws IOException {
+    Segment tail = segments.peekLast();
+    if (tail != null) {
+      // The full segment will not change again, so this is the point to make it durable.
+      tail.buffer.force();
+    }
+    Segment segment = mapSegment(nextSegmentId++, segmentBytes);
+    segments.addLast(segment);
+    return segment;
+  }
+
+  private Segment mapSegment(long id, int size) throws IOException {
+    Path path = directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+    try (FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // The mapping stays valid after the channel is closed.
+      return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+  }
+
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    long cursorSegment = -1;
+    int cursorOffset = 0;
+    Path cursor = directory.resolve(CURSOR_FILE);
+    if (Files.exists(cursor)) {
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(cursor));
+      if (bytes.remaining() == Long.BYTES + Integer.BYTES) {
+        cursorSegment = bytes.getLong();
+        cursorOffset = bytes.getInt();
+      }
+    }
+
+    TreeMap<Long, Path> files = new TreeMap<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        try {
+          files.put(
+              Long.parseLong(
+                  name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+              path);
+        } catch (NumberFormatException e) {
+          // Not one of ours.
+        }
+      }
+    }
+    for (Map.Entry<Long, Path> file : files.entrySet()) {
+      long id = file.getKey();
+      nextSegmentId = id + 1;
+      if (id < cursorSegment) {
+        Files.delete(file.getValue());
+        continue;
+      }
+      long fileSize = Files.size(file.getValue());
+      Segment segment =
+          mapSegment(id, fileSize > RECORD_HEADER_BYTES ? (int) fileSize : segmentBytes);
+      segment.writeOffset = recoverWriteOffset(segment);
+      if (segment.writeOffset + RECORD_HEADER_BYTES <= segment.capacity()) {
+        // Clear whatever a torn write left behind, so it cannot be mistaken for a record later.
+        segment.buffer.putInt(segment.writeOffset, 0);
+      }
+      segments.addLast(segment);
+    }
+
+    Segment first = segments.peekFirst();
+    if (first != null && first.id == cursorSegment) {
+      readOffset = Math.min(cursorOffset, first.writeOffset);
+    }
+  }
+
+  private int recoverWriteOffset(Segment segment) {
+    // Let readableLength look at the whole segment; the checksums decide where the data ends.
+    segment.writeOffset = segment.capacity();
+    int offset = 0;
+    for (int length; (length = readableLength(segment, offset)) >= 0; ) {
+      offset += RECORD_HEADER_BYTES + length;
+    }
+    return offset;
+  }
+
+  private void writeCursor(long segmentId, int offset) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+    bytes.putLong(segmentId).putInt(offset);
+    Path temp = directory.resolve(CURSOR_TEMP_FILE);
+    Files.write(temp, bytes.array());
+    Files.move(
+        temp,
+        directory.resolve(CURSOR_FILE),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static final class Segment {
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writeOffset;
+
+    private Segment(long id, Path path, MappedByteBuffer buffer) {
+      this.id = id;
+      this.path = path;
+      this.buffer = buffer;
+    }
+
+    private int capacity() {
+      return buffer.capacity();
+    }
+  }
+
+  private static final class Position {
+    private final Segment segment;
+    private final int offset;
+
+    private Position(Segment segment, int offset) {
+      this.segment = segment;
+      this.offset = offset;
+    }
+  }
+}
@@ -0,0 +1,375 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SpanExporter} that holds spans back until their whole trace can be judged, and passes
+ * only the traces it keeps to another exporter, typically a {@link TraceExporter}.
+ *
+ * <p>Spans are grouped by trace ID. A trace is decided once the decision wait has passed since
+ * its first span arrived: it is kept if any of its spans has an error status or a local root span
+ * took at least the latency threshold, and otherwise with the sampling probability. Spans that
+ * arrive after their trace was decided follow that decision.
+ *
+ * <p>Memory is bounded by the maximum number of buffered traces and spans. Traces are kept in
+ * arrival order, so both expiry and eviction only look at the oldest traces; when a limit is
+ * reached the oldest traces are decided early rather than dropped.
+ */
+public final class TailSamplingSpanExporter implements SpanExporter {
+
+  private static final Logger logger = Logger.getLogger(TailSamplingSpanExporter.class.getName());
+  private static final String WORKER_THREAD_NAME = "CloudTraceTailSampling_Worker";
+
+  static final Duration DEFAULT_DECISION_WAIT = Duration.ofSeconds(10);
+  static final Duration DEFAULT_LATENCY_THRESHOLD = Duration.ofSeconds(1);
+  static final double DEFAULT_SAMPLING_PROBABILITY = 0.01;
+  static final int DEFAULT_MAX_TRACES = 10_000;
+  static final int DEFAULT_MAX_BUFFERED_SPANS = 100_000;
+
+  private final SpanExporter spanExporter;
+  private final long decisionWaitNanos;
+  private final long latencyThresholdNanos;
+  private final double samplingProbability;
+  private final int maxTraces;
+  private final int maxBufferedSpans;
+  // Guarded by itself. Iteration order is the order in which each trace's first span arrived.
+  private final LinkedHashMap<TraceId, PendingTrace> pendingTraces = new LinkedHashMap<>();
+  // Guarded by pendingTraces. Remembers recent decisions for spans that arrive late.
+  private final Map<TraceId, Boolean> decisions;
+  private int bufferedSpans;
+  private final AtomicLong sampledTraces = new AtomicLong();
+  private final AtomicLong droppedTraces = new AtomicLong();
+  private final AtomicBoolean isShutdown = new AtomicBoolean();
+  private final ScheduledExecutorService worker;
+
+  private TailSamplingSpanExporter(
+      SpanExporter spanExporter,
+      Duration decisionWait,
+      Duration latencyThreshold,
+      double samplingProbability,
+      int maxTraces,
+      int maxBufferedSpans) {
+    this.spanExporter = spanExporter;
+    this.decisionWaitNanos = decisionWait.toNanos();
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.samplingProbability = samplingProbability;
+    this.maxTraces = maxTraces;
+    this.maxBufferedSpans = maxBufferedSpans;
+    this.decisions =
+        new LinkedHashMap<TraceId, Boolean>() {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<TraceId, Boolean> eldest) {
+            return size() > TailSamplingSpanExporter.this.maxTraces;
+          }
+        };
+    this.worker =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat(WORKER_THREAD_NAME).setDaemon(true).build());
+    // Checking ten times per window keeps traces at most 10% past their decision wait.
+    long periodNanos = Math.max(decisionWaitNanos / 10, TimeUnit.MILLISECONDS.toNanos(1));
+    worker.scheduleWithFixedDelay(
+        this::exportExpired, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns a new {@link Builder} for an exporter that passes the kept traces to {@code
+   * spanExporter}.
+   *
+   * @param spanExporter the exporter that receives the kept spans.
+   * @return a {@code Builder}.
+   */
+  public static Builder newBuilder(SpanExporter spanExporter) {
+    return new Builder(Preconditions.checkNotNull(spanExporter, "spanExporter"));
+  }
+
+  /**
+   * Buffers the spans until their traces are decided. Spans of traces that were already kept are
+   * passed on immediately.
+   */
+  @Override
+  public ResultCode export(Collection<SpanData> spans) {
+    if (isShutdown.get()) {
+      return ResultCode.FAILURE;
+    }
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (pendingTraces) {
+      long now = System.nanoTime();
+      for (SpanData span : spans) {
+        TraceId traceId = span.getTraceId();
+        Boolean decision = decisions.get(traceId);
+        if (decision != null) {
+          if (decision) {
+            kept.add(span);
+          }
+          continue;
+        }
+        PendingTrace trace = pendingTraces.get(traceId);
+        if (trace == null) {
+          trace = new PendingTrace(now);
+          pendingTraces.put(traceId, trace);
+        }
+        trace.add(span);
+        bufferedSpans++;
+      }
+      while (pendingTraces.size() > maxTraces || bufferedSpans > maxBufferedSpans) {
+        decideEldest(kept);
+      }
+    }
+    return kept.isEmpty() ? ResultCode.SUCCESS : spanExporter.export(kept);
+  }
+
+  /** Decides every buffered trace now, exports the kept ones and flushes the exporter. */
+  @Override
+  public ResultCode flush() {
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (pendingTraces) {
+      while (!pendingTraces.isEmpty()) {
+        decideEldest(kept);
+      }
+    }
+    ResultCode exported = kept.isEmpty() ? ResultCode.SUCCESS : spanExporter.export(kept);
+    ResultCode flushed = spanExporter.flush();
+    return exported == ResultCode.SUCCESS ? flushed : exported;
+  }
+
+  /** Decides and exports the buffered traces, then shuts the exporter down. */
+  @Override
+  public void shutdown() {
+    if (!isShutdown.compareAndSet(false, true)) {
+      return;
+    }
+    worker.shutdown();
+    flush();
+    spanExporter.shutdown();
+  }
+
+  /**
+   * Returns the number of traces that were kept and passed on.
+   *
+   * @return the number of sampled traces.
+   */
+  public long getSampledTraceCount() {
+    return sampledTraces.get();
+  }
+
+  /**
+   * Returns the number of traces that were decided against and discarded.
+   *
+   * @return the number of dropped traces.
+   */
+  public long getDroppedTraceCount() {
+    return droppedTraces.get();
+  }
+
+  /**
+   * Returns the number of spans waiting for their trace to be decided.
+   *
+   * @return the number of buffered spans.
+   */
+  public int getBufferedSpanCount() {
+    synchronized (pendingTraces) {
+      return bufferedSpans;
+    }
+  }
+
+  /** Decides the traces whose decision wait has passed by {@code now} and exports the kept ones. */
+  void exportExpired(long now) {
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (pendingTraces) {
+      while (!pendingTraces.isEmpty()
+          && now - pendingTraces.values().iterator().next().firstSeenNanos >= decisionWaitNanos) {
+        decideEldest(kept);
+      }
+    }
+    if (!kept.isEmpty()) {
+      spanExporter.export(kept);
+    }
+  }
+
+  private void exportExpired() {
+    try {
+      exportExpired(System.nanoTime());
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Exception thrown by the export.", e);
+    }
+  }
+
+  // Removes the oldest pending trace, records its decision and adds its spans to kept if the
+  // trace is sampled. Must hold the pendingTraces lock.
+  private void decideEldest(List<SpanData> kept) {
+    Iterator<Map.Entry<TraceId, PendingTrace>> oldest = pendingTraces.entrySet().iterator();
+    Map.Entry<TraceId, PendingTrace> entry = oldest.next();
+    oldest.remove();
+    PendingTrace trace = entry.getValue();
+    bufferedSpans -= trace.spans.size();
+    boolean keep =
+        trace.interesting || ThreadLocalRandom.current().nextDouble() < samplingProbability;
+    decisions.put(entry.getKey(), keep);
+    if (keep) {
+      kept.addAll(trace.spans);
+      sampledTraces.incrementAndGet();
+    } else {
+      droppedTraces.incrementAndGet();
+    }
+  }
+
+  private final class PendingTrace {
+    private final long firstSeenNanos;
+    private final List<SpanData> spans = new ArrayList<>();
+    // Whether a rule other than the probability already keeps the trace.
+    private boolean interesting;
+
+    private PendingTrace(long firstSeenNanos) {
+      this.firstSeenNanos = firstSeenNanos;
+    }
+
+    private void add(SpanData span) {
+      spans.add(span);
+      Status status = span.getStatus();
+      if (status != null && !status.isOk()) {
+        interesting = true;
+      } else if (isLocalRoot(span)
+          && span.getEndEpochNanos() - span.getStartEpochNanos() >= latencyThresholdNanos) {
+        interesting = true;
+      }
+    }
+
+    // Like TraceTranslator, treats a missing status, parent or remote-parent flag as unset.
+    private boolean isLocalRoot(SpanData span) {
+      SpanId parentSpanId = span.getParentSpanId();
+      return parentSpanId == null
+          || !parentSpanId.isValid()
+          || Boolean.TRUE.equals(span.getHasRemoteParent());
+    }
+  }
+
+  /** Builder for {@link TailSamplingSpanExporter}. */
+  public static final class Builder {
+
+    private final SpanExporter spanExporter;
+    private Duration decisionWait = DEFAULT_DECISION_WAIT;
+    private Duration latencyThreshold = DEFAULT_LATENCY_THRESHOLD;
+    private double samplingProbability = DEFAULT_SAMPLING_PROBABILITY;
+    private int maxTraces = DEFAULT_MAX_TRACES;
+    private int maxBufferedSpans = DEFAULT_MAX_BUFFERED_SPANS;
+
+    private Builder(SpanExporter spanExporter) {
+      this.spanExporter = spanExporter;
+    }
+
+    /**
+     * Sets how long after its first span a trace is decided. It should cover the time between
+     * the first and the last span of a trace reaching this exporter.
+     *
+     * <p>Default value is 10 seconds.
+     *
+     * @param decisionWait the time to wait for the rest of a trace.
+     * @return this.
+     */
+    public Builder setDecisionWait(Duration decisionWait) {
+      this.decisionWait = Preconditions.checkNotNull(decisionWait, "decisionWait");
+      return this;
+    }
+
+    /**
+     * Sets the duration of a local root span from which its trace is always kept.
+     *
+     * <p>Default value is 1 second.
+     *
+     * @param latencyThreshold the minimum root span duration of a kept trace.
+     * @return this.
+     */
+    public Builder setLatencyThreshold(Duration latencyThreshold) {
+      this.latencyThreshold = Preconditions.checkNotNull(latencyThreshold, "latencyThreshold");
+      return this;
+    }
+
+    /**
+     * Sets the probability with which traces without errors or slow root spans are kept.
+     *
+     * <p>Default value is 0.01.
+     *
+     * @param samplingProbability the probability, between 0 and 1.
+     * @return this.
+     */
+    public Builder setSamplingProbability(double samplingProbability) {
+      this.samplingProbability = samplingProbability;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of traces waiting for a decision. Beyond it the oldest trace is
+     * decided early.
+     *
+     * <p>Default value is 10000.
+     *
+     * @param maxTraces the maximum number of buffered traces.
+     * @return this.
+     */
+    public Builder setMaxTraces(int maxTraces) {
+      this.maxTraces = maxTraces;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of spans waiting for their trace to be decided. Beyond it the
+     * oldest traces are decided early.
+     *
+     * <p>Default value is 100000.
+     *
+     * @param maxBufferedSpans the maximum number of buffered spans.
+     * @return this.
+     */
+    public Builder setMaxBufferedSpans(int maxBufferedSpans) {
+      this.maxBufferedSpans = maxBufferedSpans;
+      return this;
+    }
+
+    /**
+     * Builds a {@link TailSamplingSpanExporter} and starts its worker thread.
+     *
+     * @return a {@code TailSamplingSpanExporter}.
+     */
+    public TailSamplingSpanExporter build() {
+      Preconditions.checkArgument(
+          !decisionWait.isNegative() && !decisionWait.isZero(),
+          "Decision wait must be positive.");
+      Preconditions.checkArgument(
+          !latencyThreshold.isNegative(), "Latency threshold must not be negative.");
+      Preconditions.checkArgument(
+          samplingProbability >= 0 && samplingProbability <= 1,
+          "Sampling probability must be between 0 and 1.");
+      Preconditions.checkArgument(maxTraces > 0, "Max traces must be positive.");
+      Preconditions.checkArgument(maxBufferedSpans > 0, "Max buffered spans must be positive.");
+      return new TailSamplingSpanExporter(
+          spanExporter,
+          decisionWait,
+          latencyThreshold,
+          samplingProbability,
+          maxTraces,
+          maxBufferedSpans);
+    }
+  }
+}
@@ -8,13 +8,17 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.devtools.cloudtrace.v2.AttributeValue;
+import io.grpc.Compressor;
+import io.opentelemetry.metrics.MeterProvider;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /** Configurations for {@link TraceExporter}. */
 @AutoValue
@@ -25,6 +29,28 @@ public abstract class TraceConfiguration {
       Strings.nullToEmpty(ServiceOptions.getDefaultProjectId());
 
   @VisibleForTesting static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(10, 0);
+  @VisibleForTesting static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 64;
+  @VisibleForTesting static final int DEFAULT_INITIAL_IN_FLIGHT_REQUESTS = 16;
+  @VisibleForTesting static final int DEFAULT_CHANNEL_POOL_SIZE = 1;
+  @VisibleForTesting static final Duration DEFAULT_FLUSH_TIMEOUT = Duration.ofSeconds(10, 0);
+  @VisibleForTesting static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+  // Stays under the 4 MiB default gRPC message size limit with room for metadata.
+  @VisibleForTesting static final int DEFAULT_MAX_BATCH_BYTES = 3 * 1024 * 1024;
+  @VisibleForTesting static final int DEFAULT_TRANSLATION_CACHE_SIZE = 0;
+  @VisibleForTesting static final int DEFAULT_PARALLEL_TRANSLATION_THRESHOLD = 0;
+  // The most Cloud Trace stores per span.
+  @VisibleForTesting static final int DEFAULT_MAX_ATTRIBUTES_PER_SPAN = 32;
+  @VisibleForTesting static final int DEFAULT_MAX_ANNOTATIONS_PER_SPAN = 32;
+  @VisibleForTesting static final int DEFAULT_MAX_LINKS_PER_SPAN = 128;
+  @VisibleForTesting static final long DEFAULT_MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+  @VisibleForTesting static final long DEFAULT_MAX_SPILL_BYTES = 256L * 1024 * 1024;
+  @VisibleForTesting static final int DEFAULT_MAX_RETRY_ATTEMPTS = 3;
+  @VisibleForTesting static final Duration DEFAULT_INITIAL_RETRY_BACKOFF = Duration.ofMillis(100);
+  @VisibleForTesting static final Duration DEFAULT_MAX_RETRY_BACKOFF = Duration.ofSeconds(5);
+  @VisibleForTesting static final double DEFAULT_RETRY_BUDGET_RATIO = 0.1;
+  @VisibleForTesting static final int DEFAULT_MAX_EXPORT_THREADS = 8;
+  @VisibleForTesting static final Duration DEFAULT_PROJECT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+  @VisibleForTesting static final int DEFAULT_MAX_ROUTED_PROJECTS = 100;
 
   TraceConfiguration() {}
 
@@ -67,6 +93,245 @@ public abstract class TraceConfiguration {
    */
   public abstract Duration getDeadline();
 
+  /**
+   * Returns the maximum number of {@code BatchWriteSpans} calls that may be outstanding at once.
+   * The exporter adapts its concurrency limit to the observed latency, but never above this.
+   *
+   * <p>Default value is 64.
+   *
+   * @return the maximum number of in-flight export requests.
+   */
+  public abstract int getMaxInFlightRequests();
+
+  /**
+   * Returns the number of {@code BatchWriteSpans} calls that may be outstanding at once before the
+   * exporter has adapted its concurrency limit. Values above {@link #getMaxInFlightRequests()}
+   * are capped to it.
+   *
+   * <p>Default value is 16.
+   *
+   * @return the initial number of in-flight export requests.
+   */
+  public abstract int getInitialInFlightRequests();
+
+  /**
+   * Returns the number of gRPC channels, each with its own connection, that export requests are
+   * spread over.
+   *
+   * <p>Default value is 1.
+   *
+   * @return the channel pool size.
+   */
+  public abstract int getChannelPoolSize();
+
+  /**
+   * Returns the compressor applied to {@code BatchWriteSpans} requests, or {@code null} if they
+   * are sent uncompressed.
+   *
+   * @return the request compressor.
+   */
+  @Nullable
+  public abstract Compressor getCompressor();
+
+  /**
+   * Returns how long {@link TraceExporter#flush()} and {@link TraceExporter#shutdown()} wait for
+   * outstanding export requests to finish.
+   *
+   * <p>Default value is 10 seconds.
+   *
+   * @return the flush timeout.
+   */
+  public abstract Duration getFlushTimeout();
+
+  /**
+   * Returns the maximum number of spans sent in a single {@code BatchWriteSpans} request.
+   *
+   * <p>Default value is 1000.
+   *
+   * @return the maximum number of spans per request.
+   */
+  public abstract int getMaxBatchSize();
+
+  /**
+   * Returns the maximum serialized size, in bytes, of a single {@code BatchWriteSpans} request.
+   *
+   * <p>Default value is 3 MiB.
+   *
+   * @return the maximum number of bytes per request.
+   */
+  public abstract int getMaxBatchBytes();
+
+  /**
+   * Returns the maximum number of translated attribute values, and of display names per span
+   * kind, that are cached across exports. Zero disables the cache.
+   *
+   * <p>Default value is 0.
+   *
+   * @return the translation cache size.
+   */
+  public abstract int getTranslationCacheSize();
+
+  /**
+   * Returns the smallest number of spans an export must have to be translated on several threads.
+   * Zero translates every export on the thread that exports it.
+   *
+   * <p>Default value is 0.
+   *
+   * @return the parallel translation threshold.
+   */
+  public abstract int getParallelTranslationThreshold();
+
+  /**
+   * Returns the executor that translates parts of large exports, or {@code null} to use {@link
+   * java.util.concurrent.ForkJoinPool#commonPool()}.
+   *
+   * @return the translation executor.
+   */
+  @Nullable
+  public abstract Executor getTranslationExecutor();
+
+  /**
+   * Returns the maximum number of a span's own attributes that are exported. The agent label and
+   * the fixed attributes are always added on top.
+   *
+   * <p>Default value is 32.
+   *
+   * @return the maximum number of attributes per span.
+   */
+  public abstract int getMaxAttributesPerSpan();
+
+  /**
+   * Returns the maximum number of a span's events that are exported as annotations.
+   *
+   * <p>Default value is 32.
+   *
+   * @return the maximum number of annotations per span.
+   */
+  public abstract int getMaxAnnotationsPerSpan();
+
+  /**
+   * Returns the maximum number of a span's links that are exported.
+   *
+   * <p>Default value is 128.
+   *
+   * @return the maximum number of links per span.
+   */
+  public abstract int getMaxLinksPerSpan();
+
+  /**
+   * Returns the maximum number of serialized span bytes the exporter holds for requests that have
+   * not completed yet.
+   *
+   * <p>Default value is 64 MiB.
+   *
+   * @return the byte budget for buffered spans.
+   */
+  public abstract long getMaxBufferedBytes();
+
+  /**
+   * Returns the directory where spans that could not be exported are spilled to disk, or {@code
+   * null} if spilling is disabled.
+   *
+   * @return the spill directory.
+   */
+  @Nullable
+  public abstract Path getSpillDirectory();
+
+  /**
+   * Returns the maximum number of bytes the spill files take on disk.
+   *
+   * <p>Default value is 256 MiB.
+   *
+   * @return the spill size limit.
+   */
+  public abstract long getMaxSpillBytes();
+
+  /**
+   * Returns how many times a request that failed with {@code UNAVAILABLE} or {@code
+   * DEADLINE_EXCEEDED} is retried.
+   *
+   * <p>Default value is 3.
+   *
+   * @return the maximum number of retries per request.
+   */
+  public abstract int getMaxRetryAttempts();
+
+  /**
+   * Returns the upper bound of the randomized delay before the first retry. It doubles with every
+   * further retry.
+   *
+   * <p>Default value is 100 milliseconds.
+   *
+   * @return the initial retry backoff.
+   */
+  public abstract Duration getInitialRetryBackoff();
+
+  /**
+   * Returns the cap on the randomized delay between retries.
+   *
+   * <p>Default value is 5 seconds.
+   *
+   * @return the maximum retry backoff.
+   */
+  public abstract Duration getMaxRetryBackoff();
+
+  /**
+   * Returns the largest fraction of requests that may be retried, on top of a small burst.
+   *
+   * <p>Default value is 0.1.
+   *
+   * @return the retry budget ratio.
+   */
+  public abstract double getRetryBudgetRatio();
+
+  /**
+   * Returns the maximum number of platform threads that run retries, gRPC callbacks and
+   * credential refreshes. It is ignored on JDK 21 and later, where every such task runs on its
+   * own virtual thread.
+   *
+   * <p>Default value is 8.
+   *
+   * @return the maximum number of export threads.
+   */
+  public abstract int getMaxExportThreads();
+
+  /**
+   * Returns the key of the span or resource attribute that names the project each span is
+   * exported to, or {@code null} if every span goes to {@link #getProjectId()}.
+   *
+   * @return the project ID attribute key.
+   */
+  @Nullable
+  public abstract String getProjectIdAttributeKey();
+
+  /**
+   * Returns how long a project that spans were routed to may go without spans before its batcher
+   * is released.
+   *
+   * <p>Default value is 10 minutes.
+   *
+   * @return the project idle timeout.
+   */
+  public abstract Duration getProjectIdleTimeout();
+
+  /**
+   * Returns the maximum number of projects, besides the default one, that hold a batcher at once.
+   *
+   * <p>Default value is 100.
+   *
+   * @return the maximum number of routed projects.
+   */
+  public abstract int getMaxRoutedProjects();
+
+  /**
+   * Returns the {@code MeterProvider} the exporter reports its own metrics to, or {@code null} to
+   * use the global one from {@code OpenTelemetry.getMeterProvider()}.
+   *
+   * @return the meter provider for the exporter's metrics.
+   */
+  @Nullable
+  public abstract MeterProvider getMeterProvider();
+
   /**
    * Returns a new {@link Builder}.
    *
@@ -76,7 +341,27 @@ public abstract class TraceConfiguration {
     return new AutoValue_TraceConfiguration.Builder()
         .setProjectId(DEFAULT_PROJECT_ID)
         .setFixedAttributes(Collections.emptyMap())
-        .setDeadline(DEFAULT_DEADLINE);
+        .setDeadline(DEFAULT_DEADLINE)
+        .setMaxInFlightRequests(DEFAULT_MAX_IN_FLIGHT_REQUESTS)
+        .setInitialInFlightRequests(DEFAULT_INITIAL_IN_FLIGHT_REQUESTS)
+        .setChannelPoolSize(DEFAULT_CHANNEL_POOL_SIZE)
+        .setFlushTimeout(DEFAULT_FLUSH_TIMEOUT)
+        .setMaxBatchSize(DEFAULT_MAX_BATCH_SIZE)
+        .setMaxBatchBytes(DEFAULT_MAX_BATCH_BYTES)
+        .setTranslationCacheSize(DEFAULT_TRANSLATION_CACHE_SIZE)
+        .setParallelTranslationThreshold(DEFAULT_PARALLEL_TRANSLATION_THRESHOLD)
+        .setMaxAttributesPerSpan(DEFAULT_MAX_ATTRIBUTES_PER_SPAN)
+        .setMaxAnnotationsPerSpan(DEFAULT_MAX_ANNOTATIONS_PER_SPAN)
+        .setMaxLinksPerSpan(DEFAULT_MAX_LINKS_PER_SPAN)
+        .setMaxBufferedBytes(DEFAULT_MAX_BUFFERED_BYTES)
+        .setMaxSpillBytes(DEFAULT_MAX_SPILL_BYTES)
+        .setMaxRetryAttempts(DEFAULT_MAX_RETRY_ATTEMPTS)
+        .setInitialRetryBackoff(DEFAULT_INITIAL_RETRY_BACKOFF)
+        .setMaxRetryBackoff(DEFAULT_MAX_RETRY_BACKOFF)
+        .setRetryBudgetRatio(DEFAULT_RETRY_BUDGET_RATIO)
+        .setMaxExportThreads(DEFAULT_MAX_EXPORT_THREADS)
+        .setProjectIdleTimeout(DEFAULT_PROJECT_IDLE_TIMEOUT)
+        .setMaxRoutedProjects(DEFAULT_MAX_ROUTED_PROJECTS);
   }
 
   /** Builder for {@link TraceConfiguration}. */
@@ -130,12 +415,318 @@ public abstract class TraceConfiguration {
      */
     public abstract Builder setDeadline(Duration deadline);
 
+    /**
+     * Sets the maximum number of {@code BatchWriteSpans} calls that may be outstanding at once.
+     * The exporter starts at {@link #setInitialInFlightRequests(int)}, raises its limit by one
+     * request at a time while latency stays stable and halves it when calls time out or are
+     * rejected with {@code RESOURCE_EXHAUSTED}. Exports that arrive while the current limit is
+     * reached are rejected.
+     *
+     * @param maxInFlightRequests the maximum number of in-flight export requests.
+     * @return this
+     */
+    public abstract Builder setMaxInFlightRequests(int maxInFlightRequests);
+
+    /**
+     * Sets the concurrency limit the exporter starts with, before it has seen any latency.
+     *
+     * @param initialInFlightRequests the initial number of in-flight export requests.
+     * @return this
+     */
+    public abstract Builder setInitialInFlightRequests(int initialInFlightRequests);
+
+    /**
+     * Sets the number of gRPC channels that export requests are spread over. Each request goes to
+     * the healthy channel with the fewest outstanding requests, so a single connection's stream
+     * limit and flow control window no longer cap the export bandwidth.
+     *
+     * <p>If {@code TraceServiceStub} is set, it takes precedence and {@code ChannelPoolSize} will
+     * not be respected.
+     *
+     * @param channelPoolSize the channel pool size.
+     * @return this
+     */
+    public abstract Builder setChannelPoolSize(int channelPoolSize);
+
+    /**
+     * Sets the compressor applied to {@code BatchWriteSpans} requests, for example {@code new
+     * Codec.Gzip()}. Span payloads repeat the same attribute keys and values and typically shrink
+     * several times over, at the cost of CPU time on the export path.
+     *
+     * <p>If {@code TraceServiceStub} is set, only the message encodings its channel supports can be
+     * used, which by default is gzip.
+     *
+     * @param compressor the request compressor.
+     * @return this
+     */
+    public abstract Builder setCompressor(Compressor compressor);
+
+    /**
+     * Sets how long {@link TraceExporter#flush()} and {@link TraceExporter#shutdown()} wait for
+     * outstanding export requests to finish.
+     *
+     * @param flushTimeout the flush timeout.
+     * @return this
+     */
+    public abstract Builder setFlushTimeout(Duration flushTimeout);
+
+    /**
+     * Sets the maximum number of spans sent in a single {@code BatchWriteSpans} request. Larger
+     * exports are split into several requests that are sent concurrently.
+     *
+     * @param maxBatchSize the maximum number of spans per request.
+     * @return this
+     */
+    public abstract Builder setMaxBatchSize(int maxBatchSize);
+
+    /**
+     * Sets the maximum serialized size, in bytes, of a single {@code BatchWriteSpans} request.
+     * Larger exports are split into several requests that are sent concurrently.
+     *
+     * @param maxBatchBytes the maximum number of bytes per request.
+     * @return this
+     */
+    public abstract Builder setMaxBatchBytes(int maxBatchBytes);
+
+    /**
+     * Sets the maximum number of translated attribute values, and of display names per span kind,
+     * that are cached across exports. Least recently used entries are evicted first. Hit and miss
+     * counts are reported by {@link TraceExporter#getTranslationCacheStats()}.
+     *
+     * @param translationCacheSize the translation cache size, or zero to disable the cache.
+     * @return this
+     */
+    public abstract Builder setTranslationCacheSize(int translationCacheSize);
+
+    /**
+     * Sets the smallest number of spans an export must have to be translated on several threads.
+     * Such exports are cut into contiguous ranges that the {@link
+     * #setTranslationExecutor(Executor) translation executor} and the exporting thread translate
+     * at the same time, and the spans are sent in their original order. Smaller exports stay on
+     * the exporting thread, where scheduling would cost more than it saves; {@code
+     * ParallelTranslationBenchmark} measures where that crossover lies on a given machine.
+     *
+     * @param parallelTranslationThreshold the parallel translation threshold, or zero to always
+     *     translate on the exporting thread.
+     * @return this
+     */
+    public abstract Builder setParallelTranslationThreshold(int parallelTranslationThreshold);
+
+    /**
+     * Sets the executor that translates parts of exports above the {@link
+     * #setParallelTranslationThreshold(int) parallel translation threshold}. Ranges it rejects
+     * are translated by the exporting thread. It is not shut down with the exporter.
+     *
+     * @param translationExecutor the translation executor.
+     * @return this
+     */
+    public abstract Builder setTranslationExecutor(Executor translationExecutor);
+
+    /**
+     * Sets the maximum number of a span's own attributes that are exported. Attributes beyond it
+     * are not translated and are reported in the span's dropped attributes count, together with
+     * those the SDK already dropped. The agent label and the fixed attributes are always kept.
+     *
+     * @param maxAttributesPerSpan the maximum number of attributes per span.
+     * @return this
+     */
+    public abstract Builder setMaxAttributesPerSpan(int maxAttributesPerSpan);
+
+    /**
+     * Sets the maximum number of a span's events that are exported as annotations. The first
+     * events are kept; the rest are not translated and are reported in the span's dropped
+     * annotations count, together with those the SDK already dropped.
+     *
+     * @param maxAnnotationsPerSpan the maximum number of annotations per span.
+     * @return this
+     */
+    public abstract Builder setMaxAnnotationsPerSpan(int maxAnnotationsPerSpan);
+
+    /**
+     * Sets the maximum number of a span's links that are exported. The first links are kept; the
+     * rest are not translated and are reported in the span's dropped links count, together with
+     * those the SDK already dropped.
+     *
+     * @param maxLinksPerSpan the maximum number of links per span.
+     * @return this
+     */
+    public abstract Builder setMaxLinksPerSpan(int maxLinksPerSpan);
+
+    /**
+     * Sets the maximum number of serialized span bytes the exporter holds for requests that have
+     * not completed yet. A request that would exceed it is dropped as a whole, so spans that were
+     * already accepted are never evicted. Dropped spans are counted by {@link
+     * TraceExporter#getDroppedSpanCount()}.
+     *
+     * @param maxBufferedBytes the byte budget for buffered spans.
+     * @return this
+     */
+    public abstract Builder setMaxBufferedBytes(long maxBufferedBytes);
+
+    /**
+     * Sets the directory where spans are spilled to disk when their export fails with an error
+     * that may pass, such as {@code UNAVAILABLE}, or when they would exceed the in-flight or
+     * buffered byte limits. Spilled spans are replayed in order, one request at a time, once
+     * exports succeed again or after a backoff, including after a restart. Replayed spans that
+     * Cloud Trace rejects are dropped.
+     *
+     * @param spillDirectory the spill directory.
+     * @return this
+     */
+    public abstract Builder setSpillDirectory(Path spillDirectory);
+
+    /**
+     * Sets the maximum number of bytes the spill files take on disk. Spans that do not fit are
+     * dropped.
+     *
+     * @param maxSpillBytes the spill size limit.
+     * @return this
+     */
+    public abstract Builder setMaxSpillBytes(long maxSpillBytes);
+
+    /**
+     * Sets how many times a request that failed with {@code UNAVAILABLE} or {@code
+     * DEADLINE_EXCEEDED} is retried. Zero disables retries.
+     *
+     * @param maxRetryAttempts the maximum number of retries per request.
+     * @return this
+     */
+    public abstract Builder setMaxRetryAttempts(int maxRetryAttempts);
+
+    /**
+     * Sets the upper bound of the randomized delay before the first retry. It doubles with every
+     * further retry, up to the maximum retry backoff.
+     *
+     * @param initialRetryBackoff the initial retry backoff.
+     * @return this
+     */
+    public abstract Builder setInitialRetryBackoff(Duration initialRetryBackoff);
+
+    /**
+     * Sets the cap on the randomized delay between retries.
+     *
+     * @param maxRetryBackoff the maximum retry backoff.
+     * @return this
+     */
+    public abstract Builder setMaxRetryBackoff(Duration maxRetryBackoff);
+
+    /**
+     * Sets the largest fraction of requests that may be retried. Every request earns the exporter
+     * this fraction of a retry, so when most requests fail, retrying stops instead of multiplying
+     * the load.
+     *
+     * @param retryBudgetRatio the retry budget ratio, between 0 and 1.
+     * @return this
+     */
+    public abstract Builder setRetryBudgetRatio(double retryBudgetRatio);
+
+    /**
+     * Sets the maximum number of platform threads that run retries, gRPC callbacks and credential
+     * refreshes; further tasks wait for a free thread. On JDK 21 and later the exporter runs these
+     * tasks on virtual threads instead, so thousands of them can block at once, and this limit
+     * does not apply.
+     *
+     * @param maxExportThreads the maximum number of export threads.
+     * @return this
+     */
+    public abstract Builder setMaxExportThreads(int maxExportThreads);
+
+    /**
+     * Sets the key of the attribute that names the project each span is exported to. The span's
+     * own attributes are checked first, then its resource's. Spans without a non-empty string
+     * value under this key go to {@link #setProjectId(String) the project ID}. Every project gets
+     * its own batches, while the channel pool, credentials and request limits are shared.
+     *
+     * <p>Routing cannot be combined with {@link #setSpillDirectory(Path) spilling}, since spill
+     * files do not record which project their spans belong to.
+     *
+     * @param projectIdAttributeKey the project ID attribute key.
+     * @return this
+     */
+    public abstract Builder setProjectIdAttributeKey(String projectIdAttributeKey);
+
+    /**
+     * Sets how long a project that spans were routed to may go without spans before its batcher
+     * and encoders are released. They are created again when the next span for the project
+     * arrives.
+     *
+     * @param projectIdleTimeout the project idle timeout.
+     * @return this
+     */
+    public abstract Builder setProjectIdleTimeout(Duration projectIdleTimeout);
+
+    /**
+     * Sets the maximum number of projects, besides the default one, that hold a batcher at once.
+     * Once it is reached, the least recently used project's batcher is released to make room,
+     * which bounds the memory that spans naming many different projects can take.
+     *
+     * @param maxRoutedProjects the maximum number of routed projects.
+     * @return this
+     */
+    public abstract Builder setMaxRoutedProjects(int maxRoutedProjects);
+
+    /**
+     * Sets the {@code MeterProvider} the exporter reports its own metrics to: exported, failed and
+     * dropped span counts, bytes sent, batch sizes, RPC latency, translation time and gauges for
+     * in-flight requests, pending exports and buffered bytes.
+     *
+     * @param meterProvider the meter provider for the exporter's metrics.
+     * @return this
+     */
+    public abstract Builder setMeterProvider(MeterProvider meterProvider);
+
     abstract String getProjectId();
 
     abstract Map<String, AttributeValue> getFixedAttributes();
 
     abstract Duration getDeadline();
 
+    abstract int getMaxInFlightRequests();
+
+    abstract int getInitialInFlightRequests();
+
+    abstract int getChannelPoolSize();
+
+    abstract Duration getFlushTimeout();
+
+    abstract int getMaxBatchSize();
+
+    abstract int getMaxBatchBytes();
+
+    abstract int getTranslationCacheSize();
+
+    abstract int getParallelTranslationThreshold();
+
+    abstract int getMaxAttributesPerSpan();
+
+    abstract int getMaxAnnotationsPerSpan();
+
+    abstract int getMaxLinksPerSpan();
+
+    abstract long getMaxBufferedBytes();
+
+    abstract long getMaxSpillBytes();
+
+    abstract int getMaxRetryAttempts();
+
+    abstract Duration getInitialRetryBackoff();
+
+    abstract Duration getMaxRetryBackoff();
+
+    abstract double getRetryBudgetRatio();
+
+    abstract int getMaxExportThreads();
+
+    @Nullable
+    abstract Path getSpillDirectory();
+
+    @Nullable
+    abstract String getProjectIdAttributeKey();
+
+    abstract Duration getProjectIdleTimeout();
+
+    abstract int getMaxRoutedProjects();
+
     abstract TraceConfiguration autoBuild();
 
     /**
@@ -156,6 +747,52 @@ public abstract class TraceConfiguration {
         Preconditions.checkNotNull(fixedAttribute.getValue(), "attribute value");
       }
       Preconditions.checkArgument(getDeadline().compareTo(ZERO) > 0, "Deadline must be positive.");
+      Preconditions.checkArgument(
+          getMaxInFlightRequests() > 0, "Max in-flight requests must be positive.");
+      Preconditions.checkArgument(
+          getInitialInFlightRequests() > 0, "Initial in-flight requests must be positive.");
+      Preconditions.checkArgument(getChannelPoolSize() > 0, "Channel pool size must be positive.");
+      Preconditions.checkArgument(
+          getFlushTimeout().compareTo(ZERO) > 0, "Flush timeout must be positive.");
+      Preconditions.checkArgument(getMaxBatchSize() > 0, "Max batch size must be positive.");
+      Preconditions.checkArgument(getMaxBatchBytes() > 0, "Max batch bytes must be positive.");
+      Preconditions.checkArgument(
+          getTranslationCacheSize() >= 0, "Translation cache size must not be negative.");
+      Preconditions.checkArgument(
+          getParallelTranslationThreshold() >= 0,
+          "Parallel translation threshold must not be negative.");
+      Preconditions.checkArgument(
+          getMaxAttributesPerSpan() >= 0, "Max attributes per span must not be negative.");
+      Preconditions.checkArgument(
+          getMaxAnnotationsPerSpan() >= 0, "Max annotations per span must not be negative.");
+      Preconditions.checkArgument(
+          getMaxLinksPerSpan() >= 0, "Max links per span must not be negative.");
+      Preconditions.checkArgument(
+          getMaxBufferedBytes() > 0, "Max buffered bytes must be positive.");
+      Preconditions.checkArgument(
+          getMaxSpillBytes() > SpillQueue.RECORD_HEADER_BYTES, "Max spill bytes is too small.");
+      Preconditions.checkArgument(
+          getMaxRetryAttempts() >= 0, "Max retry attempts must not be negative.");
+      Preconditions.checkArgument(
+          getInitialRetryBackoff().compareTo(ZERO) > 0, "Initial retry backoff must be positive.");
+      Preconditions.checkArgument(
+          getMaxRetryBackoff().compareTo(getInitialRetryBackoff()) >= 0,
+          "Max retry backoff must not be less than the initial retry backoff.");
+      Preconditions.checkArgument(
+          getRetryBudgetRatio() >= 0 && getRetryBudgetRatio() <= 1,
+          "Retry budget ratio must be between 0 and 1.");
+      Preconditions.checkArgument(
+          getMaxExportThreads() > 0, "Max export threads must be positive.");
+      Preconditions.checkArgument(
+          getProjectIdAttributeKey() == null || !getProjectIdAttributeKey().isEmpty(),
+          "Project ID attribute key must not be empty.");
+      Preconditions.checkArgument(
+          getProjectIdAttributeKey() == null || getSpillDirectory() == null,
+          "Project routing cannot be combined with a spill directory.");
+      Preconditions.checkArgument(
+          getProjectIdleTimeout().compareTo(ZERO) > 0, "Project idle timeout must be positive.");
+      Preconditions.checkArgument(
+          getMaxRoutedProjects() > 0, "Max routed projects must be positive.");
       return autoBuild();
     }
   }
@@ -1,32 +1,86 @@
 package com.google.cloud.opentelemetry.trace;
 
-import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.auth.Credentials;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.trace.v2.TraceServiceClient;
-import com.google.cloud.trace.v2.TraceServiceSettings;
 import com.google.cloud.trace.v2.stub.TraceServiceStub;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.devtools.cloudtrace.v2.AttributeValue;
 import com.google.devtools.cloudtrace.v2.ProjectName;
-import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.grpc.Compressor;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.opentelemetry.OpenTelemetry;
+import io.opentelemetry.metrics.MeterProvider;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static com.google.api.client.util.Preconditions.checkNotNull;
 
 public class TraceExporter implements SpanExporter {
 
+  private static final Logger logger = Logger.getLogger(TraceExporter.class.getName());
+  private static final String RETRY_THREAD_NAME = "CloudTraceExporter_Retry";
+  private static final String EXPORT_THREAD_NAME = "CloudTraceExporter_Export";
+
   private final CloudTraceClient cloudTraceClient;
-  private final ProjectName projectName;
-  private final String projectId;
-  private final Map<String, AttributeValue> fixedAttributes;
+  @Nullable private final TranslationCache translationCache;
+  private final ProjectRouter projectRouter;
+  private final AimdLimiter inFlightRequests;
+  private final long maxBufferedBytes;
+  private final AtomicLong bufferedBytes = new AtomicLong();
+  private final AtomicLong droppedSpans = new AtomicLong();
+  private final ExporterMetrics metrics;
+  @Nullable private final SpillQueue spillQueue;
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final AtomicBoolean replayInFlight = new AtomicBoolean();
+  private volatile boolean replayBlocked;
+  // Replays that failed in a row, which sets the backoff before replaying is resumed.
+  private final AtomicInteger replayFailures = new AtomicInteger();
+  private final Duration flushTimeout;
+  private final RetryPolicy retryPolicy;
+  private final ScheduledExecutorService retryExecutor;
+  private final ExecutorService exportExecutor;
+  private final Set<ApiFuture<Empty>> pendingExports = ConcurrentHashMap.newKeySet();
+  // Exports whose retry is scheduled but not yet handed to the export executor.
+  private final Set<Export> awaitingRetry = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean isShutdown = new AtomicBoolean();
 
   public static TraceExporter createWithDefaultConfiguration() throws IOException {
     TraceConfiguration configuration = TraceConfiguration.builder().build();
@@ -35,7 +89,6 @@ public class TraceExporter implements SpanExporter {
 
   public static TraceExporter createWithConfiguration(TraceConfiguration configuration)
       throws IOException {
-    String projectId = configuration.getProjectId();
     TraceServiceStub stub = configuration.getTraceServiceStub();
 
     if (stub == null) {
@@ -44,67 +97,664 @@ public class TraceExporter implements SpanExporter {
               ? GoogleCredentials.getApplicationDefault()
               : configuration.getCredentials();
 
-      return TraceExporter.createWithCredentials(
-          projectId, credentials, configuration.getFixedAttributes(), configuration.getDeadline());
+      return TraceExporter.createWithCredentials(credentials, configuration);
     }
+    Compressor compressor = configuration.getCompressor();
     return TraceExporter.createWithClient(
-        projectId, new CloudTraceClientImpl(TraceServiceClient.create(stub)), configuration.getFixedAttributes());
+        new CloudTraceClientImpl(
+            TraceServiceClient.create(stub),
+            compressor == null ? null : compressor.getMessageEncoding()),
+        configuration);
   }
 
   private static TraceExporter createWithClient(
-      String projectId,
-      CloudTraceClient cloudTraceClient,
-      Map<String, AttributeValue> fixedAttributes) {
-    return new TraceExporter(projectId, cloudTraceClient, fixedAttributes);
+      CloudTraceClient cloudTraceClient, TraceConfiguration configuration) throws IOException {
+    return new TraceExporter(cloudTraceClient, configuration, openSpillQueue(configuration));
   }
 
   private static TraceExporter createWithCredentials(
-      String projectId,
-      Credentials credentials,
-      Map<String, AttributeValue> fixedAttributes,
-      Duration deadline)
-      throws IOException {
-    TraceServiceSettings.Builder builder =
-        TraceServiceSettings.newBuilder()
-            .setCredentialsProvider(
-                FixedCredentialsProvider.create(checkNotNull(credentials, "credentials")));
-    // We only use the batchWriteSpans API in this exporter.
-    builder
-        .batchWriteSpansSettings()
-        .setSimpleTimeoutNoRetries(org.threeten.bp.Duration.ofMillis(deadline.toMillis()));
-    return new TraceExporter(
-        projectId, new CloudTraceClientImpl(TraceServiceClient.create(builder.build())), fixedAttributes);
+      Credentials credentials, TraceConfiguration configuration) throws IOException {
+    SpillQueue spillQueue = openSpillQueue(configuration);
+    // The channels share the export threads with retries, so response callbacks and blocking
+    // credential refreshes run on virtual threads where the JDK has them.
+    ExecutorService exportExecutor =
+        ExportExecutors.newExportExecutor(EXPORT_THREAD_NAME, configuration.getMaxExportThreads());
+    GrpcCloudTraceClient client;
+    try {
+      // Spans are encoded once by SpanEncoder and sent as raw bytes, which TraceServiceClient
+      // cannot do, so this path talks to the gRPC channel directly.
+      client =
+          GrpcCloudTraceClient.create(
+              checkNotNull(credentials, "credentials"),
+              configuration.getDeadline(),
+              configuration.getChannelPoolSize(),
+              configuration.getCompressor(),
+              exportExecutor);
+    } catch (RuntimeException e) {
+      exportExecutor.shutdown();
+      throw e;
+    }
+    return new TraceExporter(client, configuration, spillQueue, exportExecutor);
+  }
+
+  @Nullable
+  private static SpillQueue openSpillQueue(TraceConfiguration configuration) throws IOException {
+    Path spillDirectory = configuration.getSpillDirectory();
+    if (spillDirectory == null) {
+      return null;
+    }
+    return SpillQueue.open(
+        spillDirectory, configuration.getMaxSpillBytes(), SpillQueue.DEFAULT_SEGMENT_BYTES);
   }
 
   TraceExporter(
       String projectId,
       CloudTraceClient cloudTraceClient,
       Map<String, AttributeValue> fixedAttributes) {
-    this.projectId = projectId;
+    this(
+        cloudTraceClient,
+        TraceConfiguration.builder()
+            .setProjectId(projectId)
+            .setFixedAttributes(fixedAttributes)
+            .build());
+  }
+
+  TraceExporter(CloudTraceClient cloudTraceClient, TraceConfiguration configuration) {
+    this(cloudTraceClient, configuration, null);
+  }
+
+  TraceExporter(
+      CloudTraceClient cloudTraceClient,
+      TraceConfiguration configuration,
+      @Nullable SpillQueue spillQueue) {
+    this(
+        cloudTraceClient,
+        configuration,
+        spillQueue,
+        ExportExecutors.newExportExecutor(
+            EXPORT_THREAD_NAME, configuration.getMaxExportThreads()));
+  }
+
+  /** Creates an exporter that resends retried requests on {@code exportExecutor} and owns it. */
+  TraceExporter(
+      CloudTraceClient cloudTraceClient,
+      TraceConfiguration configuration,
+      @Nullable SpillQueue spillQueue,
+      ExecutorService exportExecutor) {
+    String projectId = configuration.getProjectId();
     this.cloudTraceClient = cloudTraceClient;
-    this.projectName = ProjectName.of(projectId);
-    this.fixedAttributes = fixedAttributes;
+    // Fixed attributes never change and resources rarely do, so their labels are encoded once per
+    // resource and shared by every thread's encoder.
+    ResourceLabelsCache resourceLabels =
+        new ResourceLabelsCache(configuration.getFixedAttributes());
+    int translationCacheSize = configuration.getTranslationCacheSize();
+    TranslationCache translationCache =
+        translationCacheSize > 0 ? new TranslationCache(translationCacheSize) : null;
+    this.translationCache = translationCache;
+    SpanLimits spanLimits = SpanLimits.from(configuration);
+    BatchSplitter batchSplitter =
+        new BatchSplitter(configuration.getMaxBatchSize(), configuration.getMaxBatchBytes());
+    int parallelTranslationThreshold = configuration.getParallelTranslationThreshold();
+    ParallelTranslator parallelTranslator =
+        parallelTranslationThreshold > 0
+            ? ParallelTranslator.create(
+                configuration.getTranslationExecutor(), parallelTranslationThreshold)
+            : null;
+    Function<String, SpanEncoder> encoderFactory =
+        encoderProjectId ->
+            new SpanEncoder(encoderProjectId, resourceLabels, spanLimits, translationCache);
+    // Every project gets its own encoders and batches, while the client, and with it the channel
+    // pool and credentials, the request limits, the translation cache and the translation
+    // threads are shared.
+    this.projectRouter =
+        new ProjectRouter(
+            projectId,
+            configuration.getProjectIdAttributeKey(),
+            configuration.getProjectIdleTimeout(),
+            configuration.getMaxRoutedProjects(),
+            routedProjectId ->
+                new ProjectBatcher(
+                    routedProjectId, encoderFactory, batchSplitter, parallelTranslator));
+    this.inFlightRequests =
+        new AimdLimiter(
+            configuration.getInitialInFlightRequests(), configuration.getMaxInFlightRequests());
+    this.maxBufferedBytes = configuration.getMaxBufferedBytes();
+    this.spillQueue = spillQueue;
+    this.maxBatchSize = configuration.getMaxBatchSize();
+    this.maxBatchBytes = configuration.getMaxBatchBytes();
+    this.flushTimeout = configuration.getFlushTimeout();
+    this.retryPolicy =
+        new RetryPolicy(
+            configuration.getMaxRetryAttempts(),
+            configuration.getInitialRetryBackoff(),
+            configuration.getMaxRetryBackoff(),
+            configuration.getRetryBudgetRatio());
+    this.retryExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat(RETRY_THREAD_NAME)
+                .setDaemon(true)
+                .build());
+    this.exportExecutor = exportExecutor;
+    MeterProvider meterProvider =
+        configuration.getMeterProvider() == null
+            ? OpenTelemetry.getMeterProvider()
+            : configuration.getMeterProvider();
+    this.metrics = new ExporterMetrics(meterProvider.get(ExporterMetrics.INSTRUMENTATION_NAME));
+    metrics.observe(
+        ExporterMetrics.IN_FLIGHT_REQUESTS,
+        "BatchWriteSpans calls in flight.",
+        "1",
+        inFlightRequests::inFlight);
+    metrics.observe(
+        ExporterMetrics.IN_FLIGHT_LIMIT,
+        "Current adaptive limit on BatchWriteSpans calls in flight.",
+        "1",
+        inFlightRequests::limit);
+    metrics.observe(
+        ExporterMetrics.PENDING_EXPORTS,
+        "Requests waiting for a response or a retry.",
+        "1",
+        pendingExports::size);
+    metrics.observe(
+        ExporterMetrics.BUFFERED_BYTES,
+        "Encoded span bytes held by requests that have not completed.",
+        "By",
+        bufferedBytes::get);
+  }
+
+  /**
+   * Returns the hit and miss counts of the translation cache, or empty statistics if it is
+   * disabled.
+   *
+   * @return the translation cache statistics.
+   * @see TraceConfiguration.Builder#setTranslationCacheSize(int)
+   */
+  public CacheStats getTranslationCacheStats() {
+    return translationCache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : translationCache.stats();
+  }
+
+  /**
+   * Returns the number of spans that were dropped because the limit on in-flight requests or the
+   * byte budget for buffered spans had been reached and they could not be spilled to disk.
+   *
+   * @return the number of dropped spans.
+   */
+  public long getDroppedSpanCount() {
+    return droppedSpans.get();
+  }
+
+  /**
+   * Returns the number of {@code BatchWriteSpans} calls that may currently be outstanding. The
+   * limit grows while latency stays stable and is halved when calls time out or are rejected with
+   * {@code RESOURCE_EXHAUSTED}.
+   *
+   * @return the current concurrency limit.
+   * @see TraceConfiguration.Builder#setMaxInFlightRequests(int)
+   */
+  public int getInFlightLimit() {
+    return inFlightRequests.limit();
   }
 
-  // TODO @imnoahcook add support for flush
+  /**
+   * Returns the exponentially weighted moving average of the latency of successful {@code
+   * BatchWriteSpans} calls, or zero if none has succeeded yet.
+   *
+   * @return the smoothed export latency.
+   */
+  public Duration getExportLatency() {
+    return Duration.ofNanos(inFlightRequests.smoothedLatencyNanos());
+  }
+
+  /**
+   * Returns the latency of the most recent successful {@code BatchWriteSpans} call, or zero if
+   * none has succeeded yet.
+   *
+   * @return the latest export latency sample.
+   */
+  public Duration getLastExportLatency() {
+    return Duration.ofNanos(inFlightRequests.lastLatencyNanos());
+  }
+
+  /**
+   * Returns the number of projects the exporter currently keeps a batcher for, including the
+   * default project. Projects that have not received spans for the idle timeout are not counted.
+   *
+   * @return the number of active projects.
+   * @see TraceConfiguration.Builder#setProjectIdAttributeKey(String)
+   */
+  public long getActiveProjectCount() {
+    return projectRouter.activeProjectCount();
+  }
+
+  @VisibleForTesting
+  long getBufferedBytes() {
+    return bufferedBytes.get();
+  }
+
+  /**
+   * Waits, up to the configured flush timeout, for every export that is in flight when this
+   * method is called. Returns {@link ResultCode#SUCCESS} only if all of them succeeded.
+   */
   @Override
   public ResultCode flush() {
-    return ResultCode.FAILURE;
+    return awaitPendingExports(System.nanoTime() + flushTimeout.toNanos());
   }
 
+  /**
+   * Translates the spans and hands them to the {@link CloudTraceClient} without waiting for the
+   * RPCs to finish. Large exports are split into several requests that are sent concurrently.
+   * Returns {@link ResultCode#FAILURE} if any of them was rejected because the current limit on
+   * in-flight requests or the byte budget for buffered spans had been reached, unless the spans
+   * were spilled to disk instead. When project routing is enabled, the spans of each project are
+   * batched separately.
+   */
   @Override
   public ResultCode export(Collection<SpanData> spanDataList) {
-    List<Span> spans = new ArrayList<>(spanDataList.size());
-    for (SpanData spanData : spanDataList) {
-      spans.add(TraceTranslator.generateSpan(spanData, projectId, fixedAttributes));
+    if (isShutdown.get()) {
+      return ResultCode.FAILURE;
+    }
+    if (spanDataList.isEmpty()) {
+      return ResultCode.SUCCESS;
+    }
+
+    long startNanos = System.nanoTime();
+    Map<ProjectBatcher, Collection<SpanData>> routes = projectRouter.route(spanDataList);
+    Map<ProjectBatcher, List<ByteString>> encoded = new LinkedHashMap<>();
+    for (Map.Entry<ProjectBatcher, Collection<SpanData>> route : routes.entrySet()) {
+      encoded.put(route.getKey(), route.getKey().encode(route.getValue()));
+    }
+    metrics.recordTranslation(System.nanoTime() - startNanos);
+
+    ResultCode result = ResultCode.SUCCESS;
+    for (Map.Entry<ProjectBatcher, List<ByteString>> batch : encoded.entrySet()) {
+      ProjectBatcher batcher = batch.getKey();
+      for (List<ByteString> chunk : batcher.split(batch.getValue())) {
+        if (!dispatch(batcher.getProjectName(), chunk)) {
+          result = ResultCode.FAILURE;
+        }
+      }
+    }
+    maybeReplay();
+    return result;
+  }
+
+  private boolean dispatch(ProjectName projectName, List<ByteString> spans) {
+    if (!inFlightRequests.tryAcquire()) {
+      return spillOrDrop(spans, "too many requests in flight");
+    }
+    long bytes = totalBytes(spans);
+    if (!reserveBytes(bytes)) {
+      inFlightRequests.release();
+      return spillOrDrop(spans, "byte budget exhausted");
+    }
+
+    retryPolicy.recordRequest();
+    Export export = new Export(projectName, spans, bytes);
+    pendingExports.add(export.result);
+    export.run();
+    return true;
+  }
+
+  private boolean spillOrDrop(List<ByteString> spans, String reason) {
+    if (spill(spans)) {
+      return true;
     }
+    droppedSpans.addAndGet(spans.size());
+    metrics.recordDropped(spans.size());
+    logger.log(Level.FINE, "Dropping {0} spans, {1}.", new Object[] {spans.size(), reason});
+    return false;
+  }
 
-    cloudTraceClient.batchWriteSpans(projectName, spans);
-    return ResultCode.SUCCESS;
+  private boolean spill(List<ByteString> spans) {
+    if (spillQueue == null) {
+      return false;
+    }
+    try {
+      return spillQueue.append(spans);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Failed to spill spans to disk.", e);
+      return false;
+    }
   }
 
+  // Only failures that may pass on their own are worth keeping on disk; anything else would fail
+  // again on every replay and block the queue for good.
+  private static boolean isTransient(Throwable t) {
+    return RetryPolicy.isRetryable(t) || AimdLimiter.isOverload(t);
+  }
+
+  // Spilled spans are replayed one request at a time, and only when an in-flight permit and byte
+  // budget are free, so the backlog drains without crowding out live exports. A failed replay
+  // pauses replaying until a live export succeeds again or a backoff has passed.
+  private void maybeReplay() {
+    if (spillQueue == null
+        || replayBlocked
+        || isShutdown.get()
+        || !replayInFlight.compareAndSet(false, true)) {
+      return;
+    }
+    if (!sendReplay()) {
+      replayInFlight.set(false);
+    }
+  }
+
+  // Resumes replaying after a backoff, so the backlog drains even without live exports to
+  // unblock it.
+  private void scheduleReplay(int failures) {
+    try {
+      retryExecutor.schedule(
+          () -> {
+            try {
+              exportExecutor.execute(this::resumeReplay);
+            } catch (RejectedExecutionException e) {
+              // The exporter is shutting down.
+            }
+          },
+          retryPolicy.backoffNanos(failures),
+          TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // The exporter is shutting down.
+    }
+  }
+
+  private void resumeReplay() {
+    replayBlocked = false;
+    maybeReplay();
+  }
+
+  // Spilling cannot be combined with project routing, so spilled spans always belong to the
+  // default project.
+  private boolean sendReplay() {
+    if (!inFlightRequests.tryAcquire()) {
+      return false;
+    }
+    ProjectBatcher batcher = projectRouter.getDefaultBatcher();
+    List<ByteString> spans = batcher.split(spillQueue.peek(maxBatchSize, maxBatchBytes)).get(0);
+    long bytes = totalBytes(spans);
+    if (spans.isEmpty() || !reserveBytes(bytes)) {
+      inFlightRequests.release();
+      return false;
+    }
+
+    long epoch = inFlightRequests.epoch();
+    long startNanos = System.nanoTime();
+    ApiFuture<Empty> future;
+    try {
+      future = send(batcher.getProjectName(), spans, bytes);
+    } catch (RuntimeException e) {
+      release(bytes);
+      logger.log(Level.WARNING, "Failed to replay spilled spans.", e);
+      return false;
+    }
+    pendingExports.add(future);
+    ApiFutures.addCallback(
+        future,
+        new ReplayCallback(future, spans.size(), bytes, epoch, startNanos),
+        MoreExecutors.directExecutor());
+    return true;
+  }
+
+  // The RPC runs in the root context, so it is never attributed to the application span whose end
+  // triggered the export, and gRPC instrumentation cannot make it that span's child.
+  private ApiFuture<Empty> send(ProjectName projectName, List<ByteString> spans, long bytes) {
+    metrics.recordRequest(spans.size(), bytes);
+    Context previous = Context.ROOT.attach();
+    try {
+      return cloudTraceClient.batchWriteEncodedSpansAsync(projectName, spans);
+    } finally {
+      Context.ROOT.detach(previous);
+    }
+  }
+
+  private static long totalBytes(List<ByteString> spans) {
+    long bytes = 0;
+    for (int i = 0; i < spans.size(); i++) {
+      bytes += spans.get(i).size();
+    }
+    return bytes;
+  }
+
+  // Requests are admitted whole or not at all, so when the budget runs out it is always the
+  // newest spans that are dropped.
+  private boolean reserveBytes(long bytes) {
+    while (true) {
+      long current = bufferedBytes.get();
+      if (current + bytes > maxBufferedBytes) {
+        return false;
+      }
+      if (bufferedBytes.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  private void release(long bytes) {
+    bufferedBytes.addAndGet(-bytes);
+    inFlightRequests.release();
+  }
+
+  /**
+   * Stops accepting new spans, waits up to the configured flush timeout for the outstanding
+   * exports to drain and then shuts down the underlying client.
+   */
   @Override
   public void shutdown() {
-    throw new UnsupportedOperationException();
+    if (!isShutdown.compareAndSet(false, true)) {
+      return;
+    }
+    if (awaitPendingExports(System.nanoTime() + flushTimeout.toNanos()) != ResultCode.SUCCESS) {
+      logger.log(
+          Level.WARNING,
+          "Shutting down with {0} exports still pending or failed.",
+          pendingExports.size());
+    }
+    retryExecutor.shutdownNow();
+    // Their retries will never run, so they fail now, and are spilled while the queue is open.
+    for (Export export : new ArrayList<>(awaitingRetry)) {
+      if (awaitingRetry.remove(export)) {
+        // The failure that led to the retry was transient.
+        export.fail(new IllegalStateException("The exporter shut down before the retry."), true);
+      }
+    }
+    if (spillQueue != null) {
+      spillQueue.close();
+    }
+    cloudTraceClient.shutdown();
+    // After the client, whose channels may still deliver their last callbacks on it.
+    exportExecutor.shutdown();
+  }
+
+  // The pending RPCs already run concurrently, so waiting on each in turn against a shared
+  // deadline drains them in parallel.
+  private ResultCode awaitPendingExports(long deadlineNanos) {
+    ResultCode result = ResultCode.SUCCESS;
+    for (ApiFuture<Empty> future : new ArrayList<>(pendingExports)) {
+      try {
+        future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException | CancellationException e) {
+        result = ResultCode.FAILURE;
+      } catch (TimeoutException e) {
+        return ResultCode.FAILURE;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return ResultCode.FAILURE;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * One request, through all of its attempts. It keeps its in-flight permit and byte reservation
+   * while it waits to be retried, and {@link #result} completes only after the last attempt.
+   */
+  private final class Export implements ApiFutureCallback<Empty>, Runnable {
+    private final ProjectName projectName;
+    private final List<ByteString> spans;
+    private final long bytes;
+    private final SettableApiFuture<Empty> result = SettableApiFuture.create();
+    private int attempts;
+    // Only one attempt is outstanding at a time, and its callback runs after these are set.
+    private long attemptEpoch;
+    private long attemptStartNanos;
+
+    private Export(ProjectName projectName, List<ByteString> spans, long bytes) {
+      this.projectName = projectName;
+      this.spans = spans;
+      this.bytes = bytes;
+    }
+
+    /** Sends the next attempt. */
+    @Override
+    public void run() {
+      attempts++;
+      attemptEpoch = inFlightRequests.epoch();
+      attemptStartNanos = System.nanoTime();
+      ApiFuture<Empty> future;
+      try {
+        future = send(projectName, spans, bytes);
+      } catch (RuntimeException e) {
+        onFailure(e);
+        return;
+      }
+      ApiFutures.addCallback(future, this, MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void onSuccess(Empty response) {
+      long latencyNanos = System.nanoTime() - attemptStartNanos;
+      inFlightRequests.onSuccess(latencyNanos);
+      metrics.recordResponse(Status.Code.OK, latencyNanos);
+      metrics.recordExported(spans.size());
+      pendingExports.remove(result);
+      release(bytes);
+      result.set(response);
+      replayBlocked = false;
+      maybeReplay();
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      // The limit is cut even if the call is retried, since the retry waits for the same backend.
+      inFlightRequests.onFailure(t, attemptEpoch);
+      metrics.recordResponse(RetryPolicy.codeOf(t), System.nanoTime() - attemptStartNanos);
+      if (retryPolicy.shouldRetry(t, attempts) && scheduleRetry()) {
+        return;
+      }
+      fail(t, isTransient(t));
+    }
+
+    /**
+     * Completes the export with {@code t} after its last attempt, spilling its spans if the
+     * failure is {@code transientFailure} and it can.
+     */
+    private void fail(Throwable t, boolean transientFailure) {
+      pendingExports.remove(result);
+      release(bytes);
+      result.setException(t);
+      metrics.recordFailed(spans.size());
+      if (transientFailure && spill(spans)) {
+        logger.log(
+            Level.WARNING, "Failed to export " + spans.size() + " spans, spilled them to disk.", t);
+      } else if (isShutdown.get()) {
+        // The spill queue is closed once shutdown stops waiting for the pending exports.
+        droppedSpans.addAndGet(spans.size());
+        metrics.recordDropped(spans.size());
+        logger.log(
+            Level.WARNING,
+            "Dropped " + spans.size() + " spans whose export failed during shutdown.",
+            t);
+      } else {
+        logger.log(Level.WARNING, "Failed to export " + spans.size() + " spans.", t);
+      }
+    }
+
+    private boolean scheduleRetry() {
+      awaitingRetry.add(this);
+      try {
+        retryExecutor.schedule(
+            this::resend, retryPolicy.backoffNanos(attempts), TimeUnit.NANOSECONDS);
+        return true;
+      } catch (RejectedExecutionException e) {
+        // The exporter is shutting down. If it has already failed this export, it is done.
+        return !awaitingRetry.remove(this);
+      }
+    }
+
+    // The single timer thread only hands the attempt over, since sending it may block, e.g. on a
+    // credential refresh, and would hold up every other retry that is due.
+    private void resend() {
+      // Shutdown may have failed the export already.
+      if (!awaitingRetry.remove(this)) {
+        return;
+      }
+      try {
+        exportExecutor.execute(this);
+      } catch (RejectedExecutionException e) {
+        run();
+      }
+    }
+  }
+
+  private final class ReplayCallback implements ApiFutureCallback<Empty> {
+    private final ApiFuture<Empty> future;
+    private final int spanCount;
+    private final long bytes;
+    private final long epoch;
+    private final long startNanos;
+
+    private ReplayCallback(
+        ApiFuture<Empty> future, int spanCount, long bytes, long epoch, long startNanos) {
+      this.future = future;
+      this.spanCount = spanCount;
+      this.bytes = bytes;
+      this.epoch = epoch;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void onSuccess(Empty result) {
+      long latencyNanos = System.nanoTime() - startNanos;
+      inFlightRequests.onSuccess(latencyNanos);
+      metrics.recordResponse(Status.Code.OK, latencyNanos);
+      metrics.recordExported(spanCount);
+      pendingExports.remove(future);
+      release(bytes);
+      try {
+        spillQueue.commit(spanCount);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Failed to record replayed spans, they may be sent again.", e);
+      }
+      replayFailures.set(0);
+      replayInFlight.set(false);
+      maybeReplay();
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      inFlightRequests.onFailure(t, epoch);
+      metrics.recordResponse(RetryPolicy.codeOf(t), System.nanoTime() - startNanos);
+      pendingExports.remove(future);
+      release(bytes);
+      if (!isTransient(t)) {
+        // Cloud Trace rejected the spans themselves, so they are dropped and the rest replayed.
+        try {
+          spillQueue.commit(spanCount);
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Failed to drop rejected spilled spans.", e);
+        }
+        droppedSpans.addAndGet(spanCount);
+        metrics.recordDropped(spanCount);
+        logger.log(
+            Level.WARNING, "Dropped " + spanCount + " spilled spans that were rejected.", t);
+        replayInFlight.set(false);
+        maybeReplay();
+        return;
+      }
+      replayBlocked = true;
+      replayInFlight.set(false);
+      scheduleReplay(replayFailures.incrementAndGet());
+      logger.log(Level.FINE, "Failed to replay " + spanCount + " spilled spans.", t);
+    }
   }
 }
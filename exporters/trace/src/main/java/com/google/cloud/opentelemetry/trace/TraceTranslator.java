@@ -7,15 +7,17 @@ import com.google.devtools.cloudtrace.v2.Span;
 import com.google.devtools.cloudtrace.v2.Span.Attributes;
 import com.google.devtools.cloudtrace.v2.Span.Link;
 import com.google.devtools.cloudtrace.v2.Span.Links;
-import com.google.devtools.cloudtrace.v2.SpanName;
 import com.google.devtools.cloudtrace.v2.TruncatableString;
 import com.google.protobuf.BoolValue;
 import com.google.rpc.Status;
 import io.opentelemetry.common.ReadableAttributes;
+import io.opentelemetry.common.ReadableKeyValuePairs.KeyValueConsumer;
+import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.data.SpanData.Event;
 import io.opentelemetry.trace.Span.Kind;
 
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -29,18 +31,24 @@ class TraceTranslator {
   // TODO(nilebox): Extract the constant
   private static final String OPEN_TELEMETRY_LIBRARY_VERSION = "0.6.0";
   private static final String EXPORTER_VERSION = "0.1.0";
-  private static final String AGENT_LABEL_KEY = "g.co/agent";
+  // Cloud Trace rejects or cuts strings beyond these UTF-8 lengths.
+  static final int MAX_DISPLAY_NAME_BYTES = 128;
+  static final int MAX_ATTRIBUTE_KEY_BYTES = 128;
+  static final int MAX_ATTRIBUTE_VALUE_BYTES = 256;
+  static final int MAX_ANNOTATION_DESCRIPTION_BYTES = 256;
+  static final String AGENT_LABEL_KEY = "g.co/agent";
   private static final String AGENT_LABEL_VALUE_STRING =
       "opentelemetry-java " + OPEN_TELEMETRY_LIBRARY_VERSION +
               "; google-cloud-trace-exporter " + EXPORTER_VERSION;
-  private static final AttributeValue AGENT_LABEL_VALUE =
+  static final AttributeValue AGENT_LABEL_VALUE =
       AttributeValue.newBuilder()
-          .setStringValue(toTruncatableStringProto(AGENT_LABEL_VALUE_STRING))
+          .setStringValue(
+              toTruncatableStringProto(AGENT_LABEL_VALUE_STRING, MAX_ATTRIBUTE_VALUE_BYTES))
           .build();
   private static final String SERVER_PREFIX = "Recv.";
   private static final String CLIENT_PREFIX = "Sent.";
 
-  private static final ImmutableMap<String, String> HTTP_ATTRIBUTE_MAPPING =
+  static final ImmutableMap<String, String> HTTP_ATTRIBUTE_MAPPING =
       ImmutableMap.<String, String>builder()
           .put("http.host", "/http/host")
           .put("http.method", "/http/method")
@@ -52,20 +60,49 @@ class TraceTranslator {
 
   @VisibleForTesting
   static Span generateSpan(
-      SpanData spanData, String projectId, Map<String, AttributeValue> constAttributes) {
-    final String traceIdHex = spanData.getTraceId().toLowerBase16();
-    final String spanIdHex = spanData.getSpanId().toLowerBase16();
-    SpanName spanName =
-        SpanName.newBuilder().setProject(projectId).setTrace(traceIdHex).setSpan(spanIdHex).build();
+      SpanData spanData, String projectId, Map<String, AttributeValue> fixedAttributes) {
+    return generateSpan(
+        spanData,
+        new SpanNameFormatter(projectId),
+        getConstAttributes(spanData.getResource(), fixedAttributes),
+        SpanLimits.DEFAULT,
+        null);
+  }
+
+  /**
+   * Translates {@code spanData} within {@code limits}, taking attribute values and the display
+   * name from {@code cache} when one is given. {@code constAttributes} are added after the agent
+   * label; they are expected to come from {@link #getConstAttributes}.
+   */
+  static Span generateSpan(
+      SpanData spanData,
+      SpanNameFormatter spanNameFormatter,
+      Map<String, AttributeValue> constAttributes,
+      SpanLimits limits,
+      @Nullable TranslationCache cache) {
+    ReadableAttributes attributes = spanData.getAttributes();
+    int droppedAttributes =
+        SpanLimits.dropped(
+            attributes.size(), spanData.getTotalAttributeCount(), limits.getMaxAttributes());
     Span.Builder spanBuilder =
         Span.newBuilder()
-            .setName(spanName.toString())
-            .setSpanId(spanIdHex)
-            .setDisplayName(
-                toTruncatableStringProto(toDisplayName(spanData.getName(), spanData.getKind())))
+            .setName(spanNameFormatter.formatSpanName(spanData.getTraceId(), spanData.getSpanId()))
+            .setSpanId(spanNameFormatter.formatSpanId(spanData.getSpanId()))
+            .setDisplayName(toDisplayNameProto(spanData.getName(), spanData.getKind(), cache))
             .setStartTime(toTimestampProto(spanData.getStartEpochNanos()))
-            .setAttributes(toAttributesProto(spanData.getAttributes(), constAttributes))
-            .setTimeEvents(toTimeEventsProto(spanData.getEvents()));
+            .setAttributes(
+                toAttributesProto(
+                    attributes,
+                    limits.getMaxAttributes(),
+                    droppedAttributes,
+                    constAttributes,
+                    cache))
+            .setTimeEvents(
+                toTimeEventsProto(
+                    spanData.getEvents(),
+                    spanData.getTotalRecordedEvents(),
+                    limits.getMaxAnnotations(),
+                    cache));
     io.opentelemetry.trace.Status status = spanData.getStatus();
     if (status != null) {
       spanBuilder.setStatus(toStatusProto(status));
@@ -74,9 +111,15 @@ class TraceTranslator {
     if (end != 0) {
       spanBuilder.setEndTime(toTimestampProto(end));
     }
-    spanBuilder.setLinks(toLinksProto(spanData.getLinks(), spanData.getTotalRecordedLinks()));
+    spanBuilder.setLinks(
+        toLinksProto(
+            spanData.getLinks(),
+            spanData.getTotalRecordedLinks(),
+            limits.getMaxLinks(),
+            spanNameFormatter,
+            cache));
     if (spanData.getParentSpanId() != null && spanData.getParentSpanId().isValid()) {
-      spanBuilder.setParentSpanId(spanData.getParentSpanId().toLowerBase16());
+      spanBuilder.setParentSpanId(spanNameFormatter.formatSpanId(spanData.getParentSpanId()));
     }
     /* @Nullable */ Boolean hasRemoteParent = spanData.getHasRemoteParent();
     if (hasRemoteParent != null) {
@@ -85,8 +128,16 @@ class TraceTranslator {
     return spanBuilder.build();
   }
 
+  private static TruncatableString toDisplayNameProto(
+      String spanName, @Nullable Kind spanKind, @Nullable TranslationCache cache) {
+    if (cache != null) {
+      return cache.getDisplayName(spanName, spanKind);
+    }
+    return toTruncatableStringProto(toDisplayName(spanName, spanKind), MAX_DISPLAY_NAME_BYTES);
+  }
+
   @VisibleForTesting
-  static String toDisplayName(String spanName, @javax.annotation.Nullable Kind spanKind) {
+  static String toDisplayName(String spanName, @Nullable Kind spanKind) {
     if (spanKind == Kind.SERVER && !spanName.startsWith(SERVER_PREFIX)) {
       return SERVER_PREFIX + spanName;
     }
@@ -98,9 +149,26 @@ class TraceTranslator {
     return spanName;
   }
 
+  /**
+   * Returns {@code string} cut to at most {@code maxBytes} UTF-8 bytes on a code point boundary,
+   * with the number of bytes cut off.
+   */
   @VisibleForTesting
-  static TruncatableString toTruncatableStringProto(String string) {
-    return TruncatableString.newBuilder().setValue(string).setTruncatedByteCount(0).build();
+  static TruncatableString toTruncatableStringProto(String string, int maxBytes) {
+    int length = Utf8Truncation.truncatedLength(string, maxBytes);
+    if (length == string.length()) {
+      return TruncatableString.newBuilder().setValue(string).setTruncatedByteCount(0).build();
+    }
+    return TruncatableString.newBuilder()
+        .setValue(string.substring(0, length))
+        .setTruncatedByteCount(Utf8Truncation.encodedLength(string, length, string.length()))
+        .build();
+  }
+
+  /** Cuts {@code key} to at most {@link #MAX_ATTRIBUTE_KEY_BYTES} on a code point boundary. */
+  static String truncateKey(String key) {
+    int length = Utf8Truncation.truncatedLength(key, MAX_ATTRIBUTE_KEY_BYTES);
+    return length == key.length() ? key : key.substring(0, length);
   }
 
   @VisibleForTesting
@@ -116,7 +184,20 @@ class TraceTranslator {
   @VisibleForTesting
   static Attributes toAttributesProto(
       ReadableAttributes attributes, Map<String, AttributeValue> fixedAttributes) {
-    Attributes.Builder attributesBuilder = toAttributesBuilderProto(attributes);
+    return toAttributesProto(attributes, Integer.MAX_VALUE, 0, fixedAttributes, null);
+  }
+
+  // Only the first maxAttributes of the span's own attributes are translated; the agent label and
+  // the fixed attributes are added regardless.
+  private static Attributes toAttributesProto(
+      ReadableAttributes attributes,
+      int maxAttributes,
+      int droppedAttributes,
+      Map<String, AttributeValue> fixedAttributes,
+      @Nullable TranslationCache cache) {
+    Attributes.Builder attributesBuilder =
+        toAttributesBuilderProto(attributes, maxAttributes, cache)
+            .setDroppedAttributesCount(droppedAttributes);
     attributesBuilder.putAttributeMap(AGENT_LABEL_KEY, AGENT_LABEL_VALUE);
     for (Map.Entry<String, AttributeValue> entry : fixedAttributes.entrySet()) {
       attributesBuilder.putAttributeMap(entry.getKey(), entry.getValue());
@@ -124,29 +205,55 @@ class TraceTranslator {
     return attributesBuilder.build();
   }
 
-  private static Attributes toAttributesProto(ReadableAttributes attributes) {
-    return toAttributesProto(attributes, ImmutableMap.<String, AttributeValue>of());
+  private static Attributes toAttributesProto(
+      ReadableAttributes attributes, @Nullable TranslationCache cache) {
+    return toAttributesProto(
+        attributes, Integer.MAX_VALUE, 0, ImmutableMap.<String, AttributeValue>of(), cache);
   }
 
-  private static Attributes.Builder toAttributesBuilderProto(ReadableAttributes attributes) {
-    Attributes.Builder attributesBuilder =
-        // TODO (nilebox): Does OpenTelemetry support droppedAttributesCount?
-        Attributes.newBuilder().setDroppedAttributesCount(0);
-    attributes.forEach(
-        (key, value) -> {
-          AttributeValue attributeValue = toAttributeValueProto(value);
-          attributesBuilder.putAttributeMap(mapKey(key), attributeValue);
-        });
-
+  private static Attributes.Builder toAttributesBuilderProto(
+      ReadableAttributes attributes, int maxAttributes, @Nullable TranslationCache cache) {
+    Attributes.Builder attributesBuilder = Attributes.newBuilder();
+    attributes.forEach(new AttributesCollector(attributesBuilder, maxAttributes, cache));
     return attributesBuilder;
   }
 
-  private static AttributeValue toAttributeValueProto(
-      io.opentelemetry.common.AttributeValue attributeValue) {
+  // Puts the first maxAttributes entries into the builder and skips the translation of the rest.
+  private static final class AttributesCollector
+      implements KeyValueConsumer<io.opentelemetry.common.AttributeValue> {
+    private final Attributes.Builder attributesBuilder;
+    @Nullable private final TranslationCache cache;
+    private int remaining;
+
+    private AttributesCollector(
+        Attributes.Builder attributesBuilder, int maxAttributes, @Nullable TranslationCache cache) {
+      this.attributesBuilder = attributesBuilder;
+      this.cache = cache;
+      this.remaining = maxAttributes;
+    }
+
+    @Override
+    public void consume(String key, io.opentelemetry.common.AttributeValue value) {
+      if (remaining == 0) {
+        return;
+      }
+      remaining--;
+      attributesBuilder.putAttributeMap(
+          truncateKey(mapKey(key)), toAttributeValueProto(value, cache));
+    }
+  }
+
+  static AttributeValue toAttributeValueProto(
+      io.opentelemetry.common.AttributeValue attributeValue, @Nullable TranslationCache cache) {
+    if (cache != null) {
+      return cache.getAttributeValue(attributeValue);
+    }
     AttributeValue.Builder builder = AttributeValue.newBuilder();
     switch (attributeValue.getType()) {
       case STRING:
-        builder.setStringValue(toTruncatableStringProto(attributeValue.getStringValue()));
+        builder.setStringValue(
+            toTruncatableStringProto(
+                attributeValue.getStringValue(), MAX_ATTRIBUTE_VALUE_BYTES));
         break;
       case BOOLEAN:
         builder.setBoolValue(attributeValue.getBooleanValue());
@@ -156,13 +263,14 @@ class TraceTranslator {
         break;
       case DOUBLE:
         builder.setStringValue(
-            toTruncatableStringProto(String.valueOf(attributeValue.getDoubleValue())));
+            toTruncatableStringProto(
+                String.valueOf(attributeValue.getDoubleValue()), MAX_ATTRIBUTE_VALUE_BYTES));
         break;
     }
     return builder.build();
   }
 
-  private static String mapKey(String key) {
+  static String mapKey(String key) {
     if (HTTP_ATTRIBUTE_MAPPING.containsKey(key)) {
       return HTTP_ATTRIBUTE_MAPPING.get(key);
     } else {
@@ -172,16 +280,31 @@ class TraceTranslator {
 
   @VisibleForTesting
   static Span.TimeEvents toTimeEventsProto(List<Event> events) {
-    Span.TimeEvents.Builder timeEventsBuilder = Span.TimeEvents.newBuilder();
+    return toTimeEventsProto(events, events.size(), SpanLimits.NONE.getMaxAnnotations(), null);
+  }
 
-    for (Event event : events) {
+  private static Span.TimeEvents toTimeEventsProto(
+      List<Event> events,
+      int totalRecordedEvents,
+      int maxAnnotations,
+      @Nullable TranslationCache cache) {
+    int keptEvents = Math.min(events.size(), maxAnnotations);
+    Span.TimeEvents.Builder timeEventsBuilder =
+        Span.TimeEvents.newBuilder()
+            .setDroppedAnnotationsCount(
+                SpanLimits.dropped(events.size(), totalRecordedEvents, maxAnnotations));
+
+    for (int i = 0; i < keptEvents; i++) {
+      Event event = events.get(i);
       timeEventsBuilder.addTimeEvent(
           Span.TimeEvent.newBuilder()
               .setTime(toTimestampProto(event.getEpochNanos()))
               .setAnnotation(
                   Span.TimeEvent.Annotation.newBuilder()
-                      .setDescription(toTruncatableStringProto(event.getName()))
-                      .setAttributes(toAttributesProto(event.getAttributes()))));
+                      .setDescription(
+                          toTruncatableStringProto(
+                              event.getName(), MAX_ANNOTATION_DESCRIPTION_BYTES))
+                      .setAttributes(toAttributesProto(event.getAttributes(), cache))));
     }
 
     return timeEventsBuilder.build();
@@ -199,24 +322,93 @@ class TraceTranslator {
   @VisibleForTesting
   static Links toLinksProto(
       List<io.opentelemetry.sdk.trace.data.SpanData.Link> links, int totalRecordedLinks) {
+    return toLinksProto(
+        links,
+        totalRecordedLinks,
+        SpanLimits.NONE.getMaxLinks(),
+        new SpanNameFormatter(""),
+        null);
+  }
+
+  private static Links toLinksProto(
+      List<io.opentelemetry.sdk.trace.data.SpanData.Link> links,
+      int totalRecordedLinks,
+      int maxLinks,
+      SpanNameFormatter spanNameFormatter,
+      @Nullable TranslationCache cache) {
+    int keptLinks = Math.min(links.size(), maxLinks);
     final Links.Builder linksBuilder =
-        Links.newBuilder().setDroppedLinksCount(Math.max(0, totalRecordedLinks - links.size()));
-    for (io.opentelemetry.sdk.trace.data.SpanData.Link link : links) {
-      linksBuilder.addLink(toLinkProto(link));
+        Links.newBuilder()
+            .setDroppedLinksCount(SpanLimits.dropped(links.size(), totalRecordedLinks, maxLinks));
+    for (int i = 0; i < keptLinks; i++) {
+      linksBuilder.addLink(toLinkProto(links.get(i), spanNameFormatter, cache));
     }
     return linksBuilder.build();
   }
 
-  private static Link toLinkProto(io.opentelemetry.sdk.trace.data.SpanData.Link link) {
+  private static Link toLinkProto(
+      io.opentelemetry.sdk.trace.data.SpanData.Link link,
+      SpanNameFormatter spanNameFormatter,
+      @Nullable TranslationCache cache) {
     checkNotNull(link);
     return Link.newBuilder()
-        .setTraceId(link.getContext().getTraceId().toLowerBase16())
-        .setSpanId(link.getContext().getSpanId().toLowerBase16())
+        .setTraceId(spanNameFormatter.formatTraceId(link.getContext().getTraceId()))
+        .setSpanId(spanNameFormatter.formatSpanId(link.getContext().getSpanId()))
         .setType(Link.Type.TYPE_UNSPECIFIED)
-        .setAttributes(toAttributesBuilderProto(link.getAttributes()))
+        .setAttributes(toAttributesBuilderProto(link.getAttributes(), Integer.MAX_VALUE, cache))
         .build();
   }
 
+  /**
+   * Returns the attributes added to every span of {@code resource}: its labels followed by {@code
+   * fixedAttributes}, which replace labels with the same key.
+   */
+  static Map<String, AttributeValue> getConstAttributes(
+      @Nullable Resource resource, Map<String, AttributeValue> fixedAttributes) {
+    if (resource == null || resource.getAttributes().size() == 0) {
+      return fixedAttributes;
+    }
+    Map<String, AttributeValue> constAttributes =
+        new LinkedHashMap<>(getResourceLabels(resource.getAttributes()));
+    constAttributes.putAll(fixedAttributes);
+    return Collections.unmodifiableMap(constAttributes);
+  }
+
+  /**
+   * Translates resource attributes into {@code g.co/r/} labels with string values. Array values
+   * have no label form and are skipped.
+   */
+  static Map<String, AttributeValue> getResourceLabels(ReadableAttributes resource) {
+    final Map<String, AttributeValue> resourceLabels = new LinkedHashMap<String, AttributeValue>();
+    resource.forEach(
+        new KeyValueConsumer<io.opentelemetry.common.AttributeValue>() {
+          @Override
+          public void consume(String key, io.opentelemetry.common.AttributeValue value) {
+            String label = toResourceLabelValue(value);
+            if (label != null) {
+              putToResourceAttributeMap(resourceLabels, key, label);
+            }
+          }
+        });
+    return Collections.unmodifiableMap(resourceLabels);
+  }
+
+  @Nullable
+  private static String toResourceLabelValue(io.opentelemetry.common.AttributeValue value) {
+    switch (value.getType()) {
+      case STRING:
+        return value.getStringValue();
+      case BOOLEAN:
+        return String.valueOf(value.getBooleanValue());
+      case LONG:
+        return String.valueOf(value.getLongValue());
+      case DOUBLE:
+        return String.valueOf(value.getDoubleValue());
+      default:
+        return null;
+    }
+  }
+
   @VisibleForTesting
   static Map<String, AttributeValue> getResourceLabels(Map<String, String> resource) {
     if (resource == null) {
@@ -231,7 +423,9 @@ class TraceTranslator {
 
   private static void putToResourceAttributeMap(
       Map<String, AttributeValue> map, String attributeName, String attributeValue) {
-    map.put(createResourceLabelKey(attributeName), toStringAttributeValueProto(attributeValue));
+    map.put(
+        truncateKey(createResourceLabelKey(attributeName)),
+        toStringAttributeValueProto(attributeValue));
   }
 
   @VisibleForTesting
@@ -241,7 +435,9 @@ class TraceTranslator {
 
   @VisibleForTesting
   static AttributeValue toStringAttributeValueProto(String value) {
-    return AttributeValue.newBuilder().setStringValue(toTruncatableStringProto(value)).build();
+    return AttributeValue.newBuilder()
+        .setStringValue(toTruncatableStringProto(value, MAX_ATTRIBUTE_VALUE_BYTES))
+        .build();
   }
 
   private TraceTranslator() {}
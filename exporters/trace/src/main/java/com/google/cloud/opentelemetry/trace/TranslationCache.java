@@ -0,0 +1,86 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.TruncatableString;
+import io.opentelemetry.trace.Span.Kind;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded, thread-safe cache of translated attribute values and display names.
+ *
+ * <p>Attribute values are keyed by the OpenTelemetry value itself, which carries both its type
+ * and its contents. Display names are keyed by span name, with one cache per group of span kinds
+ * that translate the same way, so lookups allocate no composite keys. Cached protos have their
+ * UTF-8 bytes precomputed, so writing them copies bytes instead of re-encoding strings.
+ */
+final class TranslationCache {
+
+  private final Cache<io.opentelemetry.common.AttributeValue, AttributeValue> attributeValues;
+  private final Cache<String, TruncatableString> serverDisplayNames;
+  private final Cache<String, TruncatableString> clientDisplayNames;
+  private final Cache<String, TruncatableString> otherDisplayNames;
+
+  /**
+   * Creates a cache that holds up to {@code maximumSize} attribute values and up to {@code
+   * maximumSize} display names per span kind group, evicting the least recently used entries.
+   */
+  TranslationCache(int maximumSize) {
+    this.attributeValues = newCache(maximumSize);
+    this.serverDisplayNames = newCache(maximumSize);
+    this.clientDisplayNames = newCache(maximumSize);
+    this.otherDisplayNames = newCache(maximumSize);
+  }
+
+  private static <K, V> Cache<K, V> newCache(int maximumSize) {
+    return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  AttributeValue getAttributeValue(io.opentelemetry.common.AttributeValue value) {
+    AttributeValue proto = attributeValues.getIfPresent(value);
+    if (proto == null) {
+      proto = TraceTranslator.toAttributeValueProto(value, null);
+      if (proto.hasStringValue()) {
+        proto.getStringValue().getValueBytes();
+      }
+      attributeValues.put(value, proto);
+    }
+    return proto;
+  }
+
+  TruncatableString getDisplayName(String spanName, @Nullable Kind spanKind) {
+    Cache<String, TruncatableString> cache = displayNamesFor(spanKind);
+    TruncatableString proto = cache.getIfPresent(spanName);
+    if (proto == null) {
+      proto =
+          TraceTranslator.toTruncatableStringProto(
+              TraceTranslator.toDisplayName(spanName, spanKind),
+              TraceTranslator.MAX_DISPLAY_NAME_BYTES);
+      proto.getValueBytes();
+      cache.put(spanName, proto);
+    }
+    return proto;
+  }
+
+  /** Returns the combined hit and miss counts of all the caches. */
+  CacheStats stats() {
+    return attributeValues
+        .stats()
+        .plus(serverDisplayNames.stats())
+        .plus(clientDisplayNames.stats())
+        .plus(otherDisplayNames.stats());
+  }
+
+  private Cache<String, TruncatableString> displayNamesFor(@Nullable Kind spanKind) {
+    if (spanKind == Kind.SERVER) {
+      return serverDisplayNames;
+    }
+    if (spanKind == Kind.CLIENT) {
+      return clientDisplayNames;
+    }
+    return otherDisplayNames;
+  }
+}
@@ -0,0 +1,68 @@
+package com.google.cloud.opentelemetry.trace;
+
+/**
+ * Measures and truncates strings by their UTF-8 length, walking their chars instead of encoding
+ * them into byte arrays.
+ *
+ * <p>Unpaired surrogates count as one byte, the {@code '?'} that protobuf writes in their place,
+ * so the lengths match what ends up on the wire.
+ */
+final class Utf8Truncation {
+
+  /**
+   * Returns the number of leading chars of {@code value} whose UTF-8 encoding fits in {@code
+   * maxBytes}. The result never splits a surrogate pair, so it always ends on a code point.
+   */
+  static int truncatedLength(String value, int maxBytes) {
+    int length = value.length();
+    // No char encodes to more than three bytes, so short strings need no scan.
+    if ((long) length * 3 <= maxBytes) {
+      return length;
+    }
+    int bytes = 0;
+    int index = 0;
+    while (index < length) {
+      int codePointBytes = codePointBytes(value, index);
+      if (bytes + codePointBytes > maxBytes) {
+        return index;
+      }
+      bytes += codePointBytes;
+      index += codePointBytes == 4 ? 2 : 1;
+    }
+    return length;
+  }
+
+  /** Returns the UTF-8 length of the chars of {@code value} from {@code start} to {@code end}. */
+  static int encodedLength(String value, int start, int end) {
+    int bytes = 0;
+    int index = start;
+    while (index < end) {
+      int codePointBytes = codePointBytes(value, index);
+      bytes += codePointBytes;
+      index += codePointBytes == 4 ? 2 : 1;
+    }
+    return bytes;
+  }
+
+  // Four bytes means a surrogate pair, the only code points that take two chars.
+  private static int codePointBytes(String value, int index) {
+    char c = value.charAt(index);
+    if (c < 0x80) {
+      return 1;
+    }
+    if (c < 0x800) {
+      return 2;
+    }
+    if (!Character.isSurrogate(c)) {
+      return 3;
+    }
+    if (Character.isHighSurrogate(c)
+        && index + 1 < value.length()
+        && Character.isLowSurrogate(value.charAt(index + 1))) {
+      return 4;
+    }
+    return 1;
+  }
+
+  private Utf8Truncation() {}
+}
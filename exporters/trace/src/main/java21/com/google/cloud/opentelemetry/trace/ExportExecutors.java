@@ -0,0 +1,31 @@
+package com.google.cloud.opentelemetry.trace;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that run export work which may block, such as retried sends, gRPC
+ * callbacks and credential refreshes.
+ *
+ * <p>This is the JDK 21 version, packaged under {@code META-INF/versions/21} of the multi-release
+ * jar. Every task gets its own virtual thread, which unmounts from its carrier while it blocks,
+ * so thousands of waits need no more than a handful of platform threads.
+ */
+final class ExportExecutors {
+
+  /**
+   * Returns an executor that starts a virtual thread named after {@code threadName} for every
+   * task. {@code maxPlatformThreads} only bounds the Java 8 version.
+   */
+  static ExecutorService newExportExecutor(String threadName, int maxPlatformThreads) {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name(threadName + "-", 0).factory());
+  }
+
+  /** Returns whether {@link #newExportExecutor} runs tasks on virtual threads. */
+  static boolean usesVirtualThreads() {
+    return true;
+  }
+
+  private ExportExecutors() {}
+}
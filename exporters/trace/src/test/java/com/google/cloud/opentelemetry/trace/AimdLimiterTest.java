@@ -0,0 +1,137 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import io.grpc.Status;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AimdLimiterTest {
+
+  private static final long LATENCY_NANOS = 1_000_000;
+
+  @Test
+  public void initialLimitIsCappedToMaxLimit() {
+    assertEquals(4, new AimdLimiter(16, 4).limit());
+  }
+
+  @Test
+  public void rejectsWhenLimitReached() {
+    AimdLimiter limiter = new AimdLimiter(2, 2);
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+
+    limiter.release();
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  public void growsWhileLatencyIsStable() {
+    AimdLimiter limiter = new AimdLimiter(2, 3);
+    for (int i = 0; i < 4; i++) {
+      fillAndSucceed(limiter, LATENCY_NANOS);
+    }
+
+    assertEquals(3, limiter.limit());
+
+    fillAndSucceed(limiter, LATENCY_NANOS);
+    assertEquals(3, limiter.limit());
+  }
+
+  @Test
+  public void doesNotGrowWhileIdle() {
+    AimdLimiter limiter = new AimdLimiter(4, 8);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.onSuccess(LATENCY_NANOS);
+      limiter.release();
+    }
+
+    assertEquals(4, limiter.limit());
+  }
+
+  @Test
+  public void doesNotGrowWhenLatencySpikes() {
+    AimdLimiter limiter = new AimdLimiter(1, 8);
+    fillAndSucceed(limiter, LATENCY_NANOS);
+    assertEquals(2, limiter.limit());
+
+    fillAndSucceed(limiter, 10 * LATENCY_NANOS);
+    fillAndSucceed(limiter, 10 * LATENCY_NANOS);
+
+    assertEquals(2, limiter.limit());
+    assertEquals(10 * LATENCY_NANOS, limiter.lastLatencyNanos());
+  }
+
+  @Test
+  public void halvesOnDeadlineExceededAndResourceExhausted() {
+    AimdLimiter limiter = new AimdLimiter(16, 16);
+
+    limiter.onFailure(Status.DEADLINE_EXCEEDED.asRuntimeException(), limiter.epoch());
+    assertEquals(8, limiter.limit());
+
+    limiter.onFailure(
+        ApiExceptionFactory.createException(
+            new RuntimeException(), GrpcStatusCode.of(Status.Code.RESOURCE_EXHAUSTED), false),
+        limiter.epoch());
+    assertEquals(4, limiter.limit());
+
+    limiter.onFailure(Status.UNAVAILABLE.asRuntimeException(), limiter.epoch());
+    limiter.onFailure(Status.INVALID_ARGUMENT.asRuntimeException(), limiter.epoch());
+    assertEquals(4, limiter.limit());
+  }
+
+  @Test
+  public void cutsOncePerEpoch() {
+    AimdLimiter limiter = new AimdLimiter(16, 16);
+    long epoch = limiter.epoch();
+
+    limiter.onFailure(Status.RESOURCE_EXHAUSTED.asRuntimeException(), epoch);
+    limiter.onFailure(Status.RESOURCE_EXHAUSTED.asRuntimeException(), epoch);
+
+    assertEquals(8, limiter.limit());
+  }
+
+  @Test
+  public void neverCutsBelowOne() {
+    AimdLimiter limiter = new AimdLimiter(1, 16);
+
+    limiter.onFailure(Status.DEADLINE_EXCEEDED.asRuntimeException(), limiter.epoch());
+
+    assertEquals(1, limiter.limit());
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  public void smoothsLatency() {
+    AimdLimiter limiter = new AimdLimiter(1, 1);
+    assertEquals(0, limiter.smoothedLatencyNanos());
+
+    limiter.onSuccess(LATENCY_NANOS);
+    assertEquals(LATENCY_NANOS, limiter.smoothedLatencyNanos());
+
+    limiter.onSuccess(2 * LATENCY_NANOS);
+    assertTrue(limiter.smoothedLatencyNanos() > LATENCY_NANOS);
+    assertTrue(limiter.smoothedLatencyNanos() < 2 * LATENCY_NANOS);
+  }
+
+  // Takes every slot, then completes all of the calls with the given latency.
+  private static void fillAndSucceed(AimdLimiter limiter, long latencyNanos) {
+    int acquired = 0;
+    while (limiter.tryAcquire()) {
+      acquired++;
+    }
+    for (int i = 0; i < acquired; i++) {
+      limiter.onSuccess(latencyNanos);
+      limiter.release();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Strings;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class BatchSplitterTest {
+
+  private static final ProjectName PROJECT_NAME = ProjectName.of("project-id");
+
+  @Test
+  public void keepsSmallBatchWhole() {
+    List<ByteString> spans = createSpans(10, 10);
+
+    List<List<ByteString>> chunks =
+        new BatchSplitter(100, 1024 * 1024).split(PROJECT_NAME, spans);
+
+    assertEquals(1, chunks.size());
+    assertSame(spans, chunks.get(0));
+  }
+
+  @Test
+  public void splitsBySpanCount() {
+    List<ByteString> spans = createSpans(25, 10);
+
+    List<List<ByteString>> chunks =
+        new BatchSplitter(10, 1024 * 1024).split(PROJECT_NAME, spans);
+
+    assertEquals(3, chunks.size());
+    assertEquals(10, chunks.get(0).size());
+    assertEquals(10, chunks.get(1).size());
+    assertEquals(5, chunks.get(2).size());
+    assertEquals(spans.get(10), chunks.get(1).get(0));
+  }
+
+  @Test
+  public void splitsBySerializedSize() {
+    List<ByteString> spans = createSpans(10, 1000);
+
+    List<List<ByteString>> chunks =
+        new BatchSplitter(100, 3500).split(PROJECT_NAME, spans);
+
+    // Each span takes a little over 1000 bytes, so only three fit under the limit.
+    assertEquals(4, chunks.size());
+    assertEquals(3, chunks.get(0).size());
+    assertEquals(3, chunks.get(1).size());
+    assertEquals(3, chunks.get(2).size());
+    assertEquals(1, chunks.get(3).size());
+  }
+
+  @Test
+  public void placesOversizedSpanInItsOwnChunk() {
+    List<ByteString> spans = new ArrayList<>(createSpans(1, 10));
+    spans.addAll(createSpans(1, 5000));
+    spans.addAll(createSpans(1, 10));
+
+    List<List<ByteString>> chunks =
+        new BatchSplitter(100, 1000).split(PROJECT_NAME, spans);
+
+    assertEquals(3, chunks.size());
+    assertEquals(spans.get(1), chunks.get(1).get(0));
+  }
+
+  private static List<ByteString> createSpans(int count, int nameLength) {
+    List<ByteString> spans = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Span span = Span.newBuilder().setName(Strings.repeat("a", nameLength)).build();
+      spans.add(span.toByteString());
+    }
+    return spans;
+  }
+}
@@ -0,0 +1,260 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
+import com.google.protobuf.Empty;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ChannelPoolTest {
+
+  private static final BatchWriteSpansRequest REQUEST =
+      BatchWriteSpansRequest.newBuilder().setName("projects/test").build();
+
+  private final List<Server> servers = new ArrayList<>();
+  private ChannelPool pool;
+
+  @After
+  public void tearDown() throws InterruptedException {
+    pool.shutdownNow();
+    pool.awaitTermination(5, TimeUnit.SECONDS);
+    for (Server server : servers) {
+      server.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sendsToChannelWithFewestOutstandingCalls() {
+    FakeTraceService first = new FakeTraceService(null);
+    FakeTraceService second = new FakeTraceService(null);
+    pool = createPool(Duration.ofMinutes(1), first, second);
+
+    for (int i = 0; i < 4; i++) {
+      ClientCalls.futureUnaryCall(
+          pool.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT), REQUEST);
+    }
+
+    assertEquals(2, pool.outstandingCalls(0));
+    assertEquals(2, pool.outstandingCalls(1));
+  }
+
+  @Test
+  public void releasesCallsWhenTheyComplete() throws Exception {
+    FakeTraceService first = new FakeTraceService(null);
+    FakeTraceService second = new FakeTraceService(null);
+    pool = createPool(Duration.ofMinutes(1), first, second);
+    for (int i = 0; i < 2; i++) {
+      ClientCalls.futureUnaryCall(
+          pool.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT), REQUEST);
+    }
+    awaitCalls(first, 1);
+    awaitCalls(second, 1);
+
+    first.completeAll();
+    second.completeAll();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (pool.outstandingCalls(0) + pool.outstandingCalls(1) > 0
+        && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+
+    assertEquals(0, pool.outstandingCalls(0));
+    assertEquals(0, pool.outstandingCalls(1));
+  }
+
+  @Test
+  public void skipsUnhealthyChannel() {
+    FakeTraceService failing = new FakeTraceService(Status.UNAVAILABLE);
+    FakeTraceService healthy = new FakeTraceService(Status.OK);
+    pool = createPool(Duration.ofMinutes(1), failing, healthy);
+
+    for (int i = 0; i < 2 * ChannelPool.UNHEALTHY_AFTER_FAILURES + 4; i++) {
+      call();
+    }
+
+    assertFalse(pool.isHealthy(0));
+    assertTrue(pool.isHealthy(1));
+    assertEquals(ChannelPool.UNHEALTHY_AFTER_FAILURES, failing.calls.size());
+    assertEquals(ChannelPool.UNHEALTHY_AFTER_FAILURES + 4, healthy.calls.size());
+  }
+
+  @Test
+  public void probesUnhealthyChannelAfterInterval() {
+    FakeTraceService recovering = new FakeTraceService(Status.UNAVAILABLE);
+    pool = createPool(Duration.ZERO, recovering);
+
+    for (int i = 0; i < ChannelPool.UNHEALTHY_AFTER_FAILURES; i++) {
+      call();
+    }
+    recovering.status = Status.OK;
+    call();
+
+    assertTrue(pool.isHealthy(0));
+    assertEquals(ChannelPool.UNHEALTHY_AFTER_FAILURES + 1, recovering.calls.size());
+  }
+
+  @Test
+  public void probesUnhealthyChannelWithOneCallPerInterval() throws Exception {
+    FakeTraceService failing = new FakeTraceService(Status.UNAVAILABLE);
+    FakeTraceService healthy = new FakeTraceService(null);
+    pool = createPool(Duration.ofMillis(100), failing, healthy);
+    while (failing.calls.size() < ChannelPool.UNHEALTHY_AFTER_FAILURES) {
+      call(failing);
+    }
+    // Held calls keep the probe from failing, so only the probe interval limits them.
+    failing.status = null;
+    Thread.sleep(150);
+
+    for (int i = 0; i < 10; i++) {
+      ClientCalls.futureUnaryCall(
+          pool.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT), REQUEST);
+    }
+
+    assertEquals(ChannelPool.UNHEALTHY_AFTER_FAILURES + 1, failing.calls.size());
+    assertEquals(1, pool.outstandingCalls(0));
+  }
+
+  @Test
+  public void doesNotCountCallsThatFailToStart() {
+    pool = createPool(Duration.ofMinutes(1), new FakeTraceService(null));
+    ClientCall<BatchWriteSpansRequest, Empty> call =
+        pool.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT);
+    call.start(new ClientCall.Listener<Empty>() {}, new Metadata());
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> call.start(new ClientCall.Listener<Empty>() {}, new Metadata()));
+    assertEquals(1, pool.outstandingCalls(0));
+  }
+
+  @Test
+  public void usesUnhealthyChannelsWhenNoneIsHealthy() {
+    FakeTraceService failing = new FakeTraceService(Status.UNAVAILABLE);
+    pool = createPool(Duration.ofMinutes(1), failing);
+
+    for (int i = 0; i < ChannelPool.UNHEALTHY_AFTER_FAILURES + 1; i++) {
+      call();
+    }
+
+    assertFalse(pool.isHealthy(0));
+    assertEquals(ChannelPool.UNHEALTHY_AFTER_FAILURES + 1, failing.calls.size());
+  }
+
+  @Test
+  public void shutsDownEveryChannel() throws InterruptedException {
+    pool = createPool(Duration.ofMinutes(1), new FakeTraceService(Status.OK));
+
+    pool.shutdown();
+
+    assertTrue(pool.isShutdown());
+    assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(pool.isTerminated());
+  }
+
+  // Calls until one reaches the service, since the pool may pick the other channels first.
+  private void call(FakeTraceService service) {
+    int calls = service.calls.size();
+    while (service.calls.size() == calls) {
+      ClientCalls.futureUnaryCall(
+          pool.newCall(TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT), REQUEST);
+    }
+  }
+
+  private void call() {
+    try {
+      ClientCalls.blockingUnaryCall(
+          pool, TraceServiceGrpc.getBatchWriteSpansMethod(), CallOptions.DEFAULT, REQUEST);
+    } catch (StatusRuntimeException e) {
+      // Expected for the failing services.
+    }
+  }
+
+  private ChannelPool createPool(Duration probeInterval, FakeTraceService... services) {
+    List<ManagedChannel> channels = new ArrayList<>();
+    for (FakeTraceService service : services) {
+      String name = InProcessServerBuilder.generateName();
+      try {
+        servers.add(
+            InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(service)
+                .build()
+                .start());
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+      channels.add(InProcessChannelBuilder.forName(name).directExecutor().build());
+    }
+    return new ChannelPool(channels, probeInterval);
+  }
+
+  private static void awaitCalls(FakeTraceService service, int calls) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (service.calls.size() < calls) {
+      if (System.nanoTime() > deadline) {
+        fail("Timed out waiting for " + calls + " calls, got " + service.calls.size());
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  // Answers every call with its status, or holds it until completeAll() if the status is null.
+  private static final class FakeTraceService extends TraceServiceGrpc.TraceServiceImplBase {
+    private final List<StreamObserver<Empty>> calls = new CopyOnWriteArrayList<>();
+    private volatile Status status;
+
+    private FakeTraceService(Status status) {
+      this.status = status;
+    }
+
+    @Override
+    public void batchWriteSpans(
+        BatchWriteSpansRequest request, StreamObserver<Empty> responseObserver) {
+      calls.add(responseObserver);
+      Status status = this.status;
+      if (status == null) {
+        return;
+      }
+      if (status.isOk()) {
+        responseObserver.onNext(Empty.getDefaultInstance());
+        responseObserver.onCompleted();
+      } else {
+        responseObserver.onError(status.asRuntimeException());
+      }
+    }
+
+    private void completeAll() {
+      for (StreamObserver<Empty> call : calls) {
+        call.onNext(Empty.getDefaultInstance());
+        call.onCompleted();
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.Span.Attributes;
+import com.google.protobuf.CodedOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class EncodedAttributesTest {
+
+  @Test
+  public void encodesSameEntriesAsTranslator() throws Exception {
+    Map<String, AttributeValue> fixedAttributes = new LinkedHashMap<>();
+    fixedAttributes.put("fixed", TraceTranslator.toStringAttributeValueProto("attributes"));
+    fixedAttributes.put("g.co/agent", TraceTranslator.toStringAttributeValueProto("custom"));
+    fixedAttributes.put("count", AttributeValue.newBuilder().setIntValue(3).build());
+    EncodedAttributes encoded = EncodedAttributes.forSpans(fixedAttributes);
+
+    Attributes expected =
+        TraceTranslator.toAttributesProto(
+            io.opentelemetry.common.Attributes.empty(), fixedAttributes);
+    byte[] actual = new byte[encoded.getSerializedSize()];
+    CodedOutputStream output = CodedOutputStream.newInstance(actual);
+    encoded.writeTo(output);
+
+    output.checkNoSpaceLeft();
+    assertArrayEquals(expected.toByteArray(), actual);
+  }
+
+  @Test
+  public void containsAgentAndFixedKeys() {
+    Map<String, AttributeValue> fixedAttributes = new LinkedHashMap<>();
+    fixedAttributes.put("fixed", TraceTranslator.toStringAttributeValueProto("attributes"));
+    EncodedAttributes encoded = EncodedAttributes.forSpans(fixedAttributes);
+
+    assertTrue(encoded.containsKey("g.co/agent"));
+    assertTrue(encoded.containsKey("fixed"));
+    assertFalse(encoded.containsKey("other"));
+    assertTrue(EncodedAttributes.AGENT_LABEL.containsKey("g.co/agent"));
+  }
+}
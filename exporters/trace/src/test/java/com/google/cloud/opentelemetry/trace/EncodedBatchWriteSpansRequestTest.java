@@ -0,0 +1,88 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.io.ByteStreams;
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import io.grpc.Drainable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class EncodedBatchWriteSpansRequestTest {
+
+  private static final ProjectName PROJECT_NAME = ProjectName.of("project-id");
+  private static final Span SPAN_ONE =
+      Span.newBuilder().setName("projects/project-id/traces/1/spans/1").setSpanId("1").build();
+  private static final Span SPAN_TWO =
+      Span.newBuilder().setName("projects/project-id/traces/1/spans/2").setSpanId("2").build();
+  private static final BatchWriteSpansRequest EXPECTED_REQUEST =
+      BatchWriteSpansRequest.newBuilder()
+          .setName(PROJECT_NAME.toString())
+          .addSpans(SPAN_ONE)
+          .addSpans(SPAN_TWO)
+          .build();
+
+  @Test
+  public void encodesSameBytesAsProtoRequest() throws Exception {
+    EncodedBatchWriteSpansRequest request = createRequest();
+
+    assertEquals(EXPECTED_REQUEST.toByteString(), request.toByteString());
+    assertEquals(EXPECTED_REQUEST, request.toProto());
+  }
+
+  @Test
+  public void marshallerStreamsRequestBytes() throws Exception {
+    InputStream stream =
+        EncodedBatchWriteSpansRequest.BATCH_WRITE_SPANS_METHOD.streamRequest(createRequest());
+
+    assertEquals(EXPECTED_REQUEST.getSerializedSize(), stream.available());
+    assertArrayEquals(EXPECTED_REQUEST.toByteArray(), ByteStreams.toByteArray(stream));
+  }
+
+  @Test
+  public void marshallerDrainsRequestBytes() throws Exception {
+    InputStream stream =
+        EncodedBatchWriteSpansRequest.BATCH_WRITE_SPANS_METHOD.streamRequest(createRequest());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    assertEquals(EXPECTED_REQUEST.getSerializedSize(), ((Drainable) stream).drainTo(output));
+    assertArrayEquals(EXPECTED_REQUEST.toByteArray(), output.toByteArray());
+  }
+
+  @Test
+  public void marshallerParsesRequest() {
+    EncodedBatchWriteSpansRequest parsed =
+        EncodedBatchWriteSpansRequest.BATCH_WRITE_SPANS_METHOD.parseRequest(
+            EXPECTED_REQUEST.toByteString().newInput());
+
+    assertEquals(PROJECT_NAME.toString(), parsed.getName());
+    assertEquals(
+        Arrays.asList(SPAN_ONE.toByteString(), SPAN_TWO.toByteString()), parsed.getSpans());
+  }
+
+  @Test
+  public void encodesEmptyRequest() {
+    EncodedBatchWriteSpansRequest request =
+        new EncodedBatchWriteSpansRequest(PROJECT_NAME, Collections.<ByteString>emptyList());
+
+    assertEquals(
+        BatchWriteSpansRequest.newBuilder().setName(PROJECT_NAME.toString()).build().toByteString(),
+        request.toByteString());
+  }
+
+  private static EncodedBatchWriteSpansRequest createRequest() {
+    return new EncodedBatchWriteSpansRequest(
+        PROJECT_NAME, Arrays.asList(SPAN_ONE.toByteString(), SPAN_TWO.toByteString()));
+  }
+}
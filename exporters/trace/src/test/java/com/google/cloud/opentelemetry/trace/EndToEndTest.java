@@ -8,15 +8,12 @@ import io.opentelemetry.trace.SpanId;
 import io.opentelemetry.trace.Status;
 import io.opentelemetry.trace.TraceId;
 import org.junit.After;
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.ServerSocket;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class EndToEndTest {
@@ -40,71 +38,130 @@ public class EndToEndTest {
   private static final Status SPAN_DATA_STATUS = Status.OK;
   private static final String LOCALHOST = "127.0.0.1";
 
+  private FakeTraceServer server;
   private MockCloudTraceClient mockCloudTraceClient;
   private TraceExporter exporter;
-  private Process mockServerProcess;
-
-
-  @Before
-  public void setup() throws IOException {
-    // Find a free port to spin up our server at.
-    ServerSocket socket = new ServerSocket(0);
-    int port = socket.getLocalPort();
-    String address = String.format("%s:%d", LOCALHOST, port);
-    socket.close();
-
-    // Start the mock server. This assumes the binary is present and in $PATH.
-    // Typically, the CI will be the one that curls the binary and adds it to $PATH.
-    String[] cmdArray = new String[]{"mock_server", "-address", address};
-    ProcessBuilder pb = new ProcessBuilder(cmdArray);
-    pb.redirectErrorStream(true);
-    mockServerProcess = pb.start();
-
-    // Setup the mock trace client.
-    mockCloudTraceClient = new MockCloudTraceClient(LOCALHOST, port);
-
-    // Block until the mock server starts (it will output the address after starting).
-    BufferedReader br = new BufferedReader(new InputStreamReader(mockServerProcess.getInputStream()));
-    br.readLine();
+
+  private void startServer(FakeTraceService service) throws IOException {
+    // The fake listens on a free loopback port, so the exporter goes through a real HTTP/2
+    // connection without needing anything outside the JVM.
+    server = FakeTraceServer.startOnLocalhost(service);
+    mockCloudTraceClient = new MockCloudTraceClient(LOCALHOST, server.getPort());
   }
 
   @After
-  public void tearDown() {
-    mockServerProcess.destroy();
+  public void tearDown() throws InterruptedException {
+    if (exporter != null) {
+      exporter.shutdown();
+    } else if (mockCloudTraceClient != null) {
+      mockCloudTraceClient.shutdown();
+    }
+    if (server != null) {
+      server.close();
+    }
   }
 
   @Test
-  public void exportMockSpanDataList(){
+  public void exportMockSpanDataList() throws IOException {
+    startServer(FakeTraceService.newBuilder().build());
     exporter = new TraceExporter(PROJECT_ID, mockCloudTraceClient, FIXED_ATTRIBUTES);
     Collection<SpanData> spanDataList = new ArrayList<>();
 
-    TestSpanData spanDataOne = TestSpanData.newBuilder()
-            .setParentSpanId(PARENT_SPAN_ID)
-            .setSpanId(SPAN_ID)
-            .setTraceId(TRACE_ID)
-            .setName(SPAN_NAME)
-            .setKind(io.opentelemetry.trace.Span.Kind.SERVER)
-            .setEvents(Collections.emptyList())
-            .setStatus(SPAN_DATA_STATUS)
-            .setStartEpochNanos(START_EPOCH_NANOS)
-            .setEndEpochNanos(END_EPOCH_NANOS)
-            .setTotalRecordedLinks(0)
-            .setHasRemoteParent(false)
-            .setHasEnded(true)
-            .build();
-
-    spanDataList.add(spanDataOne);
+    spanDataList.add(createSpanData(SPAN_ID));
 
     // Invokes export();
     assertEquals(SpanExporter.ResultCode.SUCCESS, exporter.export(spanDataList));
+    assertEquals(SpanExporter.ResultCode.SUCCESS, exporter.flush());
+    assertEquals(1, server.getService().getAcceptedSpanCount());
+    assertEquals("projects/" + PROJECT_ID, server.getService().getRequests().get(0).getName());
   }
 
   @Test
-  public void exportEmptySpanDataList(){
+  public void exportEmptySpanDataList() throws IOException {
+    startServer(FakeTraceService.newBuilder().build());
     exporter = new TraceExporter(PROJECT_ID, mockCloudTraceClient, FIXED_ATTRIBUTES);
     Collection<SpanData> spanDataList = new ArrayList<>();
 
     // Invokes export();
     assertEquals(SpanExporter.ResultCode.SUCCESS, exporter.export(spanDataList));
+    assertEquals(0, server.getService().getRequestCount());
+  }
+
+  @Test
+  public void slowBackendRejectsExportsBeyondInFlightLimit() throws IOException {
+    startServer(
+        FakeTraceService.newBuilder()
+            .setLatency(FakeTraceService.Latency.fixed(Duration.ofMillis(500)))
+            .build());
+    exporter =
+        new TraceExporter(
+            mockCloudTraceClient,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxInFlightRequests(2)
+                .build());
+
+    assertEquals(SpanExporter.ResultCode.SUCCESS, export(new SpanId(1)));
+    assertEquals(SpanExporter.ResultCode.SUCCESS, export(new SpanId(2)));
+    assertEquals(SpanExporter.ResultCode.FAILURE, export(new SpanId(3)));
+    assertEquals(SpanExporter.ResultCode.FAILURE, export(new SpanId(4)));
+
+    assertEquals(SpanExporter.ResultCode.SUCCESS, exporter.flush());
+    assertEquals(2, exporter.getDroppedSpanCount());
+    assertEquals(2, server.getService().getAcceptedSpanCount());
+    assertTrue(server.getService().getMaxConcurrentRequests() <= 2);
+  }
+
+  @Test
+  public void unavailableBackendIsRetried() throws IOException {
+    startServer(FakeTraceService.newBuilder().setErrorRate(1, io.grpc.Status.UNAVAILABLE).build());
+    exporter =
+        new TraceExporter(
+            mockCloudTraceClient,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxRetryAttempts(2)
+                .setInitialRetryBackoff(Duration.ofMillis(1))
+                .setMaxRetryBackoff(Duration.ofMillis(1))
+                .build());
+
+    assertEquals(SpanExporter.ResultCode.SUCCESS, export(SPAN_ID));
+
+    assertEquals(SpanExporter.ResultCode.FAILURE, exporter.flush());
+    assertEquals(3, server.getService().getRequestCount());
+    assertEquals(3, server.getService().getFailedRequestCount());
+  }
+
+  @Test
+  public void oversizedRequestIsRejected() throws IOException {
+    startServer(FakeTraceService.newBuilder().setMaxRequestBytes(16).build());
+    exporter = new TraceExporter(PROJECT_ID, mockCloudTraceClient, FIXED_ATTRIBUTES);
+
+    assertEquals(SpanExporter.ResultCode.SUCCESS, export(SPAN_ID));
+
+    assertEquals(SpanExporter.ResultCode.FAILURE, exporter.flush());
+    assertEquals(1, server.getService().getFailedRequestCount());
+    assertEquals(0, server.getService().getAcceptedSpanCount());
+  }
+
+  private SpanExporter.ResultCode export(SpanId spanId) {
+    return exporter.export(Collections.singletonList(createSpanData(spanId)));
+  }
+
+  private static SpanData createSpanData(SpanId spanId) {
+    return TestSpanData.newBuilder()
+        .setParentSpanId(PARENT_SPAN_ID)
+        .setSpanId(spanId)
+        .setTraceId(TRACE_ID)
+        .setName(SPAN_NAME)
+        .setKind(io.opentelemetry.trace.Span.Kind.SERVER)
+        .setEvents(Collections.emptyList())
+        .setStatus(SPAN_DATA_STATUS)
+        .setStartEpochNanos(START_EPOCH_NANOS)
+        .setEndEpochNanos(END_EPOCH_NANOS)
+        .setTotalRecordedLinks(0)
+        .setHasRemoteParent(false)
+        .setHasEnded(true)
+        .build();
   }
 }
@@ -0,0 +1,75 @@
+package com.google.cloud.opentelemetry.trace;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ExportExecutorsTest {
+
+  private final ExecutorService executor = ExportExecutors.newExportExecutor("test-export", 2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void usesPlatformThreadsBeforeJava21() {
+    // Tests run against the Java 8 classes, not the multi-release jar.
+    assertFalse(ExportExecutors.usesVirtualThreads());
+  }
+
+  @Test
+  public void runsTasksOnNamedDaemonThreads() throws Exception {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    CountDownLatch done = new CountDownLatch(1);
+
+    executor.execute(
+        () -> {
+          threads.add(Thread.currentThread());
+          done.countDown();
+        });
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    Thread thread = threads.iterator().next();
+    assertTrue(thread.getName().startsWith("test-export-"));
+    assertTrue(thread.isDaemon());
+  }
+
+  @Test
+  public void boundsPlatformThreads() throws Exception {
+    int tasks = 10;
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(tasks);
+
+    for (int i = 0; i < tasks; i++) {
+      executor.execute(
+          () -> {
+            threads.add(Thread.currentThread());
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            done.countDown();
+          });
+    }
+    release.countDown();
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(2, threads.size());
+  }
+}
@@ -0,0 +1,84 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
+import com.google.protobuf.Empty;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class GrpcCloudTraceClientTest {
+
+  private Server server;
+  private ManagedChannel channel;
+
+  @After
+  public void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void sendsApiClientHeader() throws IOException {
+    AtomicReference<Metadata> received = new AtomicReference<>();
+    ServerInterceptor captureHeaders =
+        new ServerInterceptor() {
+          @Override
+          public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+              ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            received.set(headers);
+            return next.startCall(call, headers);
+          }
+        };
+    String name = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(name)
+            .addService(ServerInterceptors.intercept(new OkTraceService(), captureHeaders))
+            .build()
+            .start();
+    channel =
+        InProcessChannelBuilder.forName(name)
+            .intercept(new GrpcCloudTraceClient.ApiClientHeaderInterceptor())
+            .build();
+    GrpcCloudTraceClient client =
+        new GrpcCloudTraceClient(channel, CallOptions.DEFAULT, Duration.ofSeconds(10));
+
+    client.batchWriteSpans(ProjectName.of("project-id"), Collections.emptyList());
+
+    String apiClient = received.get().get(GrpcCloudTraceClient.API_CLIENT_HEADER_KEY);
+    assertEquals(GrpcCloudTraceClient.API_CLIENT_HEADER, apiClient);
+    assertTrue(apiClient.startsWith("gl-java/"));
+    assertTrue(apiClient.contains(" grpc/"));
+  }
+
+  private static final class OkTraceService extends TraceServiceGrpc.TraceServiceImplBase {
+    @Override
+    public void batchWriteSpans(
+        BatchWriteSpansRequest request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+  }
+}
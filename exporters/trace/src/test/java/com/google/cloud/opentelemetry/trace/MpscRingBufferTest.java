@@ -0,0 +1,132 @@
+package com.google.cloud.opentelemetry.trace;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MpscRingBufferTest {
+
+  @Test
+  public void roundsCapacityUpToPowerOfTwo() {
+    assertEquals(1, new MpscRingBuffer<String>(1).capacity());
+    assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+    assertEquals(8, new MpscRingBuffer<String>(8).capacity());
+  }
+
+  @Test
+  public void disallowNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(0));
+  }
+
+  @Test
+  public void pollsInOfferOrder() {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+
+    assertTrue(buffer.offer("a"));
+    assertTrue(buffer.offer("b"));
+
+    assertEquals(2, buffer.size());
+    assertEquals("a", buffer.poll());
+    assertEquals("b", buffer.poll());
+    assertNull(buffer.poll());
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void rejectsWhenFull() {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+
+    assertTrue(buffer.offer("a"));
+    assertTrue(buffer.offer("b"));
+    assertFalse(buffer.offer("c"));
+
+    assertEquals("a", buffer.poll());
+    assertTrue(buffer.offer("c"));
+  }
+
+  @Test
+  public void wrapsAroundTheRing() {
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(buffer.offer(i));
+      assertTrue(buffer.offer(i + 1000));
+      assertEquals(Integer.valueOf(i), buffer.poll());
+      assertEquals(Integer.valueOf(i + 1000), buffer.poll());
+    }
+  }
+
+  @Test
+  public void drainToHonorsLimit() {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(8);
+    buffer.offer("a");
+    buffer.offer("b");
+    buffer.offer("c");
+    List<String> drained = new ArrayList<>();
+
+    assertEquals(2, buffer.drainTo(drained, 2));
+    assertEquals(1, buffer.drainTo(drained, 2));
+    assertEquals(0, buffer.drainTo(drained, 2));
+
+    assertEquals(3, drained.size());
+    assertEquals("c", drained.get(2));
+  }
+
+  @Test
+  public void concurrentProducersKeepPerProducerOrder() throws Exception {
+    int producers = 4;
+    int perProducer = 50_000;
+    MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      long producer = p;
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                  long[] element = {producer, i};
+                  while (!buffer.offer(element)) {
+                    Thread.yield();
+                  }
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    long[] next = new long[producers];
+    int received = 0;
+    while (received < producers * perProducer) {
+      long[] element = buffer.poll();
+      if (element == null) {
+        Thread.yield();
+        continue;
+      }
+      assertEquals(next[(int) element[0]]++, element[1]);
+      received++;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(buffer.poll());
+  }
+}
@@ -0,0 +1,111 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.protobuf.ByteString;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.trace.SpanId;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ParallelTranslatorTest {
+
+  private static final String PROJECT_ID = "project-id";
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+  private final Set<Thread> encoderThreads = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<SpanEncoder> encoders =
+      ThreadLocal.withInitial(
+          () -> {
+            encoderThreads.add(Thread.currentThread());
+            return new SpanEncoder(PROJECT_ID, Collections.emptyMap());
+          });
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void appliesFromThreshold() {
+    ParallelTranslator translator = new ParallelTranslator(executor, 3, 100);
+
+    assertFalse(translator.appliesTo(99));
+    assertTrue(translator.appliesTo(100));
+  }
+
+  @Test
+  public void preservesOrderAcrossThreads() {
+    List<SpanData> spans = spans(1000);
+
+    List<ByteString> encoded = new ParallelTranslator(executor, 3, 1).encode(spans, encoders);
+
+    assertEquals(serial(spans), encoded);
+  }
+
+  @Test
+  public void keepsSmallExportsOnCallingThread() {
+    List<SpanData> spans = spans(ParallelTranslator.MIN_SPANS_PER_RANGE);
+
+    List<ByteString> encoded = new ParallelTranslator(executor, 3, 1).encode(spans, encoders);
+
+    assertEquals(serial(spans), encoded);
+    assertEquals(Collections.singleton(Thread.currentThread()), encoderThreads);
+  }
+
+  @Test
+  public void encodesRejectedRangesOnCallingThread() {
+    List<SpanData> spans = spans(500);
+    ParallelTranslator translator =
+        new ParallelTranslator(
+            command -> {
+              throw new RejectedExecutionException();
+            },
+            3,
+            1);
+
+    assertEquals(serial(spans), translator.encode(spans, encoders));
+    assertEquals(Collections.singleton(Thread.currentThread()), encoderThreads);
+  }
+
+  @Test
+  public void rethrowsEncodingFailures() {
+    List<SpanData> spans = new ArrayList<>(spans(500));
+    spans.set(400, null);
+    ParallelTranslator translator = new ParallelTranslator(executor, 3, 1);
+
+    assertThrows(NullPointerException.class, () -> translator.encode(spans, encoders));
+  }
+
+  private static List<SpanData> spans(int count) {
+    List<SpanData> spans = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      spans.add(SpanEncoderTest.baseSpanData().setSpanId(new SpanId(i + 1)).build());
+    }
+    return spans;
+  }
+
+  private static List<ByteString> serial(List<SpanData> spans) {
+    SpanEncoder encoder = new SpanEncoder(PROJECT_ID, Collections.emptyMap());
+    List<ByteString> encoded = new ArrayList<>(spans.size());
+    for (SpanData spanData : spans) {
+      encoded.add(encoder.encodeToByteString(spanData));
+    }
+    return encoded;
+  }
+}
@@ -0,0 +1,152 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class ProjectRouterTest {
+
+  private static final String DEFAULT_PROJECT_ID = "default-project";
+  private static final String KEY = "tenant";
+
+  private final ProjectRouter router = newRouter(100);
+
+  @Test
+  public void groupsSpansByProjectInOrder() {
+    SpanData a1 = span(Attributes.newBuilder().setAttribute(KEY, "project-a").build());
+    SpanData b = span(Attributes.newBuilder().setAttribute(KEY, "project-b").build());
+    SpanData a2 = span(Attributes.newBuilder().setAttribute(KEY, "project-a").build());
+
+    Map<ProjectBatcher, Collection<SpanData>> routes = router.route(Arrays.asList(a1, b, a2));
+
+    List<ProjectBatcher> batchers = new ArrayList<>(routes.keySet());
+    assertEquals(ProjectName.of("project-a"), batchers.get(0).getProjectName());
+    assertEquals(ProjectName.of("project-b"), batchers.get(1).getProjectName());
+    assertEquals(Arrays.asList(a1, a2), routes.get(batchers.get(0)));
+    assertEquals(Collections.singletonList(b), routes.get(batchers.get(1)));
+    assertEquals(3, router.activeProjectCount());
+  }
+
+  @Test
+  public void reusesBatcherPerProject() {
+    SpanData spanData = span(Attributes.newBuilder().setAttribute(KEY, "project-a").build());
+
+    ProjectBatcher first = onlyBatcher(router.route(Collections.singletonList(spanData)));
+    ProjectBatcher second = onlyBatcher(router.route(Collections.singletonList(spanData)));
+
+    assertSame(first, second);
+  }
+
+  @Test
+  public void usesDefaultProjectWithoutStringValue() {
+    SpanData missing = span(Attributes.newBuilder().build());
+    SpanData empty = span(Attributes.newBuilder().setAttribute(KEY, "").build());
+    SpanData notString = span(Attributes.newBuilder().setAttribute(KEY, 42L).build());
+    SpanData defaultProject =
+        span(Attributes.newBuilder().setAttribute(KEY, DEFAULT_PROJECT_ID).build());
+
+    Map<ProjectBatcher, Collection<SpanData>> routes =
+        router.route(Arrays.asList(missing, empty, notString, defaultProject));
+
+    assertSame(router.getDefaultBatcher(), onlyBatcher(routes));
+    assertEquals(1, router.activeProjectCount());
+  }
+
+  @Test
+  public void usesDefaultProjectForMalformedProjectId() {
+    SpanData tooShort = span(Attributes.newBuilder().setAttribute(KEY, "a").build());
+    SpanData upperCase = span(Attributes.newBuilder().setAttribute(KEY, "Project-A").build());
+    SpanData pathSegments =
+        span(Attributes.newBuilder().setAttribute(KEY, "project-a/traces").build());
+    SpanData trailingHyphen = span(Attributes.newBuilder().setAttribute(KEY, "project-").build());
+
+    Map<ProjectBatcher, Collection<SpanData>> routes =
+        router.route(Arrays.asList(tooShort, upperCase, pathSegments, trailingHyphen));
+
+    assertSame(router.getDefaultBatcher(), onlyBatcher(routes));
+    assertEquals(1, router.activeProjectCount());
+  }
+
+  @Test
+  public void routesToDomainScopedProject() {
+    SpanData spanData =
+        span(Attributes.newBuilder().setAttribute(KEY, "example.com:project-a").build());
+
+    ProjectBatcher batcher = onlyBatcher(router.route(Collections.singletonList(spanData)));
+
+    assertEquals(ProjectName.of("example.com:project-a"), batcher.getProjectName());
+  }
+
+  @Test
+  public void releasesLeastRecentlyUsedBatcherBeyondMaxProjects() {
+    ProjectRouter router = newRouter(2);
+    SpanData a = span(Attributes.newBuilder().setAttribute(KEY, "project-a").build());
+    SpanData b = span(Attributes.newBuilder().setAttribute(KEY, "project-b").build());
+    SpanData c = span(Attributes.newBuilder().setAttribute(KEY, "project-c").build());
+
+    ProjectBatcher first = onlyBatcher(router.route(Collections.singletonList(a)));
+    router.route(Collections.singletonList(b));
+    router.route(Collections.singletonList(c));
+
+    assertEquals(3, router.activeProjectCount());
+    assertNotSame(first, onlyBatcher(router.route(Collections.singletonList(a))));
+  }
+
+  private static ProjectRouter newRouter(int maxRoutedProjects) {
+    return new ProjectRouter(
+        DEFAULT_PROJECT_ID,
+        KEY,
+        Duration.ofMinutes(1),
+        maxRoutedProjects,
+        projectId ->
+            new ProjectBatcher(
+                projectId,
+                encoderProjectId -> new SpanEncoder(encoderProjectId, Collections.emptyMap()),
+                new BatchSplitter(10, 1024),
+                null));
+  }
+
+  private static ProjectBatcher onlyBatcher(Map<ProjectBatcher, Collection<SpanData>> routes) {
+    assertEquals(1, routes.size());
+    return routes.keySet().iterator().next();
+  }
+
+  private static SpanData span(Attributes attributes) {
+    return TestSpanData.newBuilder()
+        .setTraceId(new TraceId(0, 1))
+        .setSpanId(new SpanId(1))
+        .setName("span")
+        .setKind(Kind.INTERNAL)
+        .setStatus(Status.OK)
+        .setAttributes(attributes)
+        .setEvents(Collections.<SpanData.Event>emptyList())
+        .setLinks(Collections.<SpanData.Link>emptyList())
+        .setStartEpochNanos(1)
+        .setEndEpochNanos(2)
+        .setTotalRecordedLinks(0)
+        .setHasRemoteParent(false)
+        .setHasEnded(true)
+        .build();
+  }
+}
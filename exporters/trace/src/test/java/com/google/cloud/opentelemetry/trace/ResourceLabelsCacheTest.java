@@ -0,0 +1,61 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.resources.Resource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ResourceLabelsCacheTest {
+
+  private static final Map<String, AttributeValue> FIXED_ATTRIBUTES =
+      Collections.singletonMap("fixed", TraceTranslator.toStringAttributeValueProto("value"));
+
+  private final ResourceLabelsCache cache = new ResourceLabelsCache(FIXED_ATTRIBUTES);
+
+  @Test
+  public void translatesResourceOnce() {
+    Resource resource = resource("checkout");
+
+    ResourceLabelsCache.Labels labels = cache.get(resource);
+
+    assertSame(labels, cache.get(resource));
+    assertEquals(
+        TraceTranslator.getConstAttributes(resource, FIXED_ATTRIBUTES),
+        labels.getConstAttributes());
+    assertTrue(labels.getSpanTrailingAttributes().containsKey("g.co/r/service.name"));
+    assertTrue(labels.getSpanTrailingAttributes().containsKey("fixed"));
+  }
+
+  @Test
+  public void keysResourcesByIdentity() {
+    Resource first = resource("checkout");
+    Resource equal = resource("checkout");
+
+    assertEquals(first, equal);
+    assertNotSame(cache.get(first), cache.get(equal));
+  }
+
+  @Test
+  public void usesFixedAttributesWithoutResourceAttributes() {
+    ResourceLabelsCache.Labels labels = cache.get(null);
+
+    assertSame(labels, cache.get(Resource.getEmpty()));
+    assertEquals(FIXED_ATTRIBUTES, labels.getConstAttributes());
+  }
+
+  private static Resource resource(String serviceName) {
+    return Resource.create(
+        Attributes.newBuilder().setAttribute("service.name", serviceName).build());
+  }
+}
@@ -0,0 +1,75 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import io.grpc.Status;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RetryPolicyTest {
+
+  private static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(1);
+
+  @Test
+  public void retriesOnlyUnavailableAndDeadlineExceeded() {
+    assertTrue(RetryPolicy.isRetryable(Status.UNAVAILABLE.asRuntimeException()));
+    assertTrue(RetryPolicy.isRetryable(Status.DEADLINE_EXCEEDED.asException()));
+    assertTrue(RetryPolicy.isRetryable(apiException(Status.Code.UNAVAILABLE)));
+    assertFalse(RetryPolicy.isRetryable(Status.INVALID_ARGUMENT.asRuntimeException()));
+    assertFalse(RetryPolicy.isRetryable(apiException(Status.Code.PERMISSION_DENIED)));
+    assertFalse(RetryPolicy.isRetryable(new IllegalStateException()));
+  }
+
+  @Test
+  public void stopsAfterMaxRetries() {
+    RetryPolicy policy = new RetryPolicy(2, INITIAL_BACKOFF, MAX_BACKOFF, 1);
+    Throwable unavailable = Status.UNAVAILABLE.asRuntimeException();
+
+    assertTrue(policy.shouldRetry(unavailable, 1));
+    assertTrue(policy.shouldRetry(unavailable, 2));
+    assertFalse(policy.shouldRetry(unavailable, 3));
+  }
+
+  @Test
+  public void retryBudgetLimitsRetriesToFractionOfRequests() {
+    RetryPolicy policy = new RetryPolicy(1, INITIAL_BACKOFF, MAX_BACKOFF, 0.5);
+    Throwable unavailable = Status.UNAVAILABLE.asRuntimeException();
+    for (int i = 0; i < RetryPolicy.MAX_TOKENS; i++) {
+      assertTrue(policy.shouldRetry(unavailable, 1));
+    }
+
+    assertFalse(policy.shouldRetry(unavailable, 1));
+
+    policy.recordRequest();
+    assertFalse(policy.shouldRetry(unavailable, 1));
+
+    policy.recordRequest();
+    assertTrue(policy.shouldRetry(unavailable, 1));
+    assertFalse(policy.shouldRetry(unavailable, 1));
+  }
+
+  @Test
+  public void backoffGrowsExponentiallyUpToCap() {
+    RetryPolicy policy = new RetryPolicy(10, INITIAL_BACKOFF, MAX_BACKOFF, 1);
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(policy.backoffNanos(1) <= INITIAL_BACKOFF.toNanos());
+      assertTrue(policy.backoffNanos(3) <= TimeUnit.MILLISECONDS.toNanos(400));
+      assertTrue(policy.backoffNanos(10) <= MAX_BACKOFF.toNanos());
+    }
+  }
+
+  private static Throwable apiException(Status.Code code) {
+    return ApiExceptionFactory.createException(
+        new RuntimeException(), GrpcStatusCode.of(code), code == Status.Code.UNAVAILABLE);
+  }
+}
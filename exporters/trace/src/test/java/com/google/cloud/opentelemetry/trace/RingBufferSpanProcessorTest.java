@@ -0,0 +1,190 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.opentelemetry.sdk.trace.TracerSdkProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.trace.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RingBufferSpanProcessorTest {
+
+  private static final long ONE_HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final RecordingExporter exporter = new RecordingExporter();
+  private TracerSdkProvider tracerProvider;
+  private Tracer tracer;
+
+  @Before
+  public void setUp() {
+    tracerProvider = TracerSdkProvider.builder().build();
+    tracer = tracerProvider.get("test");
+  }
+
+  @After
+  public void tearDown() {
+    tracerProvider.shutdown();
+  }
+
+  @Test
+  public void forceFlushExportsBufferedSpans() {
+    RingBufferSpanProcessor processor =
+        addProcessor(
+            RingBufferSpanProcessor.newBuilder(exporter).setScheduleDelayMillis(ONE_HOUR_MILLIS));
+
+    endSpans(3);
+    processor.forceFlush();
+
+    assertEquals(3, exporter.exportedSpans().size());
+    assertEquals(1, exporter.flushes.get());
+  }
+
+  @Test
+  public void exportsFullBatchWithoutWaitingForDelay() throws Exception {
+    addProcessor(
+        RingBufferSpanProcessor.newBuilder(exporter)
+            .setMaxExportBatchSize(2)
+            .setScheduleDelayMillis(ONE_HOUR_MILLIS));
+
+    endSpans(2);
+
+    assertTrue(exporter.exports.tryAcquire(10, TimeUnit.SECONDS));
+    assertEquals(2, exporter.exportedSpans().size());
+  }
+
+  @Test
+  public void exportsPartialBatchAfterDelay() throws Exception {
+    addProcessor(RingBufferSpanProcessor.newBuilder(exporter).setScheduleDelayMillis(10));
+
+    endSpans(1);
+
+    assertTrue(exporter.exports.tryAcquire(10, TimeUnit.SECONDS));
+    assertEquals(1, exporter.exportedSpans().size());
+  }
+
+  @Test
+  public void dropsSpansWhenBufferIsFull() {
+    RingBufferSpanProcessor processor =
+        addProcessor(
+            RingBufferSpanProcessor.newBuilder(exporter)
+                .setBufferSize(2)
+                .setMaxExportBatchSize(4)
+                .setScheduleDelayMillis(ONE_HOUR_MILLIS));
+
+    endSpans(3);
+    processor.forceFlush();
+
+    assertEquals(2, exporter.exportedSpans().size());
+    assertEquals(1, processor.getDroppedSpanCount());
+  }
+
+  @Test
+  public void shutdownExportsRemainingSpansAndShutsDownExporter() {
+    RingBufferSpanProcessor processor =
+        addProcessor(
+            RingBufferSpanProcessor.newBuilder(exporter).setScheduleDelayMillis(ONE_HOUR_MILLIS));
+
+    endSpans(2);
+    processor.shutdown();
+    endSpans(1);
+    processor.forceFlush();
+
+    assertEquals(2, exporter.exportedSpans().size());
+    assertEquals(1, exporter.shutdowns.get());
+    assertEquals(1, processor.getDroppedSpanCount());
+  }
+
+  @Test
+  public void forceFlushRacingShutdownReturns() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      RingBufferSpanProcessor processor =
+          RingBufferSpanProcessor.newBuilder(exporter)
+              .setScheduleDelayMillis(ONE_HOUR_MILLIS)
+              .setForceFlushTimeoutMillis(ONE_HOUR_MILLIS)
+              .build();
+      Thread flusher = new Thread(processor::forceFlush);
+
+      flusher.start();
+      processor.shutdown();
+      flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+      assertFalse(flusher.isAlive());
+    }
+  }
+
+  @Test
+  public void disallowNonPositiveForceFlushTimeout() {
+    RingBufferSpanProcessor.Builder builder =
+        RingBufferSpanProcessor.newBuilder(exporter).setForceFlushTimeoutMillis(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveMaxExportBatchSize() {
+    RingBufferSpanProcessor.Builder builder =
+        RingBufferSpanProcessor.newBuilder(exporter).setMaxExportBatchSize(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  private RingBufferSpanProcessor addProcessor(RingBufferSpanProcessor.Builder builder) {
+    RingBufferSpanProcessor processor = builder.build();
+    tracerProvider.addSpanProcessor(processor);
+    return processor;
+  }
+
+  private void endSpans(int count) {
+    for (int i = 0; i < count; i++) {
+      tracer.spanBuilder("span-" + i).startSpan().end();
+    }
+  }
+
+  private static class RecordingExporter implements SpanExporter {
+    private final List<SpanData> spans = Collections.synchronizedList(new ArrayList<>());
+    final Semaphore exports = new Semaphore(0);
+    final AtomicInteger flushes = new AtomicInteger();
+    final AtomicInteger shutdowns = new AtomicInteger();
+
+    @Override
+    public ResultCode export(Collection<SpanData> batch) {
+      spans.addAll(batch);
+      exports.release();
+      return ResultCode.SUCCESS;
+    }
+
+    @Override
+    public ResultCode flush() {
+      flushes.incrementAndGet();
+      return ResultCode.SUCCESS;
+    }
+
+    @Override
+    public void shutdown() {
+      shutdowns.incrementAndGet();
+    }
+
+    List<SpanData> exportedSpans() {
+      synchronized (spans) {
+        return new ArrayList<>(spans);
+      }
+    }
+  }
+}
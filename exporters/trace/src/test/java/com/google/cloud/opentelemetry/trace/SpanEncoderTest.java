@@ -0,0 +1,353 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.base.Strings;
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.TruncatableString;
+import com.google.protobuf.ByteString;
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanContext;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceFlags;
+import io.opentelemetry.trace.TraceId;
+import io.opentelemetry.trace.TraceState;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class SpanEncoderTest {
+
+  private static final String PROJECT_ID = "project-id";
+  private static final Map<String, AttributeValue> FIXED_ATTRIBUTES = new LinkedHashMap<>();
+
+  static {
+    FIXED_ATTRIBUTES.put("fixed", stringValue("attributes"));
+    FIXED_ATTRIBUTES.put("another", stringValue("entry"));
+  }
+
+  @Test
+  public void encodesMinimalSpan() {
+    assertSameBytes(baseSpanData().build(), Collections.<String, AttributeValue>emptyMap());
+  }
+
+  @Test
+  public void encodesFullSpan() {
+    assertSameBytes(fullSpanData(), FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesWithTranslationCache() {
+    TranslationCache cache = new TranslationCache(100);
+    SpanEncoder encoder =
+        new SpanEncoder(
+            PROJECT_ID,
+            new ResourceLabelsCache(FIXED_ATTRIBUTES),
+            SpanLimits.DEFAULT,
+            cache);
+    SpanData spanData = fullSpanData();
+    ByteString expected = expectedBytes(spanData, FIXED_ATTRIBUTES);
+
+    // Ten lookups per span: seven span attributes, one event and one link attribute, which share
+    // the value "value", and the display name.
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+    assertEquals(1, cache.stats().hitCount());
+    assertEquals(9, cache.stats().missCount());
+
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+    assertEquals(11, cache.stats().hitCount());
+    assertEquals(9, cache.stats().missCount());
+  }
+
+  @Test
+  public void looksUpEachValueOnceWhenFallingBackToBuilder() {
+    TranslationCache cache = new TranslationCache(100);
+    SpanEncoder encoder =
+        new SpanEncoder(
+            PROJECT_ID,
+            new ResourceLabelsCache(FIXED_ATTRIBUTES),
+            SpanLimits.DEFAULT,
+            cache);
+    // "/http/host" collides with the mapped "http.host", so this span takes the builder path.
+    SpanData spanData =
+        baseSpanData()
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("http.host", "a")
+                    .setAttribute("/http/host", "b")
+                    .build())
+            .build();
+    ByteString expected = expectedBytes(spanData, FIXED_ATTRIBUTES);
+
+    // Three lookups per span: the two attribute values and the display name.
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+    assertEquals(0, cache.stats().hitCount());
+    assertEquals(3, cache.stats().missCount());
+
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+    assertEquals(3, cache.stats().hitCount());
+    assertEquals(3, cache.stats().missCount());
+  }
+
+  @Test
+  public void encodesSpanWithoutParentOrEndTime() {
+    SpanData spanData =
+        baseSpanData()
+            .setParentSpanId(SpanId.getInvalid())
+            .setEndEpochNanos(0)
+            .setKind(Kind.CLIENT)
+            .setName("Sent.alreadyPrefixed")
+            .build();
+
+    assertSameBytes(spanData, FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesSpanWithNonAsciiStrings() {
+    SpanData spanData =
+        baseSpanData()
+            .setName("sp\u00e4n \u2603 \ud83d\ude00")
+            .setAttributes(Attributes.newBuilder().setAttribute("k\u00e9y", "v\u00e4lue").build())
+            .build();
+
+    assertSameBytes(spanData, FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesSpanWithCollidingAttributeKeys() {
+    SpanData spanData =
+        baseSpanData()
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("cloud.zone", "us-east1-b")
+                    .setAttribute("http.host", "a")
+                    .setAttribute("/http/host", "b")
+                    .setAttribute("g.co/agent", "agent")
+                    .build())
+            .build();
+
+    assertSameBytes(spanData, FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesSpanWithOversizedStrings() {
+    SpanData spanData =
+        baseSpanData()
+            .setName(Strings.repeat("\ud83d\ude00", 40))
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("statement", Strings.repeat("SELECT \u00e9 ", 40))
+                    .build())
+            .setEvents(
+                Collections.singletonList(
+                    createEvent(0, Strings.repeat("\u2603", 100), Attributes.empty())))
+            .build();
+
+    assertSameBytes(spanData, FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesSpanWithOversizedAttributeKeys() {
+    SpanData spanData =
+        baseSpanData()
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute(Strings.repeat("k", 128) + "first", "a")
+                    .setAttribute(Strings.repeat("k", 128) + "second", "b")
+                    .build())
+            .build();
+
+    assertSameBytes(spanData, FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void encodesSpanBeyondLimits() {
+    SpanLimits limits = new SpanLimits(2, 1, 1);
+    SpanData spanData = fullSpanData();
+    SpanEncoder encoder =
+        new SpanEncoder(
+            PROJECT_ID,
+            new ResourceLabelsCache(FIXED_ATTRIBUTES),
+            limits,
+            null);
+    ByteString expected =
+        TraceTranslator.generateSpan(
+                spanData, new SpanNameFormatter(PROJECT_ID), FIXED_ATTRIBUTES, limits, null)
+            .toByteString();
+
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+  }
+
+  @Test
+  public void encodesSpanWithZeroLimits() {
+    SpanLimits limits = new SpanLimits(0, 0, 0);
+    SpanData spanData = fullSpanData();
+    SpanEncoder encoder =
+        new SpanEncoder(
+            PROJECT_ID,
+            new ResourceLabelsCache(FIXED_ATTRIBUTES),
+            limits,
+            null);
+    ByteString expected =
+        TraceTranslator.generateSpan(
+                spanData, new SpanNameFormatter(PROJECT_ID), FIXED_ATTRIBUTES, limits, null)
+            .toByteString();
+
+    assertEquals(expected, encoder.encodeToByteString(spanData));
+  }
+
+  @Test
+  public void encodesResourceLabels() {
+    Resource resource =
+        Resource.create(
+            Attributes.newBuilder()
+                .setAttribute("service.name", "checkout")
+                .setAttribute("cloud.zone", "us-east1-b")
+                .setAttribute("instance.count", 3L)
+                .build());
+
+    assertSameBytes(fullSpanBuilder().setResource(resource).build(), FIXED_ATTRIBUTES);
+  }
+
+  @Test
+  public void followsResourceChangesAcrossSpans() {
+    SpanEncoder encoder = new SpanEncoder(PROJECT_ID, FIXED_ATTRIBUTES);
+    SpanData first =
+        baseSpanData()
+            .setResource(
+                Resource.create(Attributes.newBuilder().setAttribute("zone", "a").build()))
+            .build();
+    SpanData second =
+        baseSpanData()
+            .setResource(
+                Resource.create(Attributes.newBuilder().setAttribute("zone", "b").build()))
+            .build();
+    SpanData withoutLabels = baseSpanData().setResource(Resource.getEmpty()).build();
+
+    assertEquals(expectedBytes(first, FIXED_ATTRIBUTES), encoder.encodeToByteString(first));
+    assertEquals(expectedBytes(second, FIXED_ATTRIBUTES), encoder.encodeToByteString(second));
+    assertEquals(
+        expectedBytes(withoutLabels, FIXED_ATTRIBUTES), encoder.encodeToByteString(withoutLabels));
+    assertEquals(expectedBytes(first, FIXED_ATTRIBUTES), encoder.encodeToByteString(first));
+  }
+
+  @Test
+  public void reusesBufferAcrossSpans() {
+    SpanEncoder encoder = new SpanEncoder(PROJECT_ID, FIXED_ATTRIBUTES);
+    SpanData large =
+        baseSpanData().setName(new String(new char[4096]).replace('\0', 'x')).build();
+    SpanData small = baseSpanData().build();
+
+    assertEquals(expectedBytes(large, FIXED_ATTRIBUTES), encoder.encodeToByteString(large));
+    assertEquals(expectedBytes(small, FIXED_ATTRIBUTES), encoder.encodeToByteString(small));
+  }
+
+  private static void assertSameBytes(
+      SpanData spanData, Map<String, AttributeValue> fixedAttributes) {
+    SpanEncoder encoder = new SpanEncoder(PROJECT_ID, fixedAttributes);
+
+    assertEquals(expectedBytes(spanData, fixedAttributes), encoder.encodeToByteString(spanData));
+  }
+
+  private static ByteString expectedBytes(
+      SpanData spanData, Map<String, AttributeValue> fixedAttributes) {
+    return TraceTranslator.generateSpan(spanData, PROJECT_ID, fixedAttributes).toByteString();
+  }
+
+  private static SpanData fullSpanData() {
+    return fullSpanBuilder().build();
+  }
+
+  private static TestSpanData.Builder fullSpanBuilder() {
+    return baseSpanData()
+        .setAttributes(
+            Attributes.newBuilder()
+                .setAttribute("myKey", "myValue")
+                .setAttribute("http.status_code", true)
+                .setAttribute("anotherKey", 100L)
+                .setAttribute("http.host", 3.14)
+                .setAttribute("falseKey", false)
+                .setAttribute("zeroKey", 0L)
+                .setAttribute("emptyKey", "")
+                .build())
+        .setEvents(
+            Arrays.asList(
+                createEvent(0, "eventOne", Attributes.newBuilder().setAttribute("key", "value").build()),
+                createEvent(TimeUnit.SECONDS.toNanos(3000) + 500, "", Attributes.empty())))
+        .setLinks(
+            Arrays.asList(
+                createLink(
+                    new TraceId(321, 123),
+                    new SpanId(12345),
+                    Attributes.newBuilder().setAttribute("key", "value").build()),
+                createLink(new TraceId(32473, 24893), new SpanId(54321), Attributes.empty())))
+        .setTotalRecordedLinks(5)
+        .setStatus(Status.UNKNOWN.withDescription("Status description"))
+        .setHasRemoteParent(true);
+  }
+
+  static TestSpanData.Builder baseSpanData() {
+    return TestSpanData.newBuilder()
+        .setParentSpanId(new SpanId(54321))
+        .setSpanId(new SpanId(12345))
+        .setTraceId(new TraceId(321, 123))
+        .setName("MySpanName")
+        .setKind(Kind.SERVER)
+        .setEvents(Collections.<SpanData.Event>emptyList())
+        .setStatus(Status.OK)
+        .setStartEpochNanos(TimeUnit.SECONDS.toNanos(3000) + 200)
+        .setEndEpochNanos(TimeUnit.SECONDS.toNanos(3001) + 255)
+        .setTotalRecordedLinks(0)
+        .setHasRemoteParent(false)
+        .setHasEnded(true);
+  }
+
+  static SpanData.Event createEvent(long epochNanos, String name, Attributes attributes) {
+    return new SpanData.Event() {
+      @Override
+      public long getEpochNanos() {
+        return epochNanos;
+      }
+
+      @Override
+      public int getTotalAttributeCount() {
+        return attributes.size();
+      }
+
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public Attributes getAttributes() {
+        return attributes;
+      }
+    };
+  }
+
+  static SpanData.Link createLink(TraceId traceId, SpanId spanId, Attributes attributes) {
+    SpanContext spanContext =
+        SpanContext.create(
+            traceId, spanId, TraceFlags.builder().build(), TraceState.builder().build());
+    return SpanData.Link.create(spanContext, attributes);
+  }
+
+  private static AttributeValue stringValue(String value) {
+    return AttributeValue.newBuilder()
+        .setStringValue(TruncatableString.newBuilder().setValue(value).setTruncatedByteCount(0))
+        .build();
+  }
+}
@@ -0,0 +1,76 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.SpanName;
+import com.google.protobuf.CodedOutputStream;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.TraceId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class SpanNameFormatterTest {
+
+  private static final String PROJECT_ID = "project-id";
+  private static final TraceId TRACE_ID = new TraceId(321, 123);
+  private static final SpanId SPAN_ID = new SpanId(12345);
+
+  @Test
+  public void formatsSameNameAsSpanName() {
+    SpanNameFormatter formatter = new SpanNameFormatter(PROJECT_ID);
+    String expected =
+        SpanName.newBuilder()
+            .setProject(PROJECT_ID)
+            .setTrace(TRACE_ID.toLowerBase16())
+            .setSpan(SPAN_ID.toLowerBase16())
+            .build()
+            .toString();
+
+    assertEquals(expected, formatter.formatSpanName(TRACE_ID, SPAN_ID));
+    // The reused buffer must not leak state between calls.
+    formatter.formatSpanName(new TraceId(1, 2), new SpanId(3));
+    assertEquals(expected, formatter.formatSpanName(TRACE_ID, SPAN_ID));
+  }
+
+  @Test
+  public void formatsIds() {
+    SpanNameFormatter formatter = new SpanNameFormatter(PROJECT_ID);
+
+    assertEquals(TRACE_ID.toLowerBase16(), formatter.formatTraceId(TRACE_ID));
+    assertEquals(SPAN_ID.toLowerBase16(), formatter.formatSpanId(SPAN_ID));
+  }
+
+  @Test
+  public void writesSpanNameBytes() throws Exception {
+    SpanNameFormatter formatter = new SpanNameFormatter(PROJECT_ID);
+    byte[] expected =
+        formatter.formatSpanName(TRACE_ID, SPAN_ID).getBytes(StandardCharsets.UTF_8);
+    byte[] buffer = new byte[formatter.encodedSpanNameLength()];
+    CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+
+    formatter.writeSpanName(output, TRACE_ID, SPAN_ID);
+
+    output.checkNoSpaceLeft();
+    assertEquals(Arrays.toString(expected), Arrays.toString(buffer));
+  }
+
+  @Test
+  public void writesIdBytes() throws Exception {
+    SpanNameFormatter formatter = new SpanNameFormatter(PROJECT_ID);
+    byte[] buffer =
+        new byte[SpanNameFormatter.TRACE_ID_HEX_LENGTH + SpanNameFormatter.SPAN_ID_HEX_LENGTH];
+    CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+
+    formatter.writeTraceId(output, TRACE_ID);
+    formatter.writeSpanId(output, SPAN_ID);
+
+    assertEquals(
+        TRACE_ID.toLowerBase16() + SPAN_ID.toLowerBase16(),
+        new String(buffer, StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,168 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.protobuf.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class SpillQueueTest {
+
+  private static final int SEGMENT_BYTES = 64;
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void peeksInAppendOrder() throws IOException {
+    SpillQueue queue = open(1024);
+
+    assertTrue(queue.isEmpty());
+    assertTrue(queue.append(spans("a", "b")));
+    assertTrue(queue.append(spans("c")));
+
+    assertFalse(queue.isEmpty());
+    assertEquals(spans("a", "b", "c"), queue.peek(10, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void peekKeepsSpansUntilCommitted() throws IOException {
+    SpillQueue queue = open(1024);
+    queue.append(spans("a", "b", "c"));
+
+    assertEquals(spans("a", "b"), queue.peek(2, Long.MAX_VALUE));
+    assertEquals(spans("a", "b"), queue.peek(2, Long.MAX_VALUE));
+
+    queue.commit(1);
+
+    assertEquals(spans("b", "c"), queue.peek(10, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void peekHonorsByteLimitButReturnsAtLeastOneSpan() throws IOException {
+    SpillQueue queue = open(1024);
+    queue.append(spans("aaaa", "bbbb"));
+
+    assertEquals(spans("aaaa"), queue.peek(10, 5));
+    assertEquals(spans("aaaa"), queue.peek(10, 1));
+  }
+
+  @Test
+  public void rotatesSegmentsAndDeletesConsumedOnes() throws IOException {
+    SpillQueue queue = open(1024);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(queue.append(spans("span-" + i + "-padding-padding")));
+    }
+    assertTrue(segmentCount() > 1);
+
+    List<ByteString> peeked = queue.peek(100, Long.MAX_VALUE);
+    assertEquals(10, peeked.size());
+    queue.commit(10);
+
+    assertEquals(1, segmentCount());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void rejectsSpansBeyondMaxBytes() throws IOException {
+    SpillQueue queue = open(2 * SEGMENT_BYTES);
+    String span = "0123456789012345678901234567890123456789";
+
+    assertTrue(queue.append(spans(span)));
+    assertTrue(queue.append(spans(span)));
+    assertFalse(queue.append(spans(span)));
+
+    queue.peek(1, Long.MAX_VALUE);
+    queue.commit(1);
+
+    assertTrue(queue.append(spans(span)));
+  }
+
+  @Test
+  public void rejectsWholeBatchThatDoesNotFit() throws IOException {
+    SpillQueue queue = open(SEGMENT_BYTES);
+
+    assertFalse(queue.append(spans("0123456789012345678901234567890123456789", "overflow-overflow")));
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void recoversSpansAndCursorAfterReopen() throws IOException {
+    SpillQueue queue = open(1024);
+    queue.append(spans("a", "b", "c"));
+    queue.peek(1, Long.MAX_VALUE);
+    queue.commit(1);
+    queue.close();
+
+    SpillQueue reopened = open(1024);
+
+    assertEquals(spans("b", "c"), reopened.peek(10, Long.MAX_VALUE));
+    assertTrue(reopened.append(spans("d")));
+    assertEquals(spans("b", "c", "d"), reopened.peek(10, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void discardsTornRecordOnRecovery() throws IOException {
+    SpillQueue queue = open(1024);
+    queue.append(spans("first", "second"));
+    queue.close();
+    // Corrupt the last byte of the second record's payload.
+    int secondPayloadEnd =
+        2 * SpillQueue.RECORD_HEADER_BYTES + "first".length() + "second".length();
+    try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+      file.seek(secondPayloadEnd - 1);
+      file.write('X');
+    }
+
+    SpillQueue reopened = open(1024);
+
+    assertEquals(spans("first"), reopened.peek(10, Long.MAX_VALUE));
+    assertTrue(reopened.append(spans("third")));
+    assertEquals(spans("first", "third"), reopened.peek(10, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void closedQueueRejectsSpans() throws IOException {
+    SpillQueue queue = open(1024);
+    queue.close();
+
+    assertFalse(queue.append(spans("a")));
+    assertEquals(Collections.emptyList(), queue.peek(10, Long.MAX_VALUE));
+  }
+
+  private SpillQueue open(long maxBytes) throws IOException {
+    return SpillQueue.open(folder.getRoot().toPath(), maxBytes, SEGMENT_BYTES);
+  }
+
+  private int segmentCount() throws IOException {
+    return segments().size();
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+      return files
+          .filter(path -> path.getFileName().toString().endsWith(".spill"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static List<ByteString> spans(String... values) {
+    return Arrays.stream(values).map(ByteString::copyFromUtf8).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,243 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.Span.Kind;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class TailSamplingSpanExporterTest {
+
+  private static final long START_EPOCH_NANOS = TimeUnit.SECONDS.toNanos(3000);
+  private static final Duration DECISION_WAIT = Duration.ofMinutes(1);
+
+  private final RecordingExporter recordingExporter = new RecordingExporter();
+  private TailSamplingSpanExporter exporter;
+
+  @After
+  public void tearDown() {
+    if (exporter != null) {
+      exporter.shutdown();
+    }
+  }
+
+  @Test
+  public void keepsTracesWithErrors() {
+    exporter = newBuilder().setSamplingProbability(0).build();
+    SpanData root = span(1, 1, null, Status.OK, 1);
+    SpanData failed = span(1, 2, root, Status.INTERNAL, 1);
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(Arrays.asList(root, failed)));
+    assertEquals(ResultCode.SUCCESS, exporter.export(Collections.singletonList(span(2, 3))));
+    assertEquals(ResultCode.SUCCESS, exporter.flush());
+
+    assertEquals(Arrays.asList(root, failed), recordingExporter.spans);
+    assertEquals(1, exporter.getSampledTraceCount());
+    assertEquals(1, exporter.getDroppedTraceCount());
+  }
+
+  @Test
+  public void keepsTracesWithSlowRootSpan() {
+    exporter =
+        newBuilder().setSamplingProbability(0).setLatencyThreshold(Duration.ofMillis(100)).build();
+    SpanData slowRoot = span(1, 1, null, Status.OK, 100);
+    SpanData fastRoot = span(2, 2, null, Status.OK, 99);
+    SpanData slowChild = span(3, 4, span(3, 3), Status.OK, 100);
+
+    exporter.export(Arrays.asList(slowRoot, fastRoot, slowChild));
+    exporter.flush();
+
+    assertEquals(Collections.singletonList(slowRoot), recordingExporter.spans);
+  }
+
+  @Test
+  public void treatsUnsetRemoteParentFlagAsLocalParent() {
+    exporter =
+        newBuilder().setSamplingProbability(0).setLatencyThreshold(Duration.ofMillis(100)).build();
+    SpanData slowRoot = spanBuilder(1, 1, null, Status.OK, 100).setHasRemoteParent(null).build();
+    SpanData slowChild =
+        spanBuilder(2, 3, span(2, 2), Status.OK, 100).setHasRemoteParent(null).build();
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(Arrays.asList(slowRoot, slowChild)));
+    exporter.flush();
+
+    assertEquals(Collections.singletonList(slowRoot), recordingExporter.spans);
+  }
+
+  @Test
+  public void treatsMissingStatusAsOk() {
+    exporter = newBuilder().setSamplingProbability(0).build();
+    SpanData withoutStatus = spanBuilder(1, 1, null, Status.OK, 1).setStatus(null).build();
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(Collections.singletonList(withoutStatus)));
+    exporter.flush();
+
+    assertTrue(recordingExporter.spans.isEmpty());
+    assertEquals(1, exporter.getDroppedTraceCount());
+  }
+
+  @Test
+  public void keepsOtherTracesWithSamplingProbability() {
+    exporter = newBuilder().setSamplingProbability(1).build();
+    SpanData first = span(1, 1);
+    SpanData second = span(2, 2);
+
+    exporter.export(Arrays.asList(first, second));
+    exporter.flush();
+
+    assertEquals(Arrays.asList(first, second), recordingExporter.spans);
+    assertEquals(2, exporter.getSampledTraceCount());
+  }
+
+  @Test
+  public void decidesTracesOnceDecisionWaitPassed() {
+    exporter = newBuilder().setSamplingProbability(1).build();
+    long start = System.nanoTime();
+    exporter.export(Collections.singletonList(span(1, 1)));
+
+    exporter.exportExpired(start);
+    assertTrue(recordingExporter.spans.isEmpty());
+    assertEquals(1, exporter.getBufferedSpanCount());
+
+    exporter.exportExpired(System.nanoTime() + DECISION_WAIT.toNanos());
+    assertEquals(1, recordingExporter.spans.size());
+    assertEquals(0, exporter.getBufferedSpanCount());
+  }
+
+  @Test
+  public void lateSpansFollowTheDecision() {
+    exporter = newBuilder().setSamplingProbability(0).build();
+    SpanData failed = span(1, 1, null, Status.INTERNAL, 1);
+    exporter.export(Arrays.asList(failed, span(2, 2)));
+    exporter.flush();
+
+    SpanData late = span(1, 3);
+    exporter.export(Arrays.asList(late, span(2, 4)));
+
+    assertEquals(Arrays.asList(failed, late), recordingExporter.spans);
+    assertEquals(0, exporter.getBufferedSpanCount());
+  }
+
+  @Test
+  public void decidesOldestTraceEarlyWhenMaxTracesReached() {
+    exporter = newBuilder().setSamplingProbability(1).setMaxTraces(2).build();
+    SpanData oldest = span(1, 1);
+
+    exporter.export(Collections.singletonList(oldest));
+    exporter.export(Collections.singletonList(span(2, 2)));
+    exporter.export(Collections.singletonList(span(3, 3)));
+
+    assertEquals(Collections.singletonList(oldest), recordingExporter.spans);
+    assertEquals(2, exporter.getBufferedSpanCount());
+  }
+
+  @Test
+  public void decidesOldestTracesEarlyWhenMaxBufferedSpansReached() {
+    exporter = newBuilder().setSamplingProbability(1).setMaxBufferedSpans(3).build();
+    List<SpanData> oldest = Arrays.asList(span(1, 1), span(1, 2));
+
+    exporter.export(oldest);
+    exporter.export(Arrays.asList(span(2, 3), span(2, 4)));
+
+    assertEquals(oldest, recordingExporter.spans);
+    assertEquals(2, exporter.getBufferedSpanCount());
+  }
+
+  @Test
+  public void shutdownExportsBufferedTraces() {
+    exporter = newBuilder().setSamplingProbability(1).build();
+    exporter.export(Collections.singletonList(span(1, 1)));
+
+    exporter.shutdown();
+
+    assertEquals(1, recordingExporter.spans.size());
+    assertEquals(1, recordingExporter.shutdowns);
+    assertEquals(ResultCode.FAILURE, exporter.export(Collections.singletonList(span(2, 2))));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void disallowSamplingProbabilityAboveOne() {
+    TailSamplingSpanExporter.newBuilder(recordingExporter).setSamplingProbability(1.5).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void disallowZeroDecisionWait() {
+    TailSamplingSpanExporter.newBuilder(recordingExporter).setDecisionWait(Duration.ZERO).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void disallowZeroMaxTraces() {
+    TailSamplingSpanExporter.newBuilder(recordingExporter).setMaxTraces(0).build();
+  }
+
+  private TailSamplingSpanExporter.Builder newBuilder() {
+    return TailSamplingSpanExporter.newBuilder(recordingExporter).setDecisionWait(DECISION_WAIT);
+  }
+
+  private static SpanData span(long traceId, long spanId) {
+    return span(traceId, spanId, null, Status.OK, 1);
+  }
+
+  private static SpanData span(
+      long traceId, long spanId, SpanData parent, Status status, long durationMillis) {
+    return spanBuilder(traceId, spanId, parent, status, durationMillis).build();
+  }
+
+  private static TestSpanData.Builder spanBuilder(
+      long traceId, long spanId, SpanData parent, Status status, long durationMillis) {
+    return TestSpanData.newBuilder()
+        .setTraceId(new TraceId(0, traceId))
+        .setSpanId(new SpanId(spanId))
+        .setParentSpanId(parent == null ? SpanId.getInvalid() : parent.getSpanId())
+        .setName("span")
+        .setKind(Kind.INTERNAL)
+        .setStatus(status)
+        .setEvents(Collections.<SpanData.Event>emptyList())
+        .setLinks(Collections.<SpanData.Link>emptyList())
+        .setStartEpochNanos(START_EPOCH_NANOS)
+        .setEndEpochNanos(START_EPOCH_NANOS + TimeUnit.MILLISECONDS.toNanos(durationMillis))
+        .setTotalRecordedLinks(0)
+        .setHasRemoteParent(false)
+        .setHasEnded(true);
+  }
+
+  private static class RecordingExporter implements SpanExporter {
+    private final List<SpanData> spans = new ArrayList<>();
+    private int shutdowns;
+
+    @Override
+    public synchronized ResultCode export(Collection<SpanData> batch) {
+      spans.addAll(batch);
+      return ResultCode.SUCCESS;
+    }
+
+    @Override
+    public ResultCode flush() {
+      return ResultCode.SUCCESS;
+    }
+
+    @Override
+    public void shutdown() {
+      shutdowns++;
+    }
+  }
+}
@@ -5,14 +5,21 @@ import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.ServiceOptions;
 import com.google.devtools.cloudtrace.v2.AttributeValue;
+import io.grpc.Codec;
+import io.grpc.Compressor;
+import io.opentelemetry.metrics.MeterProvider;
+import io.opentelemetry.sdk.metrics.MeterSdkProvider;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.*;
 
@@ -25,6 +32,10 @@ public class TraceConfigurationTest {
   private static final String PROJECT_ID = "project";
   private static final Duration ONE_MINUTE = Duration.ofSeconds(60, 0);
   private static final Duration NEG_ONE_MINUTE = Duration.ofSeconds(-60, 0);
+  private static final Path SPILL_DIRECTORY = Paths.get("spill");
+  private static final Compressor GZIP = new Codec.Gzip();
+  private static final MeterProvider METER_PROVIDER = MeterSdkProvider.builder().build();
+  private static final Executor TRANSLATION_EXECUTOR = Runnable::run;
 
   @Test
   public void defaultConfiguration() {
@@ -36,6 +47,48 @@ public class TraceConfigurationTest {
     assertNull(configuration.getTraceServiceStub());
     assertTrue(configuration.getFixedAttributes().isEmpty());
     assertEquals(TraceConfiguration.DEFAULT_DEADLINE, configuration.getDeadline());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_IN_FLIGHT_REQUESTS, configuration.getMaxInFlightRequests());
+    assertEquals(
+        TraceConfiguration.DEFAULT_INITIAL_IN_FLIGHT_REQUESTS,
+        configuration.getInitialInFlightRequests());
+    assertEquals(TraceConfiguration.DEFAULT_CHANNEL_POOL_SIZE, configuration.getChannelPoolSize());
+    assertNull(configuration.getCompressor());
+    assertNull(configuration.getMeterProvider());
+    assertEquals(TraceConfiguration.DEFAULT_FLUSH_TIMEOUT, configuration.getFlushTimeout());
+    assertEquals(TraceConfiguration.DEFAULT_MAX_BATCH_SIZE, configuration.getMaxBatchSize());
+    assertEquals(TraceConfiguration.DEFAULT_MAX_BATCH_BYTES, configuration.getMaxBatchBytes());
+    assertEquals(
+        TraceConfiguration.DEFAULT_TRANSLATION_CACHE_SIZE, configuration.getTranslationCacheSize());
+    assertEquals(
+        TraceConfiguration.DEFAULT_PARALLEL_TRANSLATION_THRESHOLD,
+        configuration.getParallelTranslationThreshold());
+    assertNull(configuration.getTranslationExecutor());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_ATTRIBUTES_PER_SPAN,
+        configuration.getMaxAttributesPerSpan());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_ANNOTATIONS_PER_SPAN,
+        configuration.getMaxAnnotationsPerSpan());
+    assertEquals(TraceConfiguration.DEFAULT_MAX_LINKS_PER_SPAN, configuration.getMaxLinksPerSpan());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_BUFFERED_BYTES, configuration.getMaxBufferedBytes());
+    assertNull(configuration.getSpillDirectory());
+    assertEquals(TraceConfiguration.DEFAULT_MAX_SPILL_BYTES, configuration.getMaxSpillBytes());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_RETRY_ATTEMPTS, configuration.getMaxRetryAttempts());
+    assertEquals(
+        TraceConfiguration.DEFAULT_INITIAL_RETRY_BACKOFF, configuration.getInitialRetryBackoff());
+    assertEquals(TraceConfiguration.DEFAULT_MAX_RETRY_BACKOFF, configuration.getMaxRetryBackoff());
+    assertEquals(
+        TraceConfiguration.DEFAULT_RETRY_BUDGET_RATIO, configuration.getRetryBudgetRatio(), 0);
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_EXPORT_THREADS, configuration.getMaxExportThreads());
+    assertNull(configuration.getProjectIdAttributeKey());
+    assertEquals(
+        TraceConfiguration.DEFAULT_PROJECT_IDLE_TIMEOUT, configuration.getProjectIdleTimeout());
+    assertEquals(
+        TraceConfiguration.DEFAULT_MAX_ROUTED_PROJECTS, configuration.getMaxRoutedProjects());
   }
 
   @Test
@@ -50,6 +103,30 @@ public class TraceConfigurationTest {
             .setProjectId(PROJECT_ID)
             .setFixedAttributes(attributes)
             .setDeadline(ONE_MINUTE)
+            .setMaxInFlightRequests(4)
+            .setInitialInFlightRequests(2)
+            .setChannelPoolSize(3)
+            .setCompressor(GZIP)
+            .setFlushTimeout(ONE_MINUTE)
+            .setMaxBatchSize(10)
+            .setMaxBatchBytes(1024)
+            .setTranslationCacheSize(100)
+            .setParallelTranslationThreshold(2048)
+            .setTranslationExecutor(TRANSLATION_EXECUTOR)
+            .setMaxAttributesPerSpan(8)
+            .setMaxAnnotationsPerSpan(16)
+            .setMaxLinksPerSpan(0)
+            .setMaxBufferedBytes(4096)
+            .setSpillDirectory(SPILL_DIRECTORY)
+            .setMaxSpillBytes(8192)
+            .setMaxRetryAttempts(5)
+            .setInitialRetryBackoff(ONE_MINUTE)
+            .setMaxRetryBackoff(ONE_MINUTE)
+            .setRetryBudgetRatio(0.5)
+            .setMaxExportThreads(2)
+            .setProjectIdleTimeout(ONE_MINUTE)
+            .setMaxRoutedProjects(5)
+            .setMeterProvider(METER_PROVIDER)
             .build();
 
     // make sure the changes are reflected
@@ -57,6 +134,41 @@ public class TraceConfigurationTest {
     assertEquals(PROJECT_ID, configuration.getProjectId());
     assertEquals(attributes, configuration.getFixedAttributes());
     assertEquals(ONE_MINUTE, configuration.getDeadline());
+    assertEquals(4, configuration.getMaxInFlightRequests());
+    assertEquals(2, configuration.getInitialInFlightRequests());
+    assertEquals(3, configuration.getChannelPoolSize());
+    assertEquals(GZIP, configuration.getCompressor());
+    assertEquals(METER_PROVIDER, configuration.getMeterProvider());
+    assertEquals(ONE_MINUTE, configuration.getFlushTimeout());
+    assertEquals(10, configuration.getMaxBatchSize());
+    assertEquals(1024, configuration.getMaxBatchBytes());
+    assertEquals(100, configuration.getTranslationCacheSize());
+    assertEquals(2048, configuration.getParallelTranslationThreshold());
+    assertEquals(TRANSLATION_EXECUTOR, configuration.getTranslationExecutor());
+    assertEquals(8, configuration.getMaxAttributesPerSpan());
+    assertEquals(16, configuration.getMaxAnnotationsPerSpan());
+    assertEquals(0, configuration.getMaxLinksPerSpan());
+    assertEquals(4096, configuration.getMaxBufferedBytes());
+    assertEquals(SPILL_DIRECTORY, configuration.getSpillDirectory());
+    assertEquals(8192, configuration.getMaxSpillBytes());
+    assertEquals(5, configuration.getMaxRetryAttempts());
+    assertEquals(ONE_MINUTE, configuration.getInitialRetryBackoff());
+    assertEquals(ONE_MINUTE, configuration.getMaxRetryBackoff());
+    assertEquals(0.5, configuration.getRetryBudgetRatio(), 0);
+    assertEquals(2, configuration.getMaxExportThreads());
+    assertEquals(ONE_MINUTE, configuration.getProjectIdleTimeout());
+    assertEquals(5, configuration.getMaxRoutedProjects());
+  }
+
+  @Test
+  public void setProjectIdAttributeKey() {
+    TraceConfiguration configuration =
+        TraceConfiguration.builder()
+            .setProjectId(PROJECT_ID)
+            .setProjectIdAttributeKey("gcp.project_id")
+            .build();
+
+    assertEquals("gcp.project_id", configuration.getProjectIdAttributeKey());
   }
 
   @Test
@@ -131,4 +243,193 @@ public class TraceConfigurationTest {
 
     assertThrows(IllegalArgumentException.class, () -> builder.build());
   }
+
+  @Test
+  public void disallowNonPositiveMaxInFlightRequests() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxInFlightRequests(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveInitialInFlightRequests() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setInitialInFlightRequests(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveChannelPoolSize() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setChannelPoolSize(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeFlushTimeout() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setFlushTimeout(NEG_ONE_MINUTE);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveMaxBatchSize() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxBatchSize(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveMaxBatchBytes() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxBatchBytes(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeTranslationCacheSize() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setTranslationCacheSize(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeParallelTranslationThreshold() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setParallelTranslationThreshold(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeMaxAttributesPerSpan() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxAttributesPerSpan(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeMaxAnnotationsPerSpan() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxAnnotationsPerSpan(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeMaxLinksPerSpan() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxLinksPerSpan(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveMaxBufferedBytes() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxBufferedBytes(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowTooSmallMaxSpillBytes() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxSpillBytes(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNegativeMaxRetryAttempts() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxRetryAttempts(-1);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowMaxRetryBackoffBelowInitial() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setInitialRetryBackoff(ONE_MINUTE).setMaxRetryBackoff(Duration.ofSeconds(1));
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowRetryBudgetRatioAboveOne() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setRetryBudgetRatio(1.5);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowZeroMaxExportThreads() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxExportThreads(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowEmptyProjectIdAttributeKey() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setProjectIdAttributeKey("");
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowProjectRoutingWithSpillDirectory() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setProjectIdAttributeKey("gcp.project_id").setSpillDirectory(SPILL_DIRECTORY);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveProjectIdleTimeout() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setProjectIdleTimeout(Duration.ZERO);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
+
+  @Test
+  public void disallowNonPositiveMaxRoutedProjects() {
+    TraceConfiguration.Builder builder = TraceConfiguration.builder().setProjectId("test");
+
+    builder.setMaxRoutedProjects(0);
+
+    assertThrows(IllegalArgumentException.class, () -> builder.build());
+  }
 }
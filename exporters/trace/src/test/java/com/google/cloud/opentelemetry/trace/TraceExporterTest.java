@@ -1,16 +1,49 @@
 package com.google.cloud.opentelemetry.trace;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.devtools.cloudtrace.v2.ProjectName;
+import com.google.devtools.cloudtrace.v2.Span;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import io.opentelemetry.common.Attributes;
+import io.opentelemetry.sdk.metrics.MeterSdkProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.test.TestSpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter.ResultCode;
+import io.opentelemetry.trace.SpanId;
+import io.opentelemetry.trace.Status;
+import io.opentelemetry.trace.TraceId;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class TraceExporterTest {
 
+  private static final String PROJECT_ID = "project-id";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void createWithConfiguration() {
     TraceConfiguration configuration = TraceConfiguration.builder().setProjectId("test").build();
@@ -21,4 +54,647 @@ public class TraceExporterTest {
     } catch (IOException e) {
     }
   }
+
+  @Test
+  public void exportReturnsBeforeRpcCompletes() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(Collections.singletonList(createSpanData())));
+    assertEquals(1, client.pending.size());
+    assertEquals(1, client.batches.get(0).size());
+  }
+
+  @Test
+  public void exportRejectsWhenMaxInFlightRequestsReached() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxInFlightRequests(1)
+                .build());
+    List<SpanData> spans = Collections.singletonList(createSpanData());
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+    assertEquals(ResultCode.FAILURE, exporter.export(spans));
+
+    client.pending.get(0).set(Empty.getDefaultInstance());
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+    assertEquals(2, client.batches.size());
+    assertEquals(1, exporter.getDroppedSpanCount());
+  }
+
+  @Test
+  public void exportDropsNewestSpansWhenByteBudgetExhausted() {
+    SpanData spanData = createSpanData();
+    int spanSize =
+        new SpanEncoder(PROJECT_ID, Collections.emptyMap()).encodeToByteString(spanData).size();
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxBatchSize(1)
+                .setMaxBufferedBytes(2L * spanSize)
+                .build());
+
+    assertEquals(ResultCode.FAILURE, exporter.export(Arrays.asList(spanData, spanData, spanData)));
+    assertEquals(2, client.batches.size());
+    assertEquals(1, exporter.getDroppedSpanCount());
+    assertEquals(2L * spanSize, exporter.getBufferedBytes());
+
+    client.pending.get(0).set(Empty.getDefaultInstance());
+
+    assertEquals(spanSize, exporter.getBufferedBytes());
+    assertEquals(ResultCode.SUCCESS, exporter.export(Collections.singletonList(spanData)));
+    assertEquals(3, client.batches.size());
+  }
+
+  @Test
+  public void exportSplitsLargeBatchesIntoConcurrentRequests() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder().setProjectId(PROJECT_ID).setMaxBatchSize(2).build());
+    List<SpanData> spans = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      spans.add(createSpanData());
+    }
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+
+    // All three chunks are in flight at the same time.
+    assertEquals(3, client.pending.size());
+    assertEquals(2, client.batches.get(0).size());
+    assertEquals(2, client.batches.get(1).size());
+    assertEquals(1, client.batches.get(2).size());
+  }
+
+  @Test
+  public void exportTranslatesLargeBatchesInParallelInOrder() {
+    ExecutorService translationExecutor = Executors.newFixedThreadPool(2);
+    try {
+      FakeCloudTraceClient client = new FakeCloudTraceClient();
+      TraceExporter exporter =
+          new TraceExporter(
+              client,
+              TraceConfiguration.builder()
+                  .setProjectId(PROJECT_ID)
+                  .setParallelTranslationThreshold(200)
+                  .setTranslationExecutor(translationExecutor)
+                  .build());
+      SpanEncoder encoder = new SpanEncoder(PROJECT_ID, Collections.emptyMap());
+      List<SpanData> spans = new ArrayList<>();
+      List<ByteString> expected = new ArrayList<>();
+      for (int i = 1; i <= 500; i++) {
+        SpanData spanData = spanDataBuilder().setSpanId(new SpanId(i)).build();
+        spans.add(spanData);
+        expected.add(encoder.encodeToByteString(spanData));
+      }
+
+      assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+
+      assertEquals(Collections.singletonList(expected), client.batches);
+    } finally {
+      translationExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void exportRoutesSpansToProjectFromAttributes() throws IOException {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setProjectIdAttributeKey("tenant")
+                .build());
+    Resource resourceB =
+        Resource.create(Attributes.newBuilder().setAttribute("tenant", "project-b").build());
+    SpanData fromSpan =
+        spanDataBuilder()
+            .setAttributes(Attributes.newBuilder().setAttribute("tenant", "project-a").build())
+            .setResource(resourceB)
+            .build();
+    SpanData fromResource = spanDataBuilder().setResource(resourceB).build();
+
+    assertEquals(
+        ResultCode.SUCCESS,
+        exporter.export(Arrays.asList(fromSpan, createSpanData(), fromResource, fromSpan)));
+
+    assertEquals(
+        Arrays.asList(
+            ProjectName.of("project-a"), ProjectName.of(PROJECT_ID), ProjectName.of("project-b")),
+        client.projectNames);
+    assertEquals(2, client.batches.get(0).size());
+    assertEquals(1, client.batches.get(1).size());
+    assertEquals(1, client.batches.get(2).size());
+    assertTrue(
+        Span.parseFrom(client.batches.get(0).get(0)).getName().startsWith("projects/project-a/"));
+    assertTrue(
+        Span.parseFrom(client.batches.get(2).get(0)).getName().startsWith("projects/project-b/"));
+    assertEquals(3, exporter.getActiveProjectCount());
+  }
+
+  @Test
+  public void exportIgnoresProjectAttributesWhenRoutingDisabled() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    SpanData spanData =
+        spanDataBuilder()
+            .setAttributes(Attributes.newBuilder().setAttribute("tenant", "project-a").build())
+            .build();
+
+    exporter.export(Collections.singletonList(spanData));
+
+    assertEquals(Collections.singletonList(ProjectName.of(PROJECT_ID)), client.projectNames);
+    assertEquals(1, exporter.getActiveProjectCount());
+  }
+
+  @Test
+  public void reportsTranslationCacheStats() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setTranslationCacheSize(10)
+                .build());
+
+    SpanData spanData =
+        spanDataBuilder()
+            .setAttributes(
+                Attributes.newBuilder()
+                    .setAttribute("http.method", "GET")
+                    .setAttribute("retries", 2L)
+                    .build())
+            .build();
+
+    assertEquals(0, exporter.getTranslationCacheStats().requestCount());
+    exporter.export(Arrays.asList(spanData, spanData));
+
+    // Each span looks up its display name and both attribute values once.
+    assertEquals(3, exporter.getTranslationCacheStats().missCount());
+    assertEquals(3, exporter.getTranslationCacheStats().hitCount());
+  }
+
+  @Test
+  public void failedExportIsSpilledAndReplayed() throws IOException {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder().setProjectId(PROJECT_ID).setMaxRetryAttempts(0).build(),
+            spillQueue);
+    List<SpanData> spans = Collections.singletonList(createSpanData());
+
+    exporter.export(spans);
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+
+    assertFalse(spillQueue.isEmpty());
+
+    exporter.export(spans);
+
+    assertEquals(3, client.batches.size());
+    assertEquals(client.batches.get(0), client.batches.get(2));
+
+    client.pending.get(2).set(Empty.getDefaultInstance());
+
+    assertTrue(spillQueue.isEmpty());
+  }
+
+  @Test
+  public void rejectedExportIsNotSpilled() throws IOException {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build(), spillQueue);
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.INVALID_ARGUMENT.asRuntimeException());
+
+    assertTrue(spillQueue.isEmpty());
+  }
+
+  @Test
+  public void rejectedReplayIsDroppedAndQueueDrains() throws IOException {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxBatchSize(1)
+                .setMaxRetryAttempts(0)
+                .build(),
+            spillQueue);
+
+    // Two spans, sent as two requests, both spilled.
+    exporter.export(Arrays.asList(createSpanData(), createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    client.pending.get(1).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(2).set(Empty.getDefaultInstance());
+
+    // The first replay is rejected, dropped, and the second one follows.
+    client.pending.get(3).setException(io.grpc.Status.INVALID_ARGUMENT.asRuntimeException());
+    assertEquals(5, client.batches.size());
+    assertEquals(1, exporter.getDroppedSpanCount());
+    client.pending.get(4).set(Empty.getDefaultInstance());
+
+    assertTrue(spillQueue.isEmpty());
+  }
+
+  @Test
+  public void failedReplayIsRetriedWithoutLiveExports() throws Exception {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxRetryAttempts(0)
+                .setInitialRetryBackoff(Duration.ofMillis(1))
+                .setMaxRetryBackoff(Duration.ofMillis(1))
+                .build(),
+            spillQueue);
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(1).set(Empty.getDefaultInstance());
+    client.pending.get(2).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (client.pending.size() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    client.pending.get(3).set(Empty.getDefaultInstance());
+
+    assertTrue(spillQueue.isEmpty());
+  }
+
+  @Test
+  public void overflowingExportIsSpilledInsteadOfDropped() throws IOException {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder().setProjectId(PROJECT_ID).setMaxInFlightRequests(1).build(),
+            spillQueue);
+    List<SpanData> spans = Collections.singletonList(createSpanData());
+
+    assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+    assertEquals(ResultCode.SUCCESS, exporter.export(spans));
+
+    assertEquals(1, client.batches.size());
+    assertEquals(0, exporter.getDroppedSpanCount());
+
+    client.pending.get(0).set(Empty.getDefaultInstance());
+
+    assertEquals(2, client.batches.size());
+    assertEquals(client.batches.get(0), client.batches.get(1));
+  }
+
+  @Test
+  public void retriesUnavailableExport() throws Exception {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setInitialRetryBackoff(Duration.ofMillis(1))
+                .setMaxRetryBackoff(Duration.ofMillis(1))
+                .build());
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (client.pending.size() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+
+    assertEquals(2, client.batches.size());
+    assertEquals(client.batches.get(0), client.batches.get(1));
+
+    client.pending.get(1).set(Empty.getDefaultInstance());
+
+    assertEquals(ResultCode.SUCCESS, exporter.flush());
+  }
+
+  @Test
+  public void resendsRetriesOnExportExecutorAndShutsItDown() throws Exception {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    ExecutorService exportExecutor =
+        Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-export"));
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setInitialRetryBackoff(Duration.ofMillis(1))
+                .setMaxRetryBackoff(Duration.ofMillis(1))
+                .build(),
+            null,
+            exportExecutor);
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (client.pending.size() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+
+    assertEquals("test-export", client.callerThreadNames.get(1));
+
+    client.pending.get(1).set(Empty.getDefaultInstance());
+    exporter.shutdown();
+
+    assertTrue(exportExecutor.isShutdown());
+  }
+
+  @Test
+  public void shutdownFailsExportsAwaitingRetry() {
+    MeterSdkProvider meterProvider = MeterSdkProvider.builder().build();
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setInitialRetryBackoff(Duration.ofHours(1))
+                .setMaxRetryBackoff(Duration.ofHours(1))
+                .setFlushTimeout(Duration.ofMillis(10))
+                .setMeterProvider(meterProvider)
+                .build());
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    exporter.shutdown();
+
+    // Nothing is left pending, so flush does not wait for the retry that was dropped.
+    assertEquals(ResultCode.SUCCESS, exporter.flush());
+    assertEquals(1, sumOf(meterProvider, ExporterMetrics.FAILED_SPANS));
+    assertEquals(1, client.batches.size());
+  }
+
+  @Test
+  public void exportFailingAfterShutdownIsCountedAsDropped() throws IOException {
+    MeterSdkProvider meterProvider = MeterSdkProvider.builder().build();
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    SpillQueue spillQueue = SpillQueue.open(folder.getRoot().toPath(), 1024 * 1024, 64 * 1024);
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxRetryAttempts(0)
+                .setFlushTimeout(Duration.ofMillis(10))
+                .setMeterProvider(meterProvider)
+                .build(),
+            spillQueue);
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    exporter.shutdown();
+    client.pending.get(0).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+
+    assertEquals(1, exporter.getDroppedSpanCount());
+    assertEquals(1, sumOf(meterProvider, ExporterMetrics.DROPPED_SPANS));
+  }
+
+  @Test
+  public void doesNotRetryNonRetryableExport() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.INVALID_ARGUMENT.asRuntimeException());
+
+    // A scheduled retry would keep the export pending, and flush would time out waiting for it.
+    assertEquals(ResultCode.SUCCESS, exporter.flush());
+    assertEquals(1, client.batches.size());
+  }
+
+  @Test
+  public void halvesInFlightLimitWhenBackendIsOverloaded() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    assertEquals(
+        TraceConfiguration.DEFAULT_INITIAL_IN_FLIGHT_REQUESTS, exporter.getInFlightLimit());
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).setException(io.grpc.Status.RESOURCE_EXHAUSTED.asRuntimeException());
+
+    assertEquals(
+        TraceConfiguration.DEFAULT_INITIAL_IN_FLIGHT_REQUESTS / 2, exporter.getInFlightLimit());
+  }
+
+  @Test
+  public void recordsExportLatency() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    assertEquals(Duration.ZERO, exporter.getExportLatency());
+
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(0).set(Empty.getDefaultInstance());
+
+    assertTrue(exporter.getLastExportLatency().compareTo(Duration.ZERO) > 0);
+    assertEquals(exporter.getLastExportLatency(), exporter.getExportLatency());
+  }
+
+  @Test
+  public void recordsExportMetrics() {
+    MeterSdkProvider meterProvider = MeterSdkProvider.builder().build();
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setMaxRetryAttempts(0)
+                .setMeterProvider(meterProvider)
+                .build());
+
+    exporter.export(Arrays.asList(createSpanData(), createSpanData()));
+    client.pending.get(0).set(Empty.getDefaultInstance());
+    exporter.export(Collections.singletonList(createSpanData()));
+    client.pending.get(1).setException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+
+    assertEquals(2, sumOf(meterProvider, ExporterMetrics.EXPORTED_SPANS));
+    assertEquals(1, sumOf(meterProvider, ExporterMetrics.FAILED_SPANS));
+    assertEquals(0, sumOf(meterProvider, ExporterMetrics.DROPPED_SPANS));
+    assertTrue(sumOf(meterProvider, ExporterMetrics.SENT_BYTES) > 0);
+  }
+
+  @Test
+  public void flushWaitsForPendingExports() throws Exception {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    exporter.export(Collections.singletonList(createSpanData()));
+
+    Thread completer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              client.pending.get(0).set(Empty.getDefaultInstance());
+            });
+    completer.start();
+
+    assertEquals(ResultCode.SUCCESS, exporter.flush());
+    completer.join();
+  }
+
+  @Test
+  public void flushFailsAfterTimeout() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setFlushTimeout(Duration.ofMillis(10))
+                .build());
+    exporter.export(Collections.singletonList(createSpanData()));
+
+    assertEquals(ResultCode.FAILURE, exporter.flush());
+  }
+
+  @Test
+  public void flushFailsWhenPendingExportFails() throws Exception {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(client, TraceConfiguration.builder().setProjectId(PROJECT_ID).build());
+    exporter.export(Collections.singletonList(createSpanData()));
+
+    Thread completer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              client.pending.get(0).setException(new RuntimeException("backend unavailable"));
+            });
+    completer.start();
+
+    assertEquals(ResultCode.FAILURE, exporter.flush());
+    completer.join();
+  }
+
+  @Test
+  public void shutdownStopsAcceptingSpansAndClosesClient() {
+    FakeCloudTraceClient client = new FakeCloudTraceClient();
+    TraceExporter exporter =
+        new TraceExporter(
+            client,
+            TraceConfiguration.builder()
+                .setProjectId(PROJECT_ID)
+                .setFlushTimeout(Duration.ofMillis(10))
+                .build());
+    exporter.export(Collections.singletonList(createSpanData()));
+    assertFalse(client.isShutdown);
+
+    exporter.shutdown();
+
+    assertTrue(client.isShutdown);
+    assertEquals(ResultCode.FAILURE, exporter.export(Collections.singletonList(createSpanData())));
+  }
+
+  static SpanData createSpanData() {
+    return spanDataBuilder().build();
+  }
+
+  private static TestSpanData.Builder spanDataBuilder() {
+    return TestSpanData.newBuilder()
+        .setParentSpanId(new SpanId(54321))
+        .setSpanId(new SpanId(12345))
+        .setTraceId(new TraceId(321, 123))
+        .setName("MySpanName")
+        .setKind(io.opentelemetry.trace.Span.Kind.SERVER)
+        .setEvents(Collections.emptyList())
+        .setStatus(Status.OK)
+        .setStartEpochNanos(TimeUnit.SECONDS.toNanos(3000) + 200)
+        .setEndEpochNanos(TimeUnit.SECONDS.toNanos(3001) + 255)
+        .setTotalRecordedLinks(0)
+        .setHasRemoteParent(false)
+        .setHasEnded(true);
+  }
+
+  // Sums the points of a long counter.
+  private static long sumOf(MeterSdkProvider meterProvider, String name) {
+    long sum = 0;
+    for (MetricData metric : meterProvider.getMetricProducer().collectAllMetrics()) {
+      if (metric.getDescriptor().getName().equals(name)) {
+        for (MetricData.Point point : metric.getPoints()) {
+          sum += ((MetricData.LongPoint) point).getValue();
+        }
+      }
+    }
+    return sum;
+  }
+
+  /** A {@link CloudTraceClient} whose calls stay in flight until the test completes them. */
+  static class FakeCloudTraceClient implements CloudTraceClient {
+    final List<List<ByteString>> batches = Collections.synchronizedList(new ArrayList<>());
+    final List<SettableApiFuture<Empty>> pending = Collections.synchronizedList(new ArrayList<>());
+    final List<ProjectName> projectNames = Collections.synchronizedList(new ArrayList<>());
+    final List<String> callerThreadNames = Collections.synchronizedList(new ArrayList<>());
+    volatile boolean isShutdown;
+
+    @Override
+    public void batchWriteSpans(ProjectName name, List<Span> spans) {
+      batches.add(encode(spans));
+    }
+
+    @Override
+    public ApiFuture<Empty> batchWriteSpansAsync(ProjectName name, List<Span> spans) {
+      return batchWriteEncodedSpansAsync(name, encode(spans));
+    }
+
+    @Override
+    public ApiFuture<Empty> batchWriteEncodedSpansAsync(ProjectName name, List<ByteString> spans) {
+      SettableApiFuture<Empty> future = SettableApiFuture.create();
+      projectNames.add(name);
+      callerThreadNames.add(Thread.currentThread().getName());
+      batches.add(spans);
+      pending.add(future);
+      return future;
+    }
+
+    @Override
+    public void shutdown() {
+      isShutdown = true;
+    }
+
+    private static List<ByteString> encode(List<Span> spans) {
+      List<ByteString> encoded = new ArrayList<>(spans.size());
+      for (Span span : spans) {
+        encoded.add(span.toByteString());
+      }
+      return encoded;
+    }
+  }
 }
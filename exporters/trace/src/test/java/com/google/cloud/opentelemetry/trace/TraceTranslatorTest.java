@@ -1,11 +1,13 @@
 package com.google.cloud.opentelemetry.trace;
 
+import com.google.common.base.Strings;
 import com.google.devtools.cloudtrace.v2.AttributeValue;
 import com.google.devtools.cloudtrace.v2.Span;
 import com.google.devtools.cloudtrace.v2.TruncatableString;
 import com.google.rpc.Status;
 import io.opentelemetry.common.Attributes;
 import io.opentelemetry.common.ReadableAttributes;
+import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.trace.Span.Kind;
 import io.opentelemetry.trace.SpanId;
@@ -43,18 +45,106 @@ public class TraceTranslatorTest {
 
   @Test
   public void testNullTruncatableStringProto(){
-    assertThrows(NullPointerException.class, () -> TraceTranslator.toTruncatableStringProto(null));
+    assertThrows(
+        NullPointerException.class, () -> TraceTranslator.toTruncatableStringProto(null, 256));
   }
 
   @Test
   public void testToTruncatableStringProto(){
     String truncatableString = "myTruncatableString";
-    TruncatableString testTruncatable = TraceTranslator.toTruncatableStringProto(truncatableString);
+    TruncatableString testTruncatable =
+        TraceTranslator.toTruncatableStringProto(truncatableString, 256);
 
     assertEquals("myTruncatableString", testTruncatable.getValue());
     assertEquals(0, testTruncatable.getTruncatedByteCount());
   }
 
+  @Test
+  public void testToTruncatableStringProtoTruncatesOnCodePointBoundary() {
+    // "a" is one byte, "\u00e9" two and "\ud83d\ude00" four.
+    TruncatableString truncated =
+        TraceTranslator.toTruncatableStringProto("a\u00e9\ud83d\ude00b", 6);
+
+    assertEquals("a\u00e9", truncated.getValue());
+    assertEquals(5, truncated.getTruncatedByteCount());
+  }
+
+  @Test
+  public void testGenerateSpanEnforcesStringLimits() {
+    String longName = Strings.repeat("n", 200);
+    String longKey = Strings.repeat("k", 200);
+    String longValue = Strings.repeat("\u00e4", 200);
+    SpanData spanData =
+        SpanEncoderTest.baseSpanData()
+            .setName(longName)
+            .setKind(Kind.INTERNAL)
+            .setAttributes(Attributes.newBuilder().setAttribute(longKey, longValue).build())
+            .setEvents(
+                Collections.singletonList(
+                    SpanEncoderTest.createEvent(0, Strings.repeat("e", 300), Attributes.empty())))
+            .build();
+
+    Span span =
+        TraceTranslator.generateSpan(
+            spanData, "project-id", Collections.<String, AttributeValue>emptyMap());
+
+    assertEquals(Strings.repeat("n", 128), span.getDisplayName().getValue());
+    assertEquals(72, span.getDisplayName().getTruncatedByteCount());
+    TruncatableString value =
+        span.getAttributes().getAttributeMapOrThrow(Strings.repeat("k", 128)).getStringValue();
+    assertEquals(Strings.repeat("\u00e4", 128), value.getValue());
+    assertEquals(144, value.getTruncatedByteCount());
+    TruncatableString description =
+        span.getTimeEvents().getTimeEvent(0).getAnnotation().getDescription();
+    assertEquals(Strings.repeat("e", 256), description.getValue());
+    assertEquals(44, description.getTruncatedByteCount());
+  }
+
+  @Test
+  public void testGenerateSpanCapsAttributesAnnotationsAndLinks() {
+    Attributes.Builder attributes = Attributes.newBuilder();
+    List<SpanData.Event> events = new ArrayList<>();
+    List<SpanData.Link> links = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      attributes.setAttribute("key" + i, "value" + i);
+      events.add(SpanEncoderTest.createEvent(i, "event" + i, Attributes.empty()));
+      links.add(
+          SpanEncoderTest.createLink(new TraceId(1, i), new SpanId(i + 1), Attributes.empty()));
+    }
+    SpanData spanData =
+        SpanEncoderTest.baseSpanData()
+            .setAttributes(attributes.build())
+            .setEvents(events)
+            .setLinks(links)
+            .setTotalRecordedLinks(7)
+            .build();
+    Map<String, AttributeValue> fixedAttributes =
+        Collections.singletonMap("fixed", TraceTranslator.toStringAttributeValueProto("value"));
+
+    Span span =
+        TraceTranslator.generateSpan(
+            spanData,
+            new SpanNameFormatter("project-id"),
+            fixedAttributes,
+            new SpanLimits(2, 3, 4),
+            null);
+
+    Map<String, AttributeValue> attributeMap = span.getAttributes().getAttributeMapMap();
+    assertEquals(4, attributeMap.size());
+    assertTrue(attributeMap.containsKey("key0"));
+    assertTrue(attributeMap.containsKey("key1"));
+    assertTrue(attributeMap.containsKey(TraceTranslator.AGENT_LABEL_KEY));
+    assertTrue(attributeMap.containsKey("fixed"));
+    assertEquals(3, span.getAttributes().getDroppedAttributesCount());
+    assertEquals(3, span.getTimeEvents().getTimeEventCount());
+    assertEquals(
+        "event0",
+        span.getTimeEvents().getTimeEvent(0).getAnnotation().getDescription().getValue());
+    assertEquals(2, span.getTimeEvents().getDroppedAnnotationsCount());
+    assertEquals(4, span.getLinks().getLinkCount());
+    assertEquals(3, span.getLinks().getDroppedLinksCount());
+  }
+
   @Test
   public void testToTimestampProto(){
     long epochNanos = TimeUnit.SECONDS.toNanos(3001) + 255;
@@ -153,6 +243,25 @@ public class TraceTranslatorTest {
             attributeMap.get("g.co/agent").getStringValue().getValue());
   }
 
+  @Test
+  public void testToLinksProtoKeepsAllLinks() {
+    List<SpanData.Link> links = new ArrayList<>();
+    for (int i = 0; i < TraceConfiguration.DEFAULT_MAX_LINKS_PER_SPAN + 10; i++) {
+      links.add(
+          createLink(
+              new TraceId(321, 123),
+              new SpanId(i + 1),
+              TraceFlags.builder().build(),
+              TraceState.builder().build(),
+              Attributes.empty()));
+    }
+
+    Span.Links finalLinks = TraceTranslator.toLinksProto(links, links.size());
+
+    assertEquals(links.size(), finalLinks.getLinkCount());
+    assertEquals(0, finalLinks.getDroppedLinksCount());
+  }
+
   @Test
   public void testToStatusProto(){
     io.opentelemetry.trace.Status myStatus = io.opentelemetry.trace.Status.OK.withDescription("Status description");
@@ -223,4 +332,58 @@ public class TraceTranslatorTest {
     assertEquals(Collections.unmodifiableMap(resourceLabels), TraceTranslator.getResourceLabels(resources));
   }
 
+  @Test
+  public void testGetResourceLabelsFromResourceAttributes() {
+    ReadableAttributes resource =
+        Attributes.newBuilder()
+            .setAttribute("service.name", "checkout")
+            .setAttribute("host.enabled", true)
+            .setAttribute("instance.count", 3L)
+            .setAttribute("cpu.ratio", 0.5)
+            .setAttribute(
+                "host.tags", io.opentelemetry.common.AttributeValue.arrayAttributeValue("a", "b"))
+            .build();
+
+    Map<String, AttributeValue> resourceLabels = TraceTranslator.getResourceLabels(resource);
+
+    assertEquals(4, resourceLabels.size());
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("checkout"),
+        resourceLabels.get("g.co/r/service.name"));
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("true"),
+        resourceLabels.get("g.co/r/host.enabled"));
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("3"),
+        resourceLabels.get("g.co/r/instance.count"));
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("0.5"),
+        resourceLabels.get("g.co/r/cpu.ratio"));
+  }
+
+  @Test
+  public void testGetConstAttributesPutsFixedAttributesAfterResourceLabels() {
+    Resource resource =
+        Resource.create(
+            Attributes.newBuilder()
+                .setAttribute("zone", "us-east1-b")
+                .setAttribute("service", "checkout")
+                .build());
+    Map<String, AttributeValue> fixedAttributes = new LinkedHashMap<>();
+    fixedAttributes.put("g.co/r/service", TraceTranslator.toStringAttributeValueProto("cart"));
+    fixedAttributes.put("fixed", TraceTranslator.toStringAttributeValueProto("value"));
+
+    Map<String, AttributeValue> constAttributes =
+        TraceTranslator.getConstAttributes(resource, fixedAttributes);
+
+    assertEquals(
+        Arrays.asList("g.co/r/zone", "g.co/r/service", "fixed"),
+        new ArrayList<>(constAttributes.keySet()));
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("cart"),
+        constAttributes.get("g.co/r/service"));
+    assertEquals(
+        fixedAttributes, TraceTranslator.getConstAttributes(Resource.getEmpty(), fixedAttributes));
+  }
+
 }
@@ -0,0 +1,106 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.common.cache.CacheStats;
+import com.google.devtools.cloudtrace.v2.AttributeValue;
+import com.google.devtools.cloudtrace.v2.TruncatableString;
+import io.opentelemetry.trace.Span.Kind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static io.opentelemetry.common.AttributeValue.booleanAttributeValue;
+import static io.opentelemetry.common.AttributeValue.doubleAttributeValue;
+import static io.opentelemetry.common.AttributeValue.longAttributeValue;
+import static io.opentelemetry.common.AttributeValue.stringAttributeValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class TranslationCacheTest {
+
+  @Test
+  public void translatesAttributeValues() {
+    TranslationCache cache = new TranslationCache(10);
+
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("value"),
+        cache.getAttributeValue(stringAttributeValue("value")));
+    assertEquals(
+        AttributeValue.newBuilder().setBoolValue(true).build(),
+        cache.getAttributeValue(booleanAttributeValue(true)));
+    assertEquals(
+        AttributeValue.newBuilder().setIntValue(42).build(),
+        cache.getAttributeValue(longAttributeValue(42)));
+    assertEquals(
+        TraceTranslator.toStringAttributeValueProto("3.14"),
+        cache.getAttributeValue(doubleAttributeValue(3.14)));
+  }
+
+  @Test
+  public void returnsCachedAttributeValue() {
+    TranslationCache cache = new TranslationCache(10);
+
+    AttributeValue first = cache.getAttributeValue(stringAttributeValue("value"));
+    AttributeValue second = cache.getAttributeValue(stringAttributeValue("value"));
+
+    assertSame(first, second);
+    assertStats(cache.stats(), 1, 1);
+  }
+
+  @Test
+  public void keysAttributeValuesByType() {
+    TranslationCache cache = new TranslationCache(10);
+
+    AttributeValue fromLong = cache.getAttributeValue(longAttributeValue(1));
+    AttributeValue fromBoolean = cache.getAttributeValue(booleanAttributeValue(true));
+
+    assertEquals(1, fromLong.getIntValue());
+    assertEquals(true, fromBoolean.getBoolValue());
+    assertStats(cache.stats(), 0, 2);
+  }
+
+  @Test
+  public void translatesDisplayNamesPerKind() {
+    TranslationCache cache = new TranslationCache(10);
+
+    assertEquals(stringProto("Recv.name"), cache.getDisplayName("name", Kind.SERVER));
+    assertEquals(stringProto("Sent.name"), cache.getDisplayName("name", Kind.CLIENT));
+    assertEquals(stringProto("name"), cache.getDisplayName("name", Kind.INTERNAL));
+    assertEquals(stringProto("name"), cache.getDisplayName("name", null));
+    assertStats(cache.stats(), 1, 3);
+  }
+
+  @Test
+  public void returnsCachedDisplayName() {
+    TranslationCache cache = new TranslationCache(10);
+
+    TruncatableString first = cache.getDisplayName("name", Kind.SERVER);
+    TruncatableString second = cache.getDisplayName("name", Kind.SERVER);
+
+    assertSame(first, second);
+    assertStats(cache.stats(), 1, 1);
+  }
+
+  @Test
+  public void evictsBeyondMaximumSize() {
+    TranslationCache cache = new TranslationCache(1);
+
+    AttributeValue first = cache.getAttributeValue(longAttributeValue(1));
+    cache.getAttributeValue(longAttributeValue(2));
+    AttributeValue again = cache.getAttributeValue(longAttributeValue(1));
+
+    assertEquals(first, again);
+    assertNotSame(first, again);
+    assertEquals(3, cache.stats().missCount());
+  }
+
+  private static void assertStats(CacheStats stats, long hits, long misses) {
+    assertEquals(hits, stats.hitCount());
+    assertEquals(misses, stats.missCount());
+  }
+
+  private static TruncatableString stringProto(String value) {
+    return TruncatableString.newBuilder().setValue(value).build();
+  }
+}
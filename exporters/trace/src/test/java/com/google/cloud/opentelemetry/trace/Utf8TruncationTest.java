@@ -0,0 +1,52 @@
+package com.google.cloud.opentelemetry.trace;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class Utf8TruncationTest {
+
+  // One, two, three and four UTF-8 bytes.
+  private static final String MIXED = "a\u00e9\u2603\ud83d\ude00";
+
+  @Test
+  public void keepsStringsThatFit() {
+    assertEquals(0, Utf8Truncation.truncatedLength("", 0));
+    assertEquals(3, Utf8Truncation.truncatedLength("abc", 3));
+    assertEquals(MIXED.length(), Utf8Truncation.truncatedLength(MIXED, 10));
+  }
+
+  @Test
+  public void cutsOnCodePointBoundaries() {
+    assertEquals(1, Utf8Truncation.truncatedLength(MIXED, 1));
+    assertEquals(1, Utf8Truncation.truncatedLength(MIXED, 2));
+    assertEquals(2, Utf8Truncation.truncatedLength(MIXED, 3));
+    assertEquals(2, Utf8Truncation.truncatedLength(MIXED, 5));
+    assertEquals(3, Utf8Truncation.truncatedLength(MIXED, 6));
+    // The surrogate pair is never split.
+    assertEquals(3, Utf8Truncation.truncatedLength(MIXED, 9));
+  }
+
+  @Test
+  public void measuresLikeStringGetBytes() {
+    assertEquals(utf8Length(MIXED), Utf8Truncation.encodedLength(MIXED, 0, MIXED.length()));
+    assertEquals(7, Utf8Truncation.encodedLength(MIXED, 2, MIXED.length()));
+  }
+
+  @Test
+  public void countsUnpairedSurrogatesAsOneByte() {
+    String unpaired = "a\ud83db\ude00";
+
+    assertEquals(utf8Length(unpaired), Utf8Truncation.encodedLength(unpaired, 0, 4));
+    assertEquals(2, Utf8Truncation.truncatedLength(unpaired, 2));
+  }
+
+  private static int utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
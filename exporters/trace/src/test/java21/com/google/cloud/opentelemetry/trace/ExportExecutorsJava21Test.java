@@ -0,0 +1,62 @@
+package com.google.cloud.opentelemetry.trace;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Runs on JDK 21 against the multi-release jar, so it sees the virtual thread variant. */
+@RunWith(JUnit4.class)
+public class ExportExecutorsJava21Test {
+
+  private final ExecutorService executor = ExportExecutors.newExportExecutor("test-export", 1);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void usesVirtualThreads() {
+    assertTrue(ExportExecutors.usesVirtualThreads());
+  }
+
+  @Test
+  public void runsBlockedTasksOnNamedVirtualThreadsBeyondPlatformLimit() throws Exception {
+    int tasks = 1000;
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    CountDownLatch started = new CountDownLatch(tasks);
+    CountDownLatch release = new CountDownLatch(1);
+
+    for (int i = 0; i < tasks; i++) {
+      executor.execute(
+          () -> {
+            threads.add(Thread.currentThread());
+            started.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+
+    // All of them block at once, although the platform pool would allow only one.
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    release.countDown();
+    assertEquals(tasks, threads.size());
+    for (Thread thread : threads) {
+      assertTrue(thread.isVirtual());
+      assertTrue(thread.getName().startsWith("test-export-"));
+    }
+  }
+}
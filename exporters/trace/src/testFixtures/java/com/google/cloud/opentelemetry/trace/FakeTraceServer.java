@@ -0,0 +1,75 @@
+package com.google.cloud.opentelemetry.trace;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a {@link FakeTraceService}, either in-process or over plaintext HTTP/2 on the loopback
+ * interface, so exporter tests need no external binary or network access.
+ */
+public final class FakeTraceServer implements AutoCloseable {
+
+  private final Server server;
+  private final FakeTraceService service;
+  private final String inProcessName;
+
+  private FakeTraceServer(Server server, FakeTraceService service, String inProcessName) {
+    this.server = server;
+    this.service = service;
+    this.inProcessName = inProcessName;
+  }
+
+  /** Starts serving {@code service} on the in-process transport. */
+  public static FakeTraceServer startInProcess(FakeTraceService service) throws IOException {
+    String name = InProcessServerBuilder.generateName();
+    Server server = InProcessServerBuilder.forName(name).addService(service).build().start();
+    return new FakeTraceServer(server, service, name);
+  }
+
+  /** Starts serving {@code service} on a free port of the loopback interface. */
+  public static FakeTraceServer startOnLocalhost(FakeTraceService service) throws IOException {
+    Server server =
+        NettyServerBuilder.forAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            .addService(service)
+            .build()
+            .start();
+    return new FakeTraceServer(server, service, null);
+  }
+
+  public FakeTraceService getService() {
+    return service;
+  }
+
+  /** Returns the port the server listens on, or -1 if it is in-process. */
+  public int getPort() {
+    return inProcessName == null ? server.getPort() : -1;
+  }
+
+  /** Returns a new channel to the server, which the caller must shut down. */
+  public ManagedChannel newChannel() {
+    if (inProcessName != null) {
+      return InProcessChannelBuilder.forName(inProcessName).build();
+    }
+    return ManagedChannelBuilder.forAddress(
+            InetAddress.getLoopbackAddress().getHostAddress(), server.getPort())
+        .usePlaintext()
+        .build();
+  }
+
+  /** Stops the server and the service, failing the calls still in progress. */
+  @Override
+  public void close() throws InterruptedException {
+    server.shutdownNow();
+    service.close();
+    server.awaitTermination(5, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,232 @@
+package com.google.cloud.opentelemetry.trace;
+
+import com.google.devtools.cloudtrace.v2.BatchWriteSpansRequest;
+import com.google.devtools.cloudtrace.v2.TraceServiceGrpc;
+import com.google.protobuf.Empty;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fake Cloud Trace backend for tests and benchmarks, served by {@link FakeTraceServer}.
+ *
+ * <p>Every {@code BatchWriteSpans} call is answered after a delay drawn from the configured
+ * {@link Latency}. Calls larger than the request size limit fail with {@code RESOURCE_EXHAUSTED},
+ * as they would against a gRPC server's inbound message limit, and a configurable fraction of the
+ * rest fail with the configured error status. Accepted requests are captured unless capturing is
+ * disabled, which long load tests should do to keep memory flat.
+ */
+public final class FakeTraceService extends TraceServiceGrpc.TraceServiceImplBase
+    implements AutoCloseable {
+
+  /** Draws the delay before each response. */
+  public interface Latency {
+    /** Returns the delay before the next response, in nanoseconds. */
+    long nextNanos(Random random);
+
+    /** Responds immediately. */
+    static Latency none() {
+      return random -> 0;
+    }
+
+    /** Responds after exactly {@code latency}. */
+    static Latency fixed(Duration latency) {
+      long nanos = latency.toNanos();
+      return random -> nanos;
+    }
+
+    /** Responds after a delay drawn uniformly from {@code [min, max]}. */
+    static Latency uniform(Duration min, Duration max) {
+      long minNanos = min.toNanos();
+      long spanNanos = max.toNanos() - minNanos;
+      return random -> minNanos + (long) (random.nextDouble() * spanNanos);
+    }
+
+    /**
+     * Responds after a delay drawn from an exponential distribution with the given {@code mean},
+     * which gives the long tail typical of a loaded backend.
+     */
+    static Latency exponential(Duration mean) {
+      long meanNanos = mean.toNanos();
+      return random -> (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+    }
+  }
+
+  private final Latency latency;
+  private final double errorRate;
+  private final Status errorStatus;
+  private final int maxRequestBytes;
+  private final boolean captureRequests;
+  private final Random random;
+  private final ScheduledExecutorService scheduler;
+  private final List<BatchWriteSpansRequest> requests = new ArrayList<>();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong acceptedSpanCount = new AtomicLong();
+  private final AtomicLong failedRequestCount = new AtomicLong();
+  private final AtomicInteger concurrentRequests = new AtomicInteger();
+  private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+  private FakeTraceService(Builder builder) {
+    this.latency = builder.latency;
+    this.errorRate = builder.errorRate;
+    this.errorStatus = builder.errorStatus;
+    this.maxRequestBytes = builder.maxRequestBytes;
+    this.captureRequests = builder.captureRequests;
+    this.random = new Random(builder.seed);
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "FakeTraceService");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Returns a builder for a service that accepts every request immediately. */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public void batchWriteSpans(
+      BatchWriteSpansRequest request, StreamObserver<Empty> responseObserver) {
+    requestCount.incrementAndGet();
+    int concurrent = concurrentRequests.incrementAndGet();
+    maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+
+    Status status;
+    long delayNanos;
+    synchronized (random) {
+      delayNanos = latency.nextNanos(random);
+      if (maxRequestBytes > 0 && request.getSerializedSize() > maxRequestBytes) {
+        status =
+            Status.RESOURCE_EXHAUSTED.withDescription(
+                "Request of "
+                    + request.getSerializedSize()
+                    + " bytes is larger than "
+                    + maxRequestBytes
+                    + " bytes.");
+      } else if (random.nextDouble() < errorRate) {
+        status = errorStatus;
+      } else {
+        status = Status.OK;
+      }
+    }
+
+    if (status.isOk()) {
+      acceptedSpanCount.addAndGet(request.getSpansCount());
+      if (captureRequests) {
+        synchronized (requests) {
+          requests.add(request);
+        }
+      }
+    } else {
+      failedRequestCount.incrementAndGet();
+    }
+    Runnable respond = () -> respond(status, responseObserver);
+    if (delayNanos <= 0) {
+      respond.run();
+    } else {
+      scheduler.schedule(respond, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void respond(Status status, StreamObserver<Empty> responseObserver) {
+    concurrentRequests.decrementAndGet();
+    if (status.isOk()) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    } else {
+      responseObserver.onError(status.asRuntimeException());
+    }
+  }
+
+  /** Returns the accepted requests, in the order they arrived, if capturing is enabled. */
+  public List<BatchWriteSpansRequest> getRequests() {
+    synchronized (requests) {
+      return new ArrayList<>(requests);
+    }
+  }
+
+  /** Returns the number of requests received, including failed ones. */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /** Returns the number of requests that were answered with an error. */
+  public long getFailedRequestCount() {
+    return failedRequestCount.get();
+  }
+
+  /** Returns the number of spans in the accepted requests. */
+  public long getAcceptedSpanCount() {
+    return acceptedSpanCount.get();
+  }
+
+  /** Returns the largest number of requests that were waiting for a response at once. */
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests.get();
+  }
+
+  /** Stops answering delayed requests. */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  /** Builder for {@link FakeTraceService}. */
+  public static final class Builder {
+    private Latency latency = Latency.none();
+    private double errorRate;
+    private Status errorStatus = Status.UNAVAILABLE;
+    private int maxRequestBytes;
+    private boolean captureRequests = true;
+    private long seed = 42;
+
+    private Builder() {}
+
+    /** Sets the distribution of response delays. */
+    public Builder setLatency(Latency latency) {
+      this.latency = latency;
+      return this;
+    }
+
+    /** Sets the fraction, between 0 and 1, of requests that fail with {@code errorStatus}. */
+    public Builder setErrorRate(double errorRate, Status errorStatus) {
+      this.errorRate = errorRate;
+      this.errorStatus = errorStatus;
+      return this;
+    }
+
+    /** Sets the largest accepted request, in serialized bytes, or 0 for no limit. */
+    public Builder setMaxRequestBytes(int maxRequestBytes) {
+      this.maxRequestBytes = maxRequestBytes;
+      return this;
+    }
+
+    /** Sets whether accepted requests are kept for {@link FakeTraceService#getRequests()}. */
+    public Builder setCaptureRequests(boolean captureRequests) {
+      this.captureRequests = captureRequests;
+      return this;
+    }
+
+    /** Sets the seed of the random source for latencies and errors, for repeatable runs. */
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public FakeTraceService build() {
+      return new FakeTraceService(this);
+    }
+  }
+}